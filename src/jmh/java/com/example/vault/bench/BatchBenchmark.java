@@ -0,0 +1,81 @@
+package com.example.vault.bench;
+
+import com.example.vault.Database;
+import com.example.vault.economy.EconomyBatch;
+import com.example.vault.economy.SimpleEconomy;
+import net.milkbowl.vault.economy.EconomyResponse;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.plugin.Plugin;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paying a group of players at once, as a jobs or minigame plugin does per
+ * event: one depositPlayer call per player against one applyBatch call, with
+ * an embedded H2 database in MySQL mode so each write is a real statement.
+ * Time is per group.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+
+    @Param({"10", "50"})
+    public int players;
+
+    private Database database;
+    private SimpleEconomy economy;
+    private OfflinePlayer[] group;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Plugin plugin = BenchStubs.plugin(BenchStubs.server(new java.util.HashMap<>(), new OfflinePlayer[0], false), BenchStubs.tempDataFolder());
+        FileConfiguration cfg = plugin.getConfig();
+        cfg.set("storage.use_mysql", true);
+        cfg.set("storage.mysql.jdbc_url", "jdbc:h2:mem:batch;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        cfg.set("storage.mysql.username", "root");
+        cfg.set("storage.mysql.password", "");
+        database = new Database(plugin);
+        if (!database.isEnabled()) throw new IllegalStateException("H2 database did not start");
+        database.deleteAllBalances();
+        economy = new SimpleEconomy(plugin, database);
+        group = new OfflinePlayer[players];
+        for (int i = 0; i < players; i++) {
+            group[i] = BenchStubs.player(UUID.randomUUID(), "player" + i, true);
+            economy.depositPlayer(group[i], 1000.0);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        database.close();
+    }
+
+    @Benchmark
+    public double singleCalls() {
+        double balance = 0.0;
+        for (OfflinePlayer p : group) balance += economy.depositPlayer(p, 1.0).balance;
+        return balance;
+    }
+
+    @Benchmark
+    public List<EconomyResponse> batchBestEffort() {
+        EconomyBatch batch = new EconomyBatch();
+        for (OfflinePlayer p : group) batch.add(p, 1.0);
+        return economy.applyBatch(batch, false);
+    }
+
+    @Benchmark
+    public List<EconomyResponse> batchAtomic() {
+        EconomyBatch batch = new EconomyBatch();
+        for (OfflinePlayer p : group) batch.add(p, 1.0);
+        return economy.applyBatch(batch, true);
+    }
+}
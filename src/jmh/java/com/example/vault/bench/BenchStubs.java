@@ -0,0 +1,183 @@
+package com.example.vault.bench;
+
+import net.md_5.bungee.api.chat.BaseComponent;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.Server;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.SkullMeta;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Minimal Bukkit stand-ins for running plugin code without a server.
+ * Proxies answer the handful of calls the plugin makes and return
+ * defaults for everything else.
+ */
+public final class BenchStubs {
+    private BenchStubs() {}
+
+    private static final Player.Spigot SPIGOT = new Player.Spigot() {
+        @Override public void sendMessage(BaseComponent component) {}
+        @Override public void sendMessage(BaseComponent... components) {}
+    };
+
+    public static Player player(UUID id, String name, boolean online) {
+        return player(id, name, () -> online);
+    }
+
+    /** Player whose online state can change, e.g. one backed by the server's online map. */
+    public static Player player(UUID id, String name, BooleanSupplier online) {
+        return (Player) Proxy.newProxyInstance(BenchStubs.class.getClassLoader(), new Class<?>[]{Player.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getUniqueId": return id;
+                case "getName": return name;
+                case "isOnline": return online.getAsBoolean();
+                case "hasPermission": return true;
+                case "spigot": return SPIGOT;
+                case "hashCode": return id.hashCode();
+                case "equals": return proxy == args[0];
+                case "toString": return "StubPlayer[" + name + "]";
+                default: return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    public static Server server(Map<String, Player> online, OfflinePlayer[] offline, boolean onlineMode) {
+        return (Server) Proxy.newProxyInstance(BenchStubs.class.getClassLoader(), new Class<?>[]{Server.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getPlayerExact": return online.get((String) args[0]);
+                case "getOfflinePlayers": return offline;
+                case "getOnlinePlayers": return online.values();
+                case "getOnlineMode": return onlineMode;
+                case "getOfflinePlayer": return args[0] instanceof UUID ? player((UUID) args[0], null, false) : null;
+                case "isPrimaryThread": return false;
+                case "getLogger": return Logger.getLogger("StubServer");
+                case "getName": return "StubServer";
+                case "getVersion": return "stub";
+                case "createInventory": return inventory((Integer) args[1]);
+                case "getItemFactory": return ITEM_FACTORY;
+                case "getScheduler": return INLINE_SCHEDULER;
+                case "hashCode": return System.identityHashCode(proxy);
+                case "equals": return proxy == args[0];
+                case "toString": return "StubServer";
+                default: return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    public static Plugin plugin(Server server, File dataFolder) {
+        YamlConfiguration config = new YamlConfiguration();
+        Logger logger = Logger.getLogger("VaultBench");
+        dataFolder.mkdirs();
+        return (Plugin) Proxy.newProxyInstance(BenchStubs.class.getClassLoader(), new Class<?>[]{Plugin.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getConfig": return config;
+                case "getDataFolder": return dataFolder;
+                case "getLogger": return logger;
+                case "getServer": return server;
+                case "getName": return "Vault";
+                case "isEnabled": return true;
+                case "saveResource": copyResource((String) args[0], dataFolder); return null;
+                case "hashCode": return System.identityHashCode(proxy);
+                case "equals": return proxy == args[0];
+                case "toString": return "StubPlugin";
+                default: return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    // Item metas only need to carry a display name for the pay menu heads
+    private static final ItemFactory ITEM_FACTORY = (ItemFactory) Proxy.newProxyInstance(BenchStubs.class.getClassLoader(), new Class<?>[]{ItemFactory.class}, (proxy, method, args) -> {
+        switch (method.getName()) {
+            case "getItemMeta": return itemMeta(null);
+            case "isApplicable": return true;
+            case "asMetaFor": return args[0];
+            default: return defaultValue(method.getReturnType());
+        }
+    });
+
+    private static SkullMeta itemMeta(String displayName) {
+        String[] name = {displayName};
+        return (SkullMeta) Proxy.newProxyInstance(BenchStubs.class.getClassLoader(), new Class<?>[]{SkullMeta.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getDisplayName": return name[0];
+                case "setDisplayName": name[0] = (String) args[0]; return null;
+                case "hasDisplayName": return name[0] != null;
+                case "setOwner": return true;
+                case "clone": return itemMeta(name[0]);
+                case "hashCode": return System.identityHashCode(proxy);
+                case "equals": return proxy == args[0];
+                default: return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    private static Inventory inventory(int size) {
+        ItemStack[] items = new ItemStack[size];
+        return (Inventory) Proxy.newProxyInstance(BenchStubs.class.getClassLoader(), new Class<?>[]{Inventory.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getSize": return size;
+                case "setItem": items[(Integer) args[0]] = (ItemStack) args[1]; return null;
+                case "getItem": return items[(Integer) args[0]];
+                case "hashCode": return System.identityHashCode(proxy);
+                case "equals": return proxy == args[0];
+                default: return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    // Runs one-shot tasks on the calling thread; repeating tasks are not started
+    private static final BukkitScheduler INLINE_SCHEDULER = (BukkitScheduler) Proxy.newProxyInstance(BenchStubs.class.getClassLoader(), new Class<?>[]{BukkitScheduler.class}, (proxy, method, args) -> {
+        switch (method.getName()) {
+            case "runTask":
+            case "runTaskAsynchronously":
+                ((Runnable) args[1]).run();
+                return null;
+            default: return defaultValue(method.getReturnType());
+        }
+    });
+
+    public static File tempDataFolder() {
+        try {
+            File dir = Files.createTempDirectory("vault-bench").toFile();
+            dir.deleteOnExit();
+            return dir;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void copyResource(String name, File dataFolder) throws IOException {
+        try (InputStream in = BenchStubs.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) throw new IOException("Missing resource " + name);
+            Files.copy(in, new File(dataFolder, name).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0f;
+        if (type == double.class) return 0d;
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        return 0;
+    }
+}
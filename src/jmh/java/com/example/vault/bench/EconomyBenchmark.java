@@ -0,0 +1,110 @@
+package com.example.vault.bench;
+
+import com.example.vault.economy.SimpleEconomy;
+import net.milkbowl.vault.economy.EconomyResponse;
+import org.bukkit.OfflinePlayer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ledger hot paths of SimpleEconomy (YAML mode, no database round trips).
+ * baselineMapGet is a bare ConcurrentHashMap lookup: the floor for getBalance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EconomyBenchmark {
+    private static final double START_BALANCE = 1.0e12;
+
+    @Param({"1000", "100000"})
+    public int accounts;
+
+    // Accounts hit by the contended group; small so threads collide on the same monitors
+    @Param({"8"})
+    public int hotAccounts;
+
+    private SimpleEconomy economy;
+    private OfflinePlayer[] players;
+    private final ConcurrentHashMap<UUID, Double> baseline = new ConcurrentHashMap<>();
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int i;
+        private double amount = 0.0;
+
+        int next(int bound) {
+            i = (i + 1) % bound;
+            return i;
+        }
+
+        double nextAmount() {
+            amount = amount > 1.0e9 ? 0.0 : amount + 1234.56;
+            return amount;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        economy = new SimpleEconomy(BenchStubs.plugin(BenchStubs.server(new java.util.HashMap<>(), new OfflinePlayer[0], false), BenchStubs.tempDataFolder()));
+        players = new OfflinePlayer[accounts];
+        for (int i = 0; i < accounts; i++) {
+            UUID id = UUID.randomUUID();
+            players[i] = BenchStubs.player(id, "player" + i, true);
+            economy.createPlayerAccount(players[i]);
+            economy.depositPlayer(players[i], START_BALANCE);
+            baseline.put(id, START_BALANCE);
+        }
+    }
+
+    @Benchmark
+    public double getBalance(Cursor c) {
+        return economy.getBalance(players[c.next(accounts)]);
+    }
+
+    @Benchmark
+    public EconomyResponse depositPlayer(Cursor c) {
+        return economy.depositPlayer(players[c.next(accounts)], 1.0);
+    }
+
+    @Benchmark
+    public EconomyResponse withdrawPlayer(Cursor c) {
+        return economy.withdrawPlayer(players[c.next(accounts)], 1.0);
+    }
+
+    @Benchmark
+    public String format(Cursor c) {
+        return economy.format(c.nextAmount());
+    }
+
+    @Benchmark
+    public Double baselineMapGet(Cursor c) {
+        return baseline.get(players[c.next(accounts)].getUniqueId());
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(2)
+    public EconomyResponse contendedDeposit(Cursor c) {
+        return economy.depositPlayer(players[c.next(hotAccounts)], 1.0);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(2)
+    public EconomyResponse contendedWithdraw(Cursor c) {
+        return economy.withdrawPlayer(players[c.next(hotAccounts)], 1.0);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(4)
+    public double contendedGetBalance(Cursor c) {
+        return economy.getBalance(players[c.next(hotAccounts)]);
+    }
+}
@@ -0,0 +1,329 @@
+package com.example.vault.bench;
+
+import com.example.vault.Database;
+import com.example.vault.VaultSettings;
+import com.example.vault.commands.PayCommand;
+import com.example.vault.economy.SimpleEconomy;
+import com.example.vault.i18n.Messages;
+import com.example.vault.menu.ChargeRequestService;
+import com.example.vault.menu.PayMenuService;
+import com.example.vault.metrics.Metrics;
+import com.example.vault.metrics.OpStats;
+import com.example.vault.placeholder.VaultPlaceholderExpansion;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.AsyncPlayerChatEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Headless load test: drives pays, charge requests, joins, pay menu opens and
+ * placeholder reads through the real command, menu and economy classes, on
+ * stubbed Bukkit objects and an embedded H2 database (or a given JDBC URL).
+ *
+ * Each worker runs its share of the target rate on a fixed schedule and
+ * measures latency from the scheduled start, so one slow call also shows up
+ * in the calls that had to wait behind it.
+ *
+ * ./gradlew loadTest -PloadArgs="--players=5000 --rate=4000 --seconds=60"
+ */
+public final class LoadTest {
+    enum Op { PAY, CHARGE, JOIN, MENU, PLACEHOLDER }
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final Options options;
+    private final Map<String, Player> online = new ConcurrentHashMap<>();
+    private final Player[] players;
+    private final OpStats[] stats = new OpStats[Op.values().length];
+    private final LongAdder[] roundTrips = new LongAdder[Op.values().length];
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final int[] mixTable;
+
+    private Database database;
+    private SimpleEconomy economy;
+    private ChargeRequestService charges;
+    private PayMenuService menu;
+    private PayCommand payCommand;
+    private VaultPlaceholderExpansion placeholders;
+
+    private LoadTest(Options options) {
+        this.options = options;
+        this.players = new Player[options.players];
+        for (Op op : Op.values()) {
+            stats[op.ordinal()] = Metrics.op("load." + op.name().toLowerCase(Locale.ROOT));
+            roundTrips[op.ordinal()] = new LongAdder();
+        }
+        List<Integer> table = new ArrayList<>();
+        for (Op op : Op.values()) {
+            for (int i = 0; i < options.mix.getOrDefault(op, 0); i++) table.add(op.ordinal());
+        }
+        if (table.isEmpty()) throw new IllegalArgumentException("--mix selects no operations");
+        mixTable = table.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTest test = new LoadTest(Options.parse(args));
+        test.setUp();
+        try {
+            test.run();
+        } finally {
+            test.tearDown();
+        }
+    }
+
+    private void setUp() throws Exception {
+        for (int i = 0; i < players.length; i++) {
+            String name = "Player" + i;
+            players[i] = BenchStubs.player(UUID.randomUUID(), name, () -> online.containsKey(name));
+            // Half of each worker's slice (see Worker) starts online
+            if ((i / options.threads) % 2 == 0) online.put(name, players[i]);
+        }
+        Server server = BenchStubs.server(online, players, false);
+        Bukkit.setServer(server);
+        Plugin plugin = BenchStubs.plugin(server, BenchStubs.tempDataFolder());
+        FileConfiguration cfg = plugin.getConfig();
+        cfg.set("pay_limits.min", 1.0);
+        cfg.set("pay_limits.max", 100000.0);
+        VaultSettings.load(cfg, plugin.getLogger());
+        if (options.jdbcUrl != null) {
+            cfg.set("storage.use_mysql", true);
+            cfg.set("storage.mysql.jdbc_url", options.jdbcUrl);
+            cfg.set("storage.mysql.username", options.user);
+            cfg.set("storage.mysql.password", options.password);
+            cfg.set("storage.mysql.pool_size", options.poolSize);
+            database = new Database(plugin);
+            if (!database.isEnabled()) throw new IllegalStateException("Could not connect to " + options.jdbcUrl);
+            database.deleteAllBalances();
+            economy = new SimpleEconomy(plugin, database);
+        } else {
+            economy = new SimpleEconomy(plugin);
+        }
+        economy.load();
+        for (Player p : players) economy.depositPlayer(p, 1_000_000.0);
+
+        Messages messages = new Messages(plugin, "en");
+        charges = new ChargeRequestService(plugin, messages, database);
+        menu = new PayMenuService(plugin, economy, messages, charges);
+        payCommand = new PayCommand(plugin, economy, menu, messages);
+        placeholders = new VaultPlaceholderExpansion(plugin, economy);
+        System.out.println("Load test: " + options);
+    }
+
+    private void run() throws InterruptedException {
+        long startNanos = System.nanoTime() + 100_000_000L;
+        long measureFrom = startNanos + options.warmupSeconds * 1_000_000_000L;
+        long endNanos = measureFrom + options.seconds * 1_000_000_000L;
+        long intervalNanos = (long) (options.threads * 1_000_000_000.0 / options.rate);
+        List<Thread> workers = new ArrayList<>();
+        for (int w = 0; w < options.threads; w++) {
+            Worker worker = new Worker(w, startNanos + w * intervalNanos / options.threads, intervalNanos, measureFrom, endNanos);
+            Thread t = new Thread(worker, "LoadTest-" + w);
+            workers.add(t);
+            t.start();
+        }
+        // Plugin-side stats only cover the measured window
+        LockSupport.parkNanos(Math.max(0L, measureFrom - System.nanoTime()));
+        Metrics.resetAll();
+        for (Thread t : workers) t.join();
+        report();
+    }
+
+    private void tearDown() {
+        if (database != null) database.close();
+    }
+
+    private final class Worker implements Runnable {
+        private final List<Player> ownOnline = new ArrayList<>();
+        private final List<Player> ownOffline = new ArrayList<>();
+        private final long firstNanos;
+        private final long intervalNanos;
+        private final long measureFrom;
+        private final long endNanos;
+
+        Worker(int index, long firstNanos, long intervalNanos, long measureFrom, long endNanos) {
+            // Each worker owns a slice of the players, so no two workers drive the same sender
+            for (int i = index; i < players.length; i += options.threads) {
+                (online.containsKey(players[i].getName()) ? ownOnline : ownOffline).add(players[i]);
+            }
+            this.firstNanos = firstNanos;
+            this.intervalNanos = intervalNanos;
+            this.measureFrom = measureFrom;
+            this.endNanos = endNanos;
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom rnd = ThreadLocalRandom.current();
+            for (long n = 0; ; n++) {
+                long scheduled = firstNanos + n * intervalNanos;
+                if (scheduled >= endNanos) return;
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) LockSupport.parkNanos(wait);
+                if (ownOnline.isEmpty()) continue;
+                Op op = Op.values()[mixTable[rnd.nextInt(mixTable.length)]];
+                long trips = Metrics.threadRoundTrips();
+                boolean failed = false;
+                try {
+                    execute(op, rnd);
+                } catch (Throwable t) {
+                    failed = true;
+                    errors.computeIfAbsent(op + ": " + t, k -> new LongAdder()).increment();
+                }
+                long latency = System.nanoTime() - scheduled;
+                if (scheduled >= measureFrom) {
+                    stats[op.ordinal()].recordNanos(latency, failed);
+                    roundTrips[op.ordinal()].add(Metrics.threadRoundTrips() - trips);
+                }
+            }
+        }
+
+        private void execute(Op op, ThreadLocalRandom rnd) {
+            Player sender = ownOnline.get(rnd.nextInt(ownOnline.size()));
+            switch (op) {
+                case PAY: {
+                    Player target = pick(rnd, true);
+                    if (target == null) return;
+                    payCommand.onCommand(sender, null, "pay", new String[]{target.getName(), String.valueOf(1 + rnd.nextInt(50))});
+                    return;
+                }
+                case CHARGE: {
+                    Player target = pick(rnd, false);
+                    if (target == null) return;
+                    charges.startRequest(sender, target);
+                    charges.requestAmountAndCharge(sender);
+                    charges.onChat(new AsyncPlayerChatEvent(true, sender, String.valueOf(1 + rnd.nextInt(50)), Collections.<Player>emptySet()));
+                    return;
+                }
+                case JOIN: {
+                    if (ownOffline.isEmpty()) return;
+                    // One of this worker's players joins, another one leaves
+                    Player joining = ownOffline.remove(rnd.nextInt(ownOffline.size()));
+                    online.put(joining.getName(), joining);
+                    ownOnline.add(joining);
+                    economy.createPlayerAccount(joining);
+                    charges.onJoin(new PlayerJoinEvent(joining, null));
+                    Player leaving = ownOnline.remove(rnd.nextInt(ownOnline.size()));
+                    online.remove(leaving.getName());
+                    ownOffline.add(leaving);
+                    return;
+                }
+                case MENU:
+                    menu.openMainMenu(sender);
+                    return;
+                case PLACEHOLDER:
+                    placeholders.onRequest(sender, "balance_formatted");
+                    return;
+                default:
+                    throw new IllegalStateException(op.name());
+            }
+        }
+
+        private Player pick(ThreadLocalRandom rnd, boolean wantOnline) {
+            for (int tries = 0; tries < 16; tries++) {
+                Player p = players[rnd.nextInt(players.length)];
+                if (online.containsKey(p.getName()) == wantOnline) return p;
+            }
+            return null;
+        }
+    }
+
+    private void report() {
+        long[] q = new long[QUANTILES.length];
+        long total = 0;
+        System.out.println();
+        System.out.println(String.format(Locale.ROOT, "%-12s %9s %9s %7s %10s %10s %10s %10s %10s %8s",
+                "op", "count", "ops/s", "errors", "p50", "p90", "p99", "p99.9", "max", "db/op"));
+        for (Op op : Op.values()) {
+            OpStats s = stats[op.ordinal()];
+            long count = s.quantiles(QUANTILES, q);
+            if (count == 0) continue;
+            total += count;
+            System.out.println(String.format(Locale.ROOT, "%-12s %9d %9.1f %7d %10s %10s %10s %10s %10s %8.2f",
+                    op.name().toLowerCase(Locale.ROOT), count, count / (double) options.seconds, s.getFailures(),
+                    Metrics.formatNanos(q[0]), Metrics.formatNanos(q[1]), Metrics.formatNanos(q[2]), Metrics.formatNanos(q[3]),
+                    Metrics.formatNanos(s.snapshot().max()), roundTrips[op.ordinal()].sum() / (double) count));
+        }
+        System.out.println(String.format(Locale.ROOT, "total %d ops, %.1f ops/s (target %d)", total, total / (double) options.seconds, options.rate));
+        if (!errors.isEmpty()) {
+            System.out.println();
+            System.out.println("Errors:");
+            for (Map.Entry<String, LongAdder> e : errors.entrySet()) {
+                System.out.println("  " + e.getValue().sum() + "x " + e.getKey());
+            }
+        }
+        System.out.println();
+        System.out.println("Plugin operation stats:");
+        for (String line : Metrics.report()) {
+            if (!line.startsWith("load.")) System.out.println("  " + line);
+        }
+    }
+
+    static final class Options {
+        int players = 2000;
+        int rate = 2000;
+        int seconds = 30;
+        int warmupSeconds = 5;
+        int threads = 4;
+        int poolSize = 10;
+        String jdbcUrl = "jdbc:h2:mem:vault_load;MODE=MySQL;DB_CLOSE_DELAY=-1";
+        String user = "root";
+        String password = "";
+        final Map<Op, Integer> mix = new HashMap<>();
+
+        static Options parse(String[] args) {
+            Options o = new Options();
+            o.parseMix("pay=40,charge=15,join=10,menu=15,placeholder=20");
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (!arg.startsWith("--") || eq < 0) throw new IllegalArgumentException("Expected --key=value, got " + arg);
+                String key = arg.substring(2, eq);
+                String value = arg.substring(eq + 1);
+                switch (key) {
+                    case "players": o.players = Integer.parseInt(value); break;
+                    case "rate": o.rate = Integer.parseInt(value); break;
+                    case "seconds": o.seconds = Integer.parseInt(value); break;
+                    case "warmup": o.warmupSeconds = Integer.parseInt(value); break;
+                    case "threads": o.threads = Integer.parseInt(value); break;
+                    case "pool": o.poolSize = Integer.parseInt(value); break;
+                    // --db=none keeps balances in memory only
+                    case "db": o.jdbcUrl = "none".equalsIgnoreCase(value) ? null : value; break;
+                    case "user": o.user = value; break;
+                    case "password": o.password = value; break;
+                    case "mix": o.mix.clear(); o.parseMix(value); break;
+                    default: throw new IllegalArgumentException("Unknown option --" + key);
+                }
+            }
+            if (o.players < 2 * o.threads) throw new IllegalArgumentException("--players must be at least twice --threads");
+            if (o.rate <= 0 || o.seconds <= 0 || o.threads <= 0) throw new IllegalArgumentException("--rate, --seconds and --threads must be positive");
+            return o;
+        }
+
+        private void parseMix(String spec) {
+            for (String part : spec.split(",")) {
+                String[] kv = part.trim().split("=");
+                mix.put(Op.valueOf(kv[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(kv[1].trim()));
+            }
+        }
+
+        @Override
+        public String toString() {
+            return players + " players, " + rate + " ops/s for " + seconds + "s (+" + warmupSeconds + "s warmup) on "
+                    + threads + " threads, mix " + mix + ", db " + (jdbcUrl != null ? jdbcUrl : "none");
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.vault.bench;
+
+import com.example.vault.i18n.Messages;
+import org.bukkit.OfflinePlayer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Messages.formatChat as used for every payment notification.
+ * baselineReplace does only the placeholder substitution on a fixed string.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessagesBenchmark {
+    private Messages messages;
+    private Map<String, String> placeholders;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        messages = new Messages(BenchStubs.plugin(BenchStubs.server(new HashMap<>(), new OfflinePlayer[0], false), BenchStubs.tempDataFolder()), "en");
+        placeholders = new HashMap<>();
+        placeholders.put("player", "Notch");
+        placeholders.put("amount", "1,234.56");
+    }
+
+    @Benchmark
+    public String formatChat() {
+        return messages.formatChat("pay.sent_ok", placeholders);
+    }
+
+    @Benchmark
+    public String chat() {
+        return messages.chat("pay.not_enough_money");
+    }
+
+    @Benchmark
+    public String baselineReplace() {
+        return "You paid %amount% to %player%".replace("%amount%", "1,234.56").replace("%player%", "Notch");
+    }
+}
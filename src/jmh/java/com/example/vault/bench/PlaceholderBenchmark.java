@@ -0,0 +1,62 @@
+package com.example.vault.bench;
+
+import com.example.vault.economy.SimpleEconomy;
+import com.example.vault.placeholder.VaultPlaceholderExpansion;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * %vault_balance...% placeholders as scoreboard plugins request them,
+ * for the viewer's own balance and for another player by name.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlaceholderBenchmark {
+    @Param({"1000"})
+    public int offlinePlayers;
+
+    private VaultPlaceholderExpansion expansion;
+    private Player viewer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Map<String, Player> online = new HashMap<>();
+        viewer = BenchStubs.player(UUID.randomUUID(), "Viewer", true);
+        online.put("Viewer", viewer);
+        OfflinePlayer[] offline = new OfflinePlayer[offlinePlayers];
+        for (int i = 0; i < offlinePlayers; i++) {
+            offline[i] = BenchStubs.player(UUID.randomUUID(), "Offline" + i, false);
+        }
+        Plugin plugin = BenchStubs.plugin(BenchStubs.server(online, offline, false), BenchStubs.tempDataFolder());
+        SimpleEconomy economy = new SimpleEconomy(plugin);
+        economy.depositPlayer(viewer, 1234.56);
+        for (OfflinePlayer p : offline) economy.depositPlayer(p, 10.0);
+        expansion = new VaultPlaceholderExpansion(plugin, economy);
+    }
+
+    @Benchmark
+    public String balance() {
+        return expansion.onRequest(viewer, "balance");
+    }
+
+    @Benchmark
+    public String balanceFormatted() {
+        return expansion.onRequest(viewer, "balance_formatted");
+    }
+
+    @Benchmark
+    public String balanceOfOtherPlayer() {
+        return expansion.onRequest(viewer, "balance_formatted_offline" + (offlinePlayers / 2));
+    }
+}
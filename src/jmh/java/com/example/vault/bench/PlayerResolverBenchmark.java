@@ -0,0 +1,58 @@
+package com.example.vault.bench;
+
+import com.example.vault.util.PlayerResolver;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Name lookups against servers with different offline-player counts:
+ * an online player, the last offline entry (full scan) and an unknown
+ * name that ends in the offline-UUID fallback.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerResolverBenchmark {
+    @Param({"100", "10000", "100000"})
+    public int offlinePlayers;
+
+    private Plugin plugin;
+    private String lastOfflineName;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Map<String, Player> online = new HashMap<>();
+        online.put("OnlineGuy", BenchStubs.player(UUID.randomUUID(), "OnlineGuy", true));
+        OfflinePlayer[] offline = new OfflinePlayer[offlinePlayers];
+        for (int i = 0; i < offlinePlayers; i++) {
+            offline[i] = BenchStubs.player(UUID.randomUUID(), "Offline" + i, false);
+        }
+        lastOfflineName = "offline" + (offlinePlayers - 1);
+        plugin = BenchStubs.plugin(BenchStubs.server(online, offline, false), BenchStubs.tempDataFolder());
+    }
+
+    @Benchmark
+    public OfflinePlayer resolveOnline() {
+        return PlayerResolver.resolveByName(plugin, "OnlineGuy");
+    }
+
+    @Benchmark
+    public OfflinePlayer resolveLastOffline() {
+        return PlayerResolver.resolveByName(plugin, lastOfflineName);
+    }
+
+    @Benchmark
+    public OfflinePlayer resolveUnknownWithFallback() {
+        return PlayerResolver.resolveByNameWithOfflineFallback(plugin, "NeverJoined");
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.vault.bench;
+
+import com.example.vault.Database;
+import com.example.vault.economy.SimpleEconomy;
+import com.example.vault.transfer.ExportJob;
+import com.example.vault.transfer.ImportJob;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.plugin.Plugin;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole-file /vault import and /vault export runs against an embedded H2
+ * database in MySQL mode. Each invocation moves every row once; divide
+ * rows by the reported time for rows per second. Needs a few GB of heap
+ * for the 1M row case (the import also fills the balance cache).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TransferBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Source {
+        @Param({"1000000"})
+        public int rows;
+
+        @Param({"1000"})
+        public int batchSize;
+
+        File csv;
+        Plugin plugin;
+        Database database;
+        SimpleEconomy economy;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            plugin = plugin("transfer", batchSize);
+            database = new Database(plugin);
+            if (!database.isEnabled()) throw new IllegalStateException("H2 database did not start");
+            csv = new File(plugin.getDataFolder(), "balances.csv");
+            Random random = new Random(42);
+            try (BufferedWriter out = Files.newBufferedWriter(csv.toPath(), StandardCharsets.UTF_8)) {
+                out.write("uuid,balance\n");
+                for (int i = 0; i < rows; i++) {
+                    out.write(new UUID(random.nextLong(), random.nextLong()).toString());
+                    out.write(',');
+                    out.write(Integer.toString(random.nextInt(1_000_000)));
+                    out.write(".25\n");
+                }
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void emptyTable() throws Exception {
+            database.deleteAllBalances();
+            economy = new SimpleEconomy(plugin, database);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() {
+            database.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Filled {
+        @Param({"1000000"})
+        public int rows;
+
+        @Param({"1000"})
+        public int batchSize;
+
+        Plugin plugin;
+        Database database;
+        SimpleEconomy economy;
+        File target;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            plugin = plugin("transfer_export", batchSize);
+            database = new Database(plugin);
+            if (!database.isEnabled()) throw new IllegalStateException("H2 database did not start");
+            database.deleteAllBalances();
+            economy = new SimpleEconomy(plugin, database);
+            Random random = new Random(42);
+            List<UUID> ids = new ArrayList<>(batchSize);
+            double[] amounts = new double[batchSize];
+            for (int i = 0; i < rows; i++) {
+                amounts[ids.size()] = random.nextInt(1_000_000) + 0.25;
+                ids.add(new UUID(random.nextLong(), random.nextLong()));
+                if (ids.size() == batchSize || i == rows - 1) {
+                    database.applyBalanceBatch(ids, amounts, true);
+                    ids.clear();
+                }
+            }
+            target = new File(plugin.getDataFolder(), "export.csv");
+        }
+
+        @TearDown(Level.Trial)
+        public void close() {
+            database.close();
+        }
+    }
+
+    @Benchmark
+    public int importCsv(Source s) {
+        new ImportJob(s.plugin, s.economy, ImportJob.Format.CSV, s.csv, true, line -> { }).run();
+        return s.economy.getAccountCount();
+    }
+
+    @Benchmark
+    public long exportCsv(Filled s) throws IOException {
+        new ExportJob(s.plugin, s.economy, ExportJob.Format.CSV, s.target, true, line -> { }).run();
+        return Files.size(s.target.toPath());
+    }
+
+    private static Plugin plugin(String dbName, int batchSize) {
+        Plugin plugin = BenchStubs.plugin(BenchStubs.server(new java.util.HashMap<>(), new OfflinePlayer[0], false), BenchStubs.tempDataFolder());
+        FileConfiguration cfg = plugin.getConfig();
+        cfg.set("storage.use_mysql", true);
+        cfg.set("storage.mysql.jdbc_url", "jdbc:h2:mem:" + dbName + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        cfg.set("storage.mysql.username", "root");
+        cfg.set("storage.mysql.password", "");
+        cfg.set("transfer.batch_size", batchSize);
+        return plugin;
+    }
+}
@@ -1,5 +1,11 @@
 package com.example.vault;
 
+import com.example.vault.history.HistoryEntry;
+import com.example.vault.metrics.MainThreadGuard;
+import com.example.vault.metrics.Metrics;
+import com.example.vault.metrics.OpStats;
+import com.example.vault.storage.CircuitBreaker;
+import com.example.vault.storage.PoolMonitor;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import org.bukkit.plugin.Plugin;
@@ -10,58 +16,490 @@ import java.util.logging.Level;
 
 public class Database {
     private final Plugin plugin;
-    private HikariDataSource ds;
+    private volatile HikariDataSource ds;
     private final boolean enabled;
+    private final boolean syncEnabled;
+    private final String serverId;
+    private final CircuitBreaker breaker;
+    private volatile HikariDataSource replicaDs; // optional read replica
+    private final long maxReplicaLagMs;
+    private volatile long replicaLagMs = -1L; // -1 = unknown / unreachable
+    // Lag check: beats written to the primary that the replica did not show yet, oldest first
+    private final ArrayDeque<Long> heartbeats = new ArrayDeque<>();
+    private boolean heartbeatSeen; // guarded by heartbeats; the replica showed a beat of this run
+    private final MainThreadGuard mainThreadGuard;
+    private final PoolMonitor poolMonitor;
+
+    /**
+     * Where a read may run. REPLICA_OK reads tolerate some staleness and go to
+     * the replica while it is healthy; everything else (writes and reads that
+     * must see this server's own writes) stays on the primary.
+     */
+    public enum ReadMode { PRIMARY, REPLICA_OK }
+
+    // Unit of work run on a pooled connection
+    @FunctionalInterface
+    private interface SqlWork<T> {
+        T run(Connection conn) throws SQLException;
+    }
 
     public Database(Plugin plugin) {
+        this(plugin, plugin.getConfig().getBoolean("storage.use_mysql", false));
+    }
+
+    /** use = true connects with the storage.mysql settings even while storage.use_mysql is off (migration target). */
+    public Database(Plugin plugin, boolean use) {
+        this(plugin, use, true);
+    }
+
+    /**
+     * With connect = false only the settings are read and the caller runs
+     * {@link #openPool}, {@link #checkSchema} and {@link #openReplica} itself
+     * (startup does, off the server thread, timing each step).
+     */
+    Database(Plugin plugin, boolean use, boolean connect) {
         this.plugin = plugin;
-        boolean use = plugin.getConfig().getBoolean("storage.use_mysql", false);
         this.enabled = use;
-        if (use) {
+        this.syncEnabled = plugin.getConfig().getBoolean("storage.sync.enabled", true);
+        String sid = plugin.getConfig().getString("storage.sync.server_id", "");
+        this.serverId = (sid == null || sid.trim().isEmpty()) ? UUID.randomUUID().toString() : sid.trim();
+        this.breaker = new CircuitBreaker(
+                plugin.getConfig().getInt("storage.circuit_breaker.failure_threshold", 3),
+                plugin.getConfig().getLong("storage.circuit_breaker.open_seconds", 5L) * 1000L,
+                plugin.getConfig().getLong("storage.circuit_breaker.max_open_seconds", 60L) * 1000L);
+        this.mainThreadGuard = new MainThreadGuard(plugin,
+                MainThreadGuard.Mode.parse(plugin.getConfig().getString("storage.main_thread_guard", "warn")));
+        this.maxReplicaLagMs = Math.max(0L, plugin.getConfig().getLong("storage.mysql.replica.max_lag_seconds", 5L)) * 1000L;
+        this.poolMonitor = new PoolMonitor(plugin.getLogger());
+        configurePoolMonitor();
+        if (connect) {
+            openPool();
+            checkSchema();
+            openReplica();
+        }
+    }
+
+    /** Builds the primary pool and waits for its first connection. MySQL stays off if that fails. */
+    void openPool() {
+        if (!enabled) return;
+        try {
+            int size = poolMonitor.clamp(Math.max(1, plugin.getConfig().getInt("storage.mysql.pool_size", 10)));
+            HikariDataSource pool = createPool("storage.mysql", size, poolMonitor.isAdaptive() ? poolMonitor.getMinSize() : size);
             try {
-                HikariConfig cfg = new HikariConfig();
-                String host = plugin.getConfig().getString("storage.mysql.host", "localhost");
-                int port = plugin.getConfig().getInt("storage.mysql.port", 3306);
-                String db = plugin.getConfig().getString("storage.mysql.database", "vault");
-                String user = plugin.getConfig().getString("storage.mysql.username", "root");
-                String pass = plugin.getConfig().getString("storage.mysql.password", "");
-                int pool = plugin.getConfig().getInt("storage.mysql.pool_size", 10);
-                String jdbc = "jdbc:mysql://" + host + ":" + port + "/" + db + "?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC";
-                cfg.setJdbcUrl(jdbc);
-                cfg.setUsername(user);
-                cfg.setPassword(pass);
-                cfg.setMaximumPoolSize(pool);
-                cfg.addDataSourceProperty("cachePrepStmts", "true");
-                cfg.addDataSourceProperty("prepStmtCacheSize", "250");
-                cfg.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
-                ds = new HikariDataSource(cfg);
-                ensureSchema();
-            } catch (Exception ex) {
-                plugin.getLogger().log(Level.SEVERE, "Failed to initialize MySQL: " + ex.getMessage(), ex);
-                ds = null;
+                // Fail here, not on the first query, if the server is unreachable
+                pool.getConnection().close();
+            } catch (SQLException ex) {
+                pool.close();
+                throw ex;
             }
+            ds = pool;
+        } catch (Exception ex) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to initialize MySQL: " + ex.getMessage(), ex);
+            ds = null;
+        }
+    }
+
+    void checkSchema() {
+        if (ds == null) return;
+        try {
+            ensureSchema();
+        } catch (Exception ex) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to initialize MySQL: " + ex.getMessage(), ex);
+            ds.close();
+            ds = null;
+        }
+    }
+
+    void openReplica() {
+        if (ds == null || !plugin.getConfig().getBoolean("storage.mysql.replica.enabled", false)) return;
+        try {
+            int size = Math.max(1, plugin.getConfig().getInt("storage.mysql.replica.pool_size", 4));
+            synchronized (heartbeats) {
+                heartbeats.clear();
+                heartbeatSeen = false;
+            }
+            replicaDs = createPool("storage.mysql.replica", size, size);
+            refreshReplicaLag();
+        } catch (Exception ex) {
+            plugin.getLogger().log(Level.WARNING, "Failed to initialize MySQL read replica, reads stay on the primary: " + ex.getMessage(), ex);
+            replicaDs = null;
+        }
+    }
+
+    // Builds a pool from a config section; replica settings fall back to the primary's
+    private HikariDataSource createPool(String path, int poolSize, int minIdle) {
+        org.bukkit.configuration.file.FileConfiguration config = plugin.getConfig();
+        HikariConfig cfg = new HikariConfig();
+        cfg.setJdbcUrl(jdbcUrl(path));
+        cfg.setUsername(config.getString(path + ".username", config.getString("storage.mysql.username", "root")));
+        cfg.setPassword(config.getString(path + ".password", config.getString("storage.mysql.password", "")));
+        cfg.setMaximumPoolSize(poolSize);
+        cfg.setMinimumIdle(minIdle);
+        // Hikari waits 30s by default; keep callers from hanging that long during an outage
+        cfg.setConnectionTimeout(connectionTimeoutMs());
+        cfg.addDataSourceProperty("cachePrepStmts", "true");
+        cfg.addDataSourceProperty("prepStmtCacheSize", "250");
+        cfg.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        // Lets Connector/J send a JDBC batch as one statement instead of one round trip per row
+        cfg.addDataSourceProperty("rewriteBatchedStatements", "true");
+        return new HikariDataSource(cfg);
+    }
+
+    private String jdbcUrl(String path) {
+        org.bukkit.configuration.file.FileConfiguration config = plugin.getConfig();
+        String jdbc = config.getString(path + ".jdbc_url", "");
+        if (jdbc != null && !jdbc.trim().isEmpty()) return jdbc.trim();
+        String host = config.getString(path + ".host", config.getString("storage.mysql.host", "localhost"));
+        int port = config.getInt(path + ".port", config.getInt("storage.mysql.port", 3306));
+        String db = config.getString(path + ".database", config.getString("storage.mysql.database", "vault"));
+        return "jdbc:mysql://" + host + ":" + port + "/" + db + "?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC";
+    }
+
+    private long connectionTimeoutMs() {
+        return Math.max(250L, plugin.getConfig().getLong("storage.mysql.connection_timeout_ms", 3000L));
+    }
+
+    /** True while the primary pool still points at the server storage.mysql names. */
+    public boolean matchesConfiguredServer() {
+        HikariDataSource d = ds;
+        return d != null && jdbcUrl("storage.mysql").equals(d.getJdbcUrl());
+    }
+
+    /**
+     * Applies the reloaded storage.mysql settings to the open pools in place:
+     * pool size, connection timeout and credentials. Connections made with old
+     * credentials are retired as they are returned. The replica pool is rebuilt
+     * if it was switched on or off or moved (reads use the primary meanwhile).
+     * Returns false if the primary moved to another server; that needs a new
+     * Database and a copy of the ledger.
+     */
+    public boolean reconfigure() {
+        HikariDataSource d = ds;
+        if (d == null || !matchesConfiguredServer()) return false;
+        org.bukkit.configuration.file.FileConfiguration config = plugin.getConfig();
+        configurePoolMonitor();
+        if (poolMonitor.isAdaptive()) {
+            // pool_size is only the starting point; keep the learned size within the new bounds
+            resize(d, "storage.mysql", poolMonitor.clamp(d.getMaximumPoolSize()), poolMonitor.getMinSize());
+        } else {
+            int size = Math.max(1, config.getInt("storage.mysql.pool_size", 10));
+            resize(d, "storage.mysql", size, size);
+        }
+        HikariDataSource r = replicaDs;
+        boolean wantReplica = config.getBoolean("storage.mysql.replica.enabled", false);
+        if (r != null && wantReplica && jdbcUrl("storage.mysql.replica").equals(r.getJdbcUrl())) {
+            int size = Math.max(1, config.getInt("storage.mysql.replica.pool_size", 4));
+            resize(r, "storage.mysql.replica", size, size);
+        } else if (r != null || wantReplica) {
+            replicaDs = null;
+            replicaLagMs = -1L;
+            if (r != null) r.close();
+            openReplica();
+        }
+        return true;
+    }
+
+    private void resize(HikariDataSource pool, String path, int poolSize, int minIdle) {
+        org.bukkit.configuration.file.FileConfiguration config = plugin.getConfig();
+        String user = config.getString(path + ".username", config.getString("storage.mysql.username", "root"));
+        String pass = config.getString(path + ".password", config.getString("storage.mysql.password", ""));
+        com.zaxxer.hikari.HikariConfigMXBean bean = pool.getHikariConfigMXBean();
+        bean.setConnectionTimeout(connectionTimeoutMs());
+        // Hikari keeps minimumIdle at its old value unless it is set too
+        bean.setMaximumPoolSize(poolSize);
+        bean.setMinimumIdle(minIdle);
+        if (!java.util.Objects.equals(user, pool.getUsername()) || !java.util.Objects.equals(pass, pool.getPassword())) {
+            bean.setUsername(user);
+            bean.setPassword(pass);
+            pool.getHikariPoolMXBean().softEvictConnections();
+        }
+    }
+
+    private void configurePoolMonitor() {
+        org.bukkit.configuration.file.FileConfiguration config = plugin.getConfig();
+        poolMonitor.configure(
+                config.getInt("storage.mysql.pool.min_size", 2),
+                config.getInt("storage.mysql.pool.max_size", 0),
+                config.getLong("storage.mysql.pool.wait_target_ms", 5L),
+                config.getLong("storage.mysql.pool.leak_threshold_seconds", 30L) * 1000L);
+    }
+
+    /** Ends a pool monitoring period and applies the size it picks. Called periodically off the server thread. */
+    public void checkPool() {
+        HikariDataSource d = ds;
+        if (d == null) return;
+        int size = d.getMaximumPoolSize();
+        int target = poolMonitor.check(size, d.getHikariPoolMXBean().getThreadsAwaitingConnection());
+        if (target != size) d.getHikariConfigMXBean().setMaximumPoolSize(target);
+    }
+
+    /** Pool lines for /vault stats; empty when MySQL is not in use. */
+    public List<String> poolReport() {
+        HikariDataSource d = ds;
+        if (d == null) return java.util.Collections.emptyList();
+        com.zaxxer.hikari.HikariPoolMXBean stats = d.getHikariPoolMXBean();
+        List<String> lines = new ArrayList<>();
+        lines.add("Primary: " + stats.getActiveConnections() + " active, " + stats.getIdleConnections() + " idle, "
+                + stats.getTotalConnections() + " of max " + d.getMaximumPoolSize() + ", "
+                + stats.getThreadsAwaitingConnection() + " waiting");
+        lines.addAll(poolMonitor.report());
+        HikariDataSource r = replicaDs;
+        if (r != null) {
+            com.zaxxer.hikari.HikariPoolMXBean rs = r.getHikariPoolMXBean();
+            lines.add("Replica: " + rs.getActiveConnections() + " active, " + rs.getIdleConnections() + " idle, "
+                    + rs.getTotalConnections() + " of max " + r.getMaximumPoolSize() + ", lag " + replicaLagMs + "ms");
         }
+        return lines;
     }
 
     public boolean isEnabled() {
         return enabled && ds != null;
     }
 
+    public boolean isSyncEnabled() {
+        return syncEnabled;
+    }
+
+    public String getServerId() {
+        return serverId;
+    }
+
+    public CircuitBreaker.State getBreakerState() {
+        return breaker.getState();
+    }
+
+    /** Live pool counters of the primary, or null when MySQL is not in use. */
+    public com.zaxxer.hikari.HikariPoolMXBean getPoolStats() {
+        HikariDataSource d = ds;
+        return d != null ? d.getHikariPoolMXBean() : null;
+    }
+
+    /** Live pool counters of the read replica, or null without one. */
+    public com.zaxxer.hikari.HikariPoolMXBean getReplicaPoolStats() {
+        HikariDataSource d = replicaDs;
+        return d != null ? d.getHikariPoolMXBean() : null;
+    }
+
+    public int getPoolMaxSize() {
+        HikariDataSource d = ds;
+        return d != null ? d.getMaximumPoolSize() : 0;
+    }
+
+    public MainThreadGuard getMainThreadGuard() {
+        return mainThreadGuard;
+    }
+
+    public boolean hasReplica() {
+        return replicaDs != null;
+    }
+
+    /** Last measured replica lag in ms, or -1 if unknown or unreachable. */
+    public long getReplicaLagMs() {
+        return replicaLagMs;
+    }
+
+    private boolean replicaUsable() {
+        long lag = replicaLagMs;
+        return replicaDs != null && lag >= 0 && lag <= maxReplicaLagMs;
+    }
+
+    /**
+     * Measures how far the replica is behind with a heartbeat row this server
+     * rewrites on the primary at each check; the change log is not needed.
+     * The lag is the age of the oldest beat the replica does not show yet, so
+     * it is accurate to about one check interval. It stays unknown (reads use
+     * the primary) until the replica shows a beat written since it was opened.
+     * Called periodically from an async task.
+     */
+    public void refreshReplicaLag() {
+        measureReplicaLag(true);
+    }
+
+    /**
+     * Startup: waits up to max_lag_seconds for the replica to show the first
+     * beat, so the ledger load can use a replica that keeps up.
+     */
+    void awaitReplicaLag() {
+        long deadline = System.currentTimeMillis() + maxReplicaLagMs;
+        try {
+            while (replicaDs != null && replicaLagMs < 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50L);
+                measureReplicaLag(false);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void measureReplicaLag(boolean beat) {
+        if (replicaDs == null || ds == null) return;
+        try {
+            long seen;
+            try (Connection conn = replicaDs.getConnection(); PreparedStatement ps = conn.prepareStatement("SELECT beat FROM vault_replica_heartbeat WHERE server_id = ?")) {
+                ps.setString(1, serverId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    seen = rs.next() ? rs.getLong(1) : 0L;
+                }
+            }
+            synchronized (heartbeats) {
+                long now = System.currentTimeMillis();
+                while (!heartbeats.isEmpty() && heartbeats.peekFirst() <= seen) {
+                    heartbeats.pollFirst();
+                    heartbeatSeen = true;
+                }
+                if (!heartbeatSeen) replicaLagMs = -1L;
+                else replicaLagMs = heartbeats.isEmpty() ? 0L : now - heartbeats.peekFirst();
+                if (!beat) return;
+                long next = heartbeats.isEmpty() ? now : Math.max(now, heartbeats.peekLast() + 1);
+                boolean first = heartbeats.isEmpty() && !heartbeatSeen;
+                withConnection("replica_heartbeat", conn -> {
+                    try (PreparedStatement ps = conn.prepareStatement("INSERT INTO vault_replica_heartbeat (server_id, beat) VALUES (?, ?) ON DUPLICATE KEY UPDATE beat = ?")) {
+                        ps.setString(1, serverId);
+                        ps.setLong(2, next);
+                        ps.setLong(3, next);
+                        ps.executeUpdate();
+                    }
+                    if (first) {
+                        // Rows of servers that restarted under another id
+                        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM vault_replica_heartbeat WHERE beat < ?")) {
+                            ps.setLong(1, now - 24L * 60L * 60L * 1000L);
+                            ps.executeUpdate();
+                        }
+                    }
+                    return null;
+                });
+                heartbeats.addLast(next);
+            }
+        } catch (SQLException ex) {
+            if (replicaLagMs != -1L) {
+                plugin.getLogger().warning("Read replica unavailable, routing reads to the primary: " + ex.getMessage());
+            }
+            replicaLagMs = -1L;
+        }
+    }
+
+    /**
+     * Runs a read on the replica when the mode allows it and the replica is
+     * within the lag limit; falls back to the primary otherwise or on error.
+     */
+    private <T> T withReadConnection(String op, ReadMode mode, SqlWork<T> work) throws SQLException {
+        if (mode == ReadMode.REPLICA_OK && replicaUsable()) {
+            OpStats stats = Metrics.op("db.replica." + op);
+            String blockingSite = mainThreadGuard.enter("replica." + op);
+            long start = System.nanoTime();
+            Metrics.countRoundTrip();
+            try (Connection conn = replicaDs.getConnection()) {
+                T result = work.run(conn);
+                stats.record(start);
+                return result;
+            } catch (SQLException ex) {
+                stats.recordFailure(start);
+                plugin.getLogger().warning("Replica read failed, retrying on the primary: " + ex.getMessage());
+                replicaLagMs = -1L;
+            } finally {
+                if (blockingSite != null) mainThreadGuard.record(blockingSite, start);
+            }
+        }
+        return withConnection(op, work);
+    }
+
+    /**
+     * Runs work on a pooled connection. Fails fast while the circuit breaker is
+     * open; connection-level failures count towards opening it.
+     */
+    private <T> T withConnection(String op, SqlWork<T> work) throws SQLException {
+        OpStats stats = Metrics.op("db." + op);
+        String blockingSite = mainThreadGuard.enter(op);
+        long start = System.nanoTime();
+        if (!breaker.allowRequest()) {
+            stats.recordFailure(start);
+            throw new SQLTransientConnectionException("Database unavailable (circuit open)", "08000");
+        }
+        Metrics.countRoundTrip();
+        long checkout = 0L;
+        long waitStart = System.nanoTime();
+        try (Connection conn = ds.getConnection()) {
+            checkout = poolMonitor.acquired(op, waitStart);
+            T result;
+            try {
+                result = work.run(conn);
+            } finally {
+                // Before close() hands the connection to the next caller
+                poolMonitor.released(checkout);
+            }
+            breaker.recordSuccess();
+            stats.record(start);
+            return result;
+        } catch (SQLException ex) {
+            if (checkout == 0L) poolMonitor.acquireFailed(waitStart);
+            stats.recordFailure(start);
+            if (isConnectionFailure(ex)) {
+                breaker.recordFailure();
+            } else {
+                // The server answered (constraint violation, bad SQL...): it is reachable
+                breaker.recordSuccess();
+            }
+            throw ex;
+        } finally {
+            if (blockingSite != null) mainThreadGuard.record(blockingSite, start);
+        }
+    }
+
+    private static boolean isConnectionFailure(SQLException ex) {
+        if (ex instanceof SQLTransientConnectionException
+                || ex instanceof SQLNonTransientConnectionException
+                || ex instanceof SQLRecoverableException
+                || ex instanceof SQLTimeoutException) {
+            return true;
+        }
+        String state = ex.getSQLState();
+        return state == null || state.startsWith("08");
+    }
+
     private void ensureSchema() throws SQLException {
         try (Connection conn = ds.getConnection()) {
             try (Statement st = conn.createStatement()) {
-                // balances table
-                st.executeUpdate("CREATE TABLE IF NOT EXISTS vault_balances (uuid VARCHAR(36) PRIMARY KEY, balance DOUBLE NOT NULL)");
+                // balances table; version is bumped on every write (optimistic concurrency between servers)
+                st.executeUpdate("CREATE TABLE IF NOT EXISTS vault_balances (uuid VARCHAR(36) PRIMARY KEY, balance DOUBLE NOT NULL, version BIGINT NOT NULL DEFAULT 0)");
+                if (!hasColumn(conn, "vault_balances", "version")) {
+                    st.executeUpdate("ALTER TABLE vault_balances ADD COLUMN version BIGINT NOT NULL DEFAULT 0");
+                }
+                // change log tailed by every server sharing the tables
+                st.executeUpdate("CREATE TABLE IF NOT EXISTS vault_balance_changes (id BIGINT AUTO_INCREMENT PRIMARY KEY, uuid VARCHAR(36) NOT NULL, balance DOUBLE NOT NULL, version BIGINT NOT NULL, server_id VARCHAR(64) NOT NULL, changed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+                // ids of spooled changes already replayed, so a replay never applies one twice;
+                // kept until the spool they came from no longer holds them
+                st.executeUpdate("CREATE TABLE IF NOT EXISTS vault_applied_tx (tx_id VARCHAR(36) PRIMARY KEY, applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, spool_id VARCHAR(36) NOT NULL DEFAULT '')");
+                if (!hasColumn(conn, "vault_applied_tx", "spool_id")) {
+                    st.executeUpdate("ALTER TABLE vault_applied_tx ADD COLUMN spool_id VARCHAR(36) NOT NULL DEFAULT ''");
+                }
+                // one row per server, rewritten at each replica lag check
+                st.executeUpdate("CREATE TABLE IF NOT EXISTS vault_replica_heartbeat (server_id VARCHAR(64) PRIMARY KEY, beat BIGINT NOT NULL)");
+                // last run of each economy job, claimed by the one server that runs it
+                st.executeUpdate("CREATE TABLE IF NOT EXISTS vault_job_runs (rule VARCHAR(64) PRIMARY KEY, last_run BIGINT NOT NULL, server_id VARCHAR(64) NOT NULL)");
                 // charge requests: id auto, recipient lower-case name, sender, amount, created_at
                 st.executeUpdate("CREATE TABLE IF NOT EXISTS vault_charge_requests (id BIGINT AUTO_INCREMENT PRIMARY KEY, recipient VARCHAR(64) NOT NULL, sender VARCHAR(64) NOT NULL, amount DOUBLE NOT NULL, created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+                // transaction history; created_at is part of the key so the table can be range-partitioned by time
+                st.executeUpdate("CREATE TABLE IF NOT EXISTS vault_history (id BIGINT AUTO_INCREMENT, uuid VARCHAR(36) NOT NULL, created_at BIGINT NOT NULL, type VARCHAR(16) NOT NULL, counterparty VARCHAR(36) NULL, amount DOUBLE NOT NULL, balance DOUBLE NOT NULL, source VARCHAR(64) NULL, PRIMARY KEY (id, created_at), INDEX idx_vault_history_player (uuid, created_at, id), INDEX idx_vault_history_time (created_at))");
             }
         }
     }
 
+    private boolean hasColumn(Connection conn, String table, String column) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        for (String t : new String[]{table, table.toUpperCase(Locale.ROOT)}) {
+            for (String c : new String[]{column, column.toUpperCase(Locale.ROOT)}) {
+                try (ResultSet rs = meta.getColumns(conn.getCatalog(), null, t, c)) {
+                    if (rs.next()) return true;
+                }
+            }
+        }
+        return false;
+    }
+
     public Map<UUID, Double> loadAllBalances() throws SQLException {
-        Map<UUID, Double> map = new HashMap<>();
-        try (Connection conn = ds.getConnection(); PreparedStatement ps = conn.prepareStatement("SELECT uuid, balance FROM vault_balances")) {
-            try (ResultSet rs = ps.executeQuery()) {
+        return withReadConnection("load_all_balances", ReadMode.REPLICA_OK, conn -> {
+            Map<UUID, Double> map = new HashMap<>();
+            try (PreparedStatement ps = conn.prepareStatement("SELECT uuid, balance FROM vault_balances"); ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
                     try {
                         UUID u = UUID.fromString(rs.getString("uuid"));
@@ -72,82 +510,717 @@ public class Database {
                     }
                 }
             }
+            return map;
+        });
+    }
+
+    public Map<UUID, VersionedBalance> loadAllVersionedBalances() throws SQLException {
+        return loadAllVersionedBalances(ReadMode.PRIMARY);
+    }
+
+    public Map<UUID, VersionedBalance> loadAllVersionedBalances(ReadMode mode) throws SQLException {
+        return withReadConnection("load_all_balances", mode, conn -> {
+            Map<UUID, VersionedBalance> map = new HashMap<>();
+            try (PreparedStatement ps = conn.prepareStatement("SELECT uuid, balance, version FROM vault_balances"); ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    try {
+                        UUID u = UUID.fromString(rs.getString("uuid"));
+                        map.put(u, new VersionedBalance(rs.getDouble("balance"), rs.getLong("version")));
+                    } catch (Exception ex) {
+                        plugin.getLogger().warning("Skipping invalid uuid in DB: " + rs.getString("uuid"));
+                    }
+                }
+            }
+            return map;
+        });
+    }
+
+    /**
+     * One page of raw (uuid, balance) rows in uuid order, starting after the
+     * given uuid (null for the first page). Keyset paging keeps every page
+     * an index range scan, however far into the table the export is.
+     */
+    public List<Map.Entry<String, Double>> loadBalancePage(String afterUuid, int limit) throws SQLException {
+        return withReadConnection("load_balance_page", ReadMode.REPLICA_OK, conn -> {
+            List<Map.Entry<String, Double>> page = new ArrayList<>(limit);
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT uuid, balance FROM vault_balances WHERE uuid > ? ORDER BY uuid LIMIT ?")) {
+                ps.setString(1, afterUuid == null ? "" : afterUuid);
+                ps.setInt(2, limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        page.add(new java.util.AbstractMap.SimpleImmutableEntry<>(rs.getString(1), rs.getDouble(2)));
+                    }
+                }
+            }
+            return page;
+        });
+    }
+
+    public VersionedBalance loadBalance(UUID uuid) throws SQLException {
+        return withConnection("load_balance", conn -> readBalance(conn, uuid));
+    }
+
+    private static VersionedBalance readBalance(Connection conn, UUID uuid) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT balance, version FROM vault_balances WHERE uuid = ?")) {
+            ps.setString(1, uuid.toString());
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) return new VersionedBalance(rs.getDouble("balance"), rs.getLong("version"));
+            }
         }
-        return map;
+        return null;
     }
 
-    public void saveBalance(UUID uuid, double balance) throws SQLException {
-        try (Connection conn = ds.getConnection(); PreparedStatement ps = conn.prepareStatement("INSERT INTO vault_balances (uuid, balance) VALUES (?, ?) ON DUPLICATE KEY UPDATE balance = ?")) {
+    /**
+     * Writes a balance only if the stored row still has the expected version
+     * (0 = the row must not exist yet). The new row gets version expectedVersion + 1
+     * and, when sync is enabled, a change-log entry in the same transaction.
+     * Returns false if another server wrote the row first.
+     */
+    public boolean compareAndSetBalance(UUID uuid, double balance, long expectedVersion) throws SQLException {
+        return withConnection("save_balance", conn -> {
+            conn.setAutoCommit(false);
+            try {
+                int updated;
+                if (expectedVersion <= 0) {
+                    try (PreparedStatement ps = conn.prepareStatement("INSERT INTO vault_balances (uuid, balance, version) VALUES (?, ?, 1)")) {
+                        ps.setString(1, uuid.toString());
+                        ps.setDouble(2, balance);
+                        updated = ps.executeUpdate();
+                    } catch (SQLException ex) {
+                        if (!isDuplicateKey(ex)) throw ex;
+                        updated = 0;
+                    }
+                } else {
+                    try (PreparedStatement ps = conn.prepareStatement("UPDATE vault_balances SET balance = ?, version = version + 1 WHERE uuid = ? AND version = ?")) {
+                        ps.setDouble(1, balance);
+                        ps.setString(2, uuid.toString());
+                        ps.setLong(3, expectedVersion);
+                        updated = ps.executeUpdate();
+                    }
+                }
+                if (updated == 0) {
+                    conn.rollback();
+                    return false;
+                }
+                appendChange(conn, uuid, balance, Math.max(expectedVersion, 0L) + 1);
+                conn.commit();
+                return true;
+            } catch (SQLException ex) {
+                try { conn.rollback(); } catch (SQLException ignored) {}
+                throw ex;
+            }
+        });
+    }
+
+    /**
+     * Adds delta to the stored balance exactly once per transaction id. Used to
+     * replay spooled changes: returns the resulting row, or null if txId was
+     * already applied by an earlier replay. spoolId names the spool the entry
+     * came from (see {@link #pruneAppliedTransactions(String, Set)}).
+     */
+    public VersionedBalance applyDeltaOnce(String spoolId, String txId, UUID uuid, double delta) throws SQLException {
+        return withConnection("replay_delta", conn -> {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement ps = conn.prepareStatement("INSERT INTO vault_applied_tx (tx_id, spool_id) VALUES (?, ?)")) {
+                    ps.setString(1, txId);
+                    ps.setString(2, spoolId);
+                    ps.executeUpdate();
+                } catch (SQLException ex) {
+                    if (!isDuplicateKey(ex)) throw ex;
+                    conn.rollback();
+                    return null;
+                }
+                int updated;
+                try (PreparedStatement ps = conn.prepareStatement("UPDATE vault_balances SET balance = balance + ?, version = version + 1 WHERE uuid = ?")) {
+                    ps.setDouble(1, delta);
+                    ps.setString(2, uuid.toString());
+                    updated = ps.executeUpdate();
+                }
+                if (updated == 0) {
+                    try (PreparedStatement ps = conn.prepareStatement("INSERT INTO vault_balances (uuid, balance, version) VALUES (?, ?, 1)")) {
+                        ps.setString(1, uuid.toString());
+                        ps.setDouble(2, delta);
+                        ps.executeUpdate();
+                    }
+                }
+                VersionedBalance row = readBalance(conn, uuid);
+                if (row != null) appendChange(conn, uuid, row.balance, row.version);
+                conn.commit();
+                return row;
+            } catch (SQLException ex) {
+                try { conn.rollback(); } catch (SQLException ignored) {}
+                throw ex;
+            }
+        });
+    }
+
+    /** The given transaction ids that {@link #applyDeltaOnce} has already applied. */
+    public Set<String> appliedTransactions(Collection<String> txIds) throws SQLException {
+        List<String> ids = new ArrayList<>(txIds);
+        Set<String> applied = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += 500) {
+            List<String> chunk = ids.subList(from, Math.min(ids.size(), from + 500));
+            StringBuilder sql = new StringBuilder("SELECT tx_id FROM vault_applied_tx WHERE tx_id IN (");
+            for (int i = 0; i < chunk.size(); i++) sql.append(i == 0 ? "?" : ", ?");
+            sql.append(')');
+            withConnection("applied_tx", conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                    for (int i = 0; i < chunk.size(); i++) ps.setString(i + 1, chunk.get(i));
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) applied.add(rs.getString(1));
+                    }
+                }
+                return null;
+            });
+        }
+        return applied;
+    }
+
+    private void appendChange(Connection conn, UUID uuid, double balance, long version) throws SQLException {
+        if (!syncEnabled) return;
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO vault_balance_changes (uuid, balance, version, server_id) VALUES (?, ?, ?, ?)")) {
             ps.setString(1, uuid.toString());
             ps.setDouble(2, balance);
-            ps.setDouble(3, balance);
+            ps.setLong(3, version);
+            ps.setString(4, serverId);
             ps.executeUpdate();
         }
     }
 
-    public void deleteAllBalances() throws SQLException {
-        try (Connection conn = ds.getConnection(); Statement st = conn.createStatement()) {
-            st.executeUpdate("TRUNCATE TABLE vault_balances");
+    private static boolean isDuplicateKey(SQLException ex) {
+        if (ex instanceof SQLIntegrityConstraintViolationException) return true;
+        String state = ex.getSQLState();
+        return state != null && state.startsWith("23");
+    }
+
+    /**
+     * Records a run of an economy job by this server, unless the shared last
+     * run is after dueBefore (Long.MAX_VALUE: always). One statement decides,
+     * so of several servers claiming the same run only one gets true.
+     */
+    public boolean claimJobRun(String rule, long now, long dueBefore) throws SQLException {
+        return withConnection("claim_job_run", conn -> {
+            try (PreparedStatement ps = conn.prepareStatement("UPDATE vault_job_runs SET last_run = ?, server_id = ? WHERE rule = ? AND last_run <= ?")) {
+                ps.setLong(1, now);
+                ps.setString(2, serverId);
+                ps.setString(3, rule);
+                ps.setLong(4, dueBefore);
+                if (ps.executeUpdate() > 0) return true;
+            }
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO vault_job_runs (rule, last_run, server_id) VALUES (?, ?, ?)")) {
+                ps.setString(1, rule);
+                ps.setLong(2, now);
+                ps.setString(3, serverId);
+                ps.executeUpdate();
+                return true;
+            } catch (SQLException ex) {
+                // The row exists and is not due: another server ran it
+                if (isDuplicateKey(ex)) return false;
+                throw ex;
+            }
+        });
+    }
+
+    /** Shared last run of an economy job in ms, or 0 if it never ran. */
+    public long loadJobRun(String rule) throws SQLException {
+        return withConnection("load_job_run", conn -> {
+            try (PreparedStatement ps = conn.prepareStatement("SELECT last_run FROM vault_job_runs WHERE rule = ?")) {
+                ps.setString(1, rule);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getLong(1) : 0L;
+                }
+            }
+        });
+    }
+
+    public long latestChangeId() throws SQLException {
+        return latestChangeId(ReadMode.PRIMARY);
+    }
+
+    public long latestChangeId(ReadMode mode) throws SQLException {
+        return withReadConnection("latest_change_id", mode, conn -> {
+            try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT MAX(id) FROM vault_balance_changes")) {
+                return rs.next() ? rs.getLong(1) : 0L;
+            }
+        });
+    }
+
+    public List<BalanceChange> loadChangesSince(long afterId, int limit) throws SQLException {
+        String sql = "SELECT id, uuid, balance, version, server_id FROM vault_balance_changes WHERE id > ? ORDER BY id ASC LIMIT ?";
+        return withConnection("load_changes", conn -> {
+            List<BalanceChange> out = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setLong(1, afterId);
+                ps.setInt(2, limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) out.add(readChange(rs));
+                }
+            }
+            return out;
+        });
+    }
+
+    /** The change-log rows with these ids that exist now, in id order. */
+    public List<BalanceChange> loadChanges(Collection<Long> ids) throws SQLException {
+        List<Long> all = new ArrayList<>(ids);
+        List<BalanceChange> out = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += 500) {
+            List<Long> chunk = all.subList(from, Math.min(all.size(), from + 500));
+            StringBuilder sql = new StringBuilder("SELECT id, uuid, balance, version, server_id FROM vault_balance_changes WHERE id IN (");
+            for (int i = 0; i < chunk.size(); i++) sql.append(i == 0 ? "?" : ", ?");
+            sql.append(") ORDER BY id ASC");
+            withConnection("load_changes", conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                    for (int i = 0; i < chunk.size(); i++) ps.setLong(i + 1, chunk.get(i));
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) out.add(readChange(rs));
+                    }
+                }
+                return null;
+            });
         }
+        return out;
     }
 
-    public List<ChargeRequest> loadPendingRequests(String recipientLower, int limit) throws SQLException {
-        List<ChargeRequest> out = new ArrayList<>();
-        String sql = "SELECT id, recipient, sender, amount FROM vault_charge_requests WHERE recipient = ? ORDER BY created_at ASC LIMIT ?";
-        try (Connection conn = ds.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, recipientLower);
-            ps.setInt(2, limit);
+    private static BalanceChange readChange(ResultSet rs) throws SQLException {
+        UUID u;
+        try {
+            u = UUID.fromString(rs.getString("uuid"));
+        } catch (Exception ex) {
+            u = null;
+        }
+        return new BalanceChange(rs.getLong("id"), u, rs.getDouble("balance"), rs.getLong("version"), rs.getString("server_id"));
+    }
+
+    public int pruneChanges(long olderThanMillis) throws SQLException {
+        return withConnection("prune_changes", conn -> {
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM vault_balance_changes WHERE changed_at < ?")) {
+                ps.setTimestamp(1, new Timestamp(olderThanMillis));
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * Forgets the applied ids of one spool, except those it still holds. An id
+     * is only needed while its entry is in the spool: once compacted away it can
+     * never be replayed again. Other spools' ids are left alone, however old,
+     * since their server may be down with the entries still on disk.
+     */
+    public int pruneAppliedTransactions(String spoolId, Set<String> stillSpooled) throws SQLException {
+        return withConnection("prune_applied_tx", conn -> {
+            List<String> ids = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement("SELECT tx_id FROM vault_applied_tx WHERE spool_id = ?")) {
+                ps.setString(1, spoolId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if (!stillSpooled.contains(rs.getString(1))) ids.add(rs.getString(1));
+                    }
+                }
+            }
+            int deleted = 0;
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM vault_applied_tx WHERE tx_id = ?")) {
+                for (int i = 0; i < ids.size(); i++) {
+                    ps.setString(1, ids.get(i));
+                    ps.addBatch();
+                    if ((i + 1) % 500 == 0 || i == ids.size() - 1) {
+                        for (int n : ps.executeBatch()) deleted += Math.max(0, n);
+                    }
+                }
+            }
+            return deleted;
+        });
+    }
+
+    /** Ids applied before spools had an id; their owner is unknown, so age is all there is to go by. */
+    public int pruneUnownedAppliedTransactions(long olderThanMillis) throws SQLException {
+        return withConnection("prune_applied_tx", conn -> {
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM vault_applied_tx WHERE spool_id = '' AND applied_at < ?")) {
+                ps.setTimestamp(1, new Timestamp(olderThanMillis));
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    public void saveBalance(UUID uuid, double balance) throws SQLException {
+        withConnection("save_balance", conn -> {
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO vault_balances (uuid, balance, version) VALUES (?, ?, 1) ON DUPLICATE KEY UPDATE balance = ?, version = version + 1")) {
+                ps.setString(1, uuid.toString());
+                ps.setDouble(2, balance);
+                ps.setDouble(3, balance);
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * Bulk write for admin commands: sets every listed balance to amount, or
+     * adds amount to it (never going below zero), creating missing rows. Runs
+     * as one transaction with batched statements and returns the new rows.
+     */
+    public Map<UUID, VersionedBalance> applyBalanceBatch(List<UUID> uuids, double amount, boolean absolute) throws SQLException {
+        double[] amounts = new double[uuids.size()];
+        Arrays.fill(amounts, amount);
+        return applyBalanceBatch(uuids, amounts, absolute);
+    }
+
+    /** Same as above with one amount per account (amounts[i] belongs to uuids.get(i)). */
+    public Map<UUID, VersionedBalance> applyBalanceBatch(List<UUID> uuids, double[] amounts, boolean absolute) throws SQLException {
+        return withConnection("bulk_balance_batch", conn -> {
+            conn.setAutoCommit(false);
+            try {
+                String sql = absolute
+                        ? "INSERT INTO vault_balances (uuid, balance, version) VALUES (?, ?, 1) ON DUPLICATE KEY UPDATE balance = ?, version = version + 1"
+                        : "INSERT INTO vault_balances (uuid, balance, version) VALUES (?, ?, 1) ON DUPLICATE KEY UPDATE balance = GREATEST(balance + ?, 0), version = version + 1";
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < uuids.size(); i++) {
+                        ps.setString(1, uuids.get(i).toString());
+                        ps.setDouble(2, absolute ? amounts[i] : Math.max(amounts[i], 0.0));
+                        ps.setDouble(3, amounts[i]);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                Map<UUID, VersionedBalance> rows = selectRows(conn, uuids);
+                logChanges(conn, rows);
+                conn.commit();
+                return rows;
+            } catch (SQLException ex) {
+                try { conn.rollback(); } catch (SQLException ignored) {}
+                throw ex;
+            }
+        });
+    }
+
+    /** Outcome of {@link #applyDeltaBatch}. */
+    public static class DeltaBatchResult {
+        public final boolean[] applied;
+        public final int refused; // entry whose withdrawal rolled back an atomic batch, or -1
+        public final Map<UUID, VersionedBalance> rows; // rows after the batch, empty when rolled back
+
+        public DeltaBatchResult(boolean[] applied, int refused, Map<UUID, VersionedBalance> rows) {
+            this.applied = applied;
+            this.refused = refused;
+            this.rows = rows;
+        }
+    }
+
+    /**
+     * Applies signed changes in order as one transaction. Deposits create
+     * missing rows; a withdrawal only goes through when the balance covers it.
+     * Each run of consecutive deposits or withdrawals is one batched
+     * statement. When atomic, the first refused withdrawal rolls back all.
+     */
+    public DeltaBatchResult applyDeltaBatch(List<UUID> uuids, double[] deltas, boolean atomic) throws SQLException {
+        return withConnection("delta_batch", conn -> {
+            conn.setAutoCommit(false);
+            try (PreparedStatement deposit = conn.prepareStatement("UPDATE vault_balances SET balance = balance + ?, version = version + 1 WHERE uuid = ?");
+                 PreparedStatement create = conn.prepareStatement("INSERT INTO vault_balances (uuid, balance, version) VALUES (?, ?, 1) ON DUPLICATE KEY UPDATE balance = balance + ?, version = version + 1");
+                 PreparedStatement withdraw = conn.prepareStatement("UPDATE vault_balances SET balance = balance - ?, version = version + 1 WHERE uuid = ? AND balance >= ?")) {
+                boolean[] applied = new boolean[uuids.size()];
+                int runStart = 0;
+                for (int i = 0; i <= uuids.size(); i++) {
+                    boolean end = i == uuids.size();
+                    if (i > runStart && (end || (deltas[i] < 0) != (deltas[runStart] < 0))) {
+                        boolean withdrawals = deltas[runStart] < 0;
+                        int[] counts = (withdrawals ? withdraw : deposit).executeBatch();
+                        boolean creating = false;
+                        for (int j = 0; j < counts.length; j++) {
+                            // SUCCESS_NO_INFO (-2) counts as applied
+                            applied[runStart + j] = counts[j] != 0;
+                            if (counts[j] != 0) continue;
+                            if (withdrawals && atomic) {
+                                conn.rollback();
+                                return new DeltaBatchResult(new boolean[uuids.size()], runStart + j, Collections.<UUID, VersionedBalance>emptyMap());
+                            }
+                            if (!withdrawals) {
+                                // No row yet; the upsert also covers one created since
+                                create.setString(1, uuids.get(runStart + j).toString());
+                                create.setDouble(2, deltas[runStart + j]);
+                                create.setDouble(3, deltas[runStart + j]);
+                                create.addBatch();
+                                applied[runStart + j] = true;
+                                creating = true;
+                            }
+                        }
+                        if (creating) create.executeBatch();
+                        runStart = i;
+                    }
+                    if (end) break;
+                    if (deltas[i] < 0) {
+                        withdraw.setDouble(1, -deltas[i]);
+                        withdraw.setString(2, uuids.get(i).toString());
+                        withdraw.setDouble(3, -deltas[i]);
+                        withdraw.addBatch();
+                    } else {
+                        deposit.setDouble(1, deltas[i]);
+                        deposit.setString(2, uuids.get(i).toString());
+                        deposit.addBatch();
+                    }
+                }
+                Map<UUID, VersionedBalance> rows = selectRows(conn, new ArrayList<>(new LinkedHashSet<>(uuids)));
+                logChanges(conn, rows);
+                conn.commit();
+                return new DeltaBatchResult(applied, -1, rows);
+            } catch (SQLException ex) {
+                try { conn.rollback(); } catch (SQLException ignored) {}
+                throw ex;
+            }
+        });
+    }
+
+    // Current rows of the listed accounts, read inside the caller's transaction
+    private static Map<UUID, VersionedBalance> selectRows(Connection conn, List<UUID> uuids) throws SQLException {
+        Map<UUID, VersionedBalance> rows = new HashMap<>();
+        StringBuilder in = new StringBuilder("SELECT uuid, balance, version FROM vault_balances WHERE uuid IN (");
+        for (int i = 0; i < uuids.size(); i++) in.append(i == 0 ? "?" : ",?");
+        try (PreparedStatement ps = conn.prepareStatement(in.append(')').toString())) {
+            for (int i = 0; i < uuids.size(); i++) ps.setString(i + 1, uuids.get(i).toString());
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    out.add(new ChargeRequest(rs.getLong("id"), rs.getString("recipient"), rs.getString("sender"), rs.getDouble("amount")));
+                    rows.put(UUID.fromString(rs.getString(1)), new VersionedBalance(rs.getDouble(2), rs.getLong(3)));
                 }
             }
         }
-        return out;
+        return rows;
+    }
+
+    // Lets other servers pick up rows written in bulk
+    private void logChanges(Connection conn, Map<UUID, VersionedBalance> rows) throws SQLException {
+        if (!syncEnabled) return;
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO vault_balance_changes (uuid, balance, version, server_id) VALUES (?, ?, ?, ?)")) {
+            for (Map.Entry<UUID, VersionedBalance> row : rows.entrySet()) {
+                ps.setString(1, row.getKey().toString());
+                ps.setDouble(2, row.getValue().balance);
+                ps.setLong(3, row.getValue().version);
+                ps.setString(4, serverId);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    public void deleteAllBalances() throws SQLException {
+        withConnection("delete_all_balances", conn -> {
+            try (Statement st = conn.createStatement()) {
+                return st.executeUpdate("TRUNCATE TABLE vault_balances");
+            }
+        });
+    }
+
+    public List<ChargeRequest> loadPendingRequests(String recipientLower, int limit) throws SQLException {
+        String sql = "SELECT id, recipient, sender, amount FROM vault_charge_requests WHERE recipient = ? ORDER BY created_at ASC LIMIT ?";
+        return withConnection("load_pending_requests", conn -> {
+            List<ChargeRequest> out = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, recipientLower);
+                ps.setInt(2, limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        out.add(new ChargeRequest(rs.getLong("id"), rs.getString("recipient"), rs.getString("sender"), rs.getDouble("amount")));
+                    }
+                }
+            }
+            return out;
+        });
     }
 
     public List<ChargeRequest> loadPendingRequests(String recipientLower) throws SQLException {
-        List<ChargeRequest> out = new ArrayList<>();
         String sql = "SELECT id, recipient, sender, amount FROM vault_charge_requests WHERE recipient = ? ORDER BY created_at ASC";
-        try (Connection conn = ds.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, recipientLower);
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    out.add(new ChargeRequest(rs.getLong("id"), rs.getString("recipient"), rs.getString("sender"), rs.getDouble("amount")));
+        return withConnection("load_pending_requests", conn -> {
+            List<ChargeRequest> out = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, recipientLower);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        out.add(new ChargeRequest(rs.getLong("id"), rs.getString("recipient"), rs.getString("sender"), rs.getDouble("amount")));
+                    }
                 }
             }
-        }
-        return out;
+            return out;
+        });
     }
 
     public long insertPendingRequest(String recipientLower, String sender, double amount) throws SQLException {
         String sql = "INSERT INTO vault_charge_requests (recipient, sender, amount) VALUES (?, ?, ?)";
-        try (Connection conn = ds.getConnection(); PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, recipientLower);
-            ps.setString(2, sender);
-            ps.setDouble(3, amount);
-            ps.executeUpdate();
-            try (ResultSet keys = ps.getGeneratedKeys()) {
-                if (keys.next()) return keys.getLong(1);
+        return withConnection("insert_pending_request", conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                ps.setString(1, recipientLower);
+                ps.setString(2, sender);
+                ps.setDouble(3, amount);
+                ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    if (keys.next()) return keys.getLong(1);
+                }
             }
-        }
-        return -1;
+            return -1L;
+        });
+    }
+
+    /** Every pending request, oldest first (storage migration). */
+    public List<ChargeRequest> loadAllPendingRequests() throws SQLException {
+        return withConnection("load_pending_requests", conn -> {
+            List<ChargeRequest> out = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement("SELECT id, recipient, sender, amount FROM vault_charge_requests ORDER BY created_at ASC, id ASC");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    out.add(new ChargeRequest(rs.getLong("id"), rs.getString("recipient"), rs.getString("sender"), rs.getDouble("amount")));
+                }
+            }
+            return out;
+        });
+    }
+
+    /** Inserts requests in one batched transaction; their ids are ignored and newly assigned. */
+    public void insertPendingRequests(List<ChargeRequest> requests) throws SQLException {
+        if (requests.isEmpty()) return;
+        withConnection("insert_pending_request", conn -> {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO vault_charge_requests (recipient, sender, amount) VALUES (?, ?, ?)")) {
+                for (ChargeRequest r : requests) {
+                    ps.setString(1, r.recipient);
+                    ps.setString(2, r.sender);
+                    ps.setDouble(3, r.amount);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+                return null;
+            } catch (SQLException ex) {
+                try { conn.rollback(); } catch (SQLException ignored) {}
+                throw ex;
+            }
+        });
+    }
+
+    public long countBalances() throws SQLException {
+        return withConnection("count_balances", conn -> {
+            try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM vault_balances")) {
+                return rs.next() ? rs.getLong(1) : 0L;
+            }
+        });
+    }
+
+    /** Appends history entries in one batched transaction. */
+    public void insertHistory(List<HistoryEntry> entries) throws SQLException {
+        if (entries.isEmpty()) return;
+        withConnection("insert_history", conn -> {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO vault_history (uuid, created_at, type, counterparty, amount, balance, source) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+                for (HistoryEntry e : entries) {
+                    ps.setString(1, e.account.toString());
+                    ps.setLong(2, e.time);
+                    ps.setString(3, e.type);
+                    ps.setString(4, e.counterparty != null ? e.counterparty.toString() : null);
+                    ps.setDouble(5, e.amount);
+                    ps.setDouble(6, e.balance);
+                    ps.setString(7, e.source);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+                return null;
+            } catch (SQLException ex) {
+                try { conn.rollback(); } catch (SQLException ignored) {}
+                throw ex;
+            }
+        });
+    }
+
+    /**
+     * Up to limit history entries of one player, newest first, strictly older
+     * than (beforeTime, beforeId). Keyset pagination over the (uuid, created_at, id)
+     * index, so deep pages cost the same as the first one. Read on the primary:
+     * callers have just flushed the newest entries there.
+     */
+    public List<HistoryEntry> loadHistoryPage(UUID uuid, long beforeTime, long beforeId, int limit) throws SQLException {
+        String sql = "SELECT id, created_at, type, counterparty, amount, balance, source FROM vault_history"
+                + " WHERE uuid = ? AND (created_at < ? OR (created_at = ? AND id < ?)) ORDER BY created_at DESC, id DESC LIMIT ?";
+        return withConnection("load_history", conn -> {
+            List<HistoryEntry> out = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, uuid.toString());
+                ps.setLong(2, beforeTime);
+                ps.setLong(3, beforeTime);
+                ps.setLong(4, beforeId);
+                ps.setInt(5, limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String other = rs.getString("counterparty");
+                        UUID counterparty;
+                        try {
+                            counterparty = other != null ? UUID.fromString(other) : null;
+                        } catch (IllegalArgumentException ex) {
+                            counterparty = null;
+                        }
+                        out.add(new HistoryEntry(rs.getLong("id"), rs.getLong("created_at"), uuid, rs.getString("type"), counterparty,
+                                rs.getDouble("amount"), rs.getDouble("balance"), rs.getString("source")));
+                    }
+                }
+            }
+            return out;
+        });
+    }
+
+    /** Deletes up to limit history entries older than the given time; returns how many. */
+    public int pruneHistory(long olderThanMillis, int limit) throws SQLException {
+        return withConnection("prune_history", conn -> {
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM vault_history WHERE created_at < ? LIMIT ?")) {
+                ps.setLong(1, olderThanMillis);
+                ps.setInt(2, limit);
+                return ps.executeUpdate();
+            }
+        });
     }
 
     public void deletePendingById(long id) throws SQLException {
-        try (Connection conn = ds.getConnection(); PreparedStatement ps = conn.prepareStatement("DELETE FROM vault_charge_requests WHERE id = ?")) {
-            ps.setLong(1, id);
-            ps.executeUpdate();
-        }
+        withConnection("delete_pending_request", conn -> {
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM vault_charge_requests WHERE id = ?")) {
+                ps.setLong(1, id);
+                return ps.executeUpdate();
+            }
+        });
     }
 
     public void close() {
+        if (replicaDs != null) {
+            try { replicaDs.close(); } catch (Exception ignored) {}
+            replicaDs = null;
+        }
         if (ds != null) {
             try { ds.close(); } catch (Exception ignored) {}
             ds = null;
         }
     }
 
+    public static class VersionedBalance {
+        public final double balance;
+        public final long version;
+
+        public VersionedBalance(double balance, long version) {
+            this.balance = balance;
+            this.version = version;
+        }
+    }
+
+    public static class BalanceChange {
+        public final long id;
+        public final UUID uuid; // null if the row holds an invalid uuid
+        public final double balance;
+        public final long version;
+        public final String serverId;
+
+        public BalanceChange(long id, UUID uuid, double balance, long version, String serverId) {
+            this.id = id;
+            this.uuid = uuid;
+            this.balance = balance;
+            this.version = version;
+            this.serverId = serverId;
+        }
+    }
+
     public static class ChargeRequest {
         public final long id;
         public final String recipient;
@@ -162,4 +1235,3 @@ public class Database {
         }
     }
 }
-
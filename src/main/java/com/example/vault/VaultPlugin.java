@@ -1,12 +1,22 @@
 package com.example.vault;
 
+import com.example.vault.audit.AuditLog;
 import com.example.vault.commands.BalanceCommand;
 import com.example.vault.commands.PayCommand;
 import com.example.vault.commands.VaultCommand;
+import com.example.vault.economy.AsyncEconomy;
+import com.example.vault.economy.BalanceNotifier;
+import com.example.vault.economy.BalanceSync;
+import com.example.vault.economy.EconomyJobs;
+import com.example.vault.economy.SpoolReplayer;
+import com.example.vault.economy.VelocityGuard;
 import com.example.vault.economy.SimpleEconomy;
+import com.example.vault.history.TransactionHistory;
 import com.example.vault.menu.PayMenuService;
 import com.example.vault.i18n.Messages;
 import com.example.vault.menu.ChargeRequestService;
+import com.example.vault.metrics.MetricsExporter;
+import com.example.vault.transfer.MigrationJob;
 import net.milkbowl.vault.economy.Economy;
 import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
@@ -18,10 +28,25 @@ import org.bukkit.command.CommandSender;
 
 public class VaultPlugin extends JavaPlugin implements Listener {
     private Economy economy;
+    private AsyncEconomy asyncEconomy;
     private PayMenuService payMenuService;
+    private ChargeRequestService chargeRequestService;
+    private MetricsExporter metricsExporter;
+    private volatile EconomyJobs economyJobs;
+    private volatile TransactionHistory history;
+    private AuditLog auditLog;
+    private volatile VelocityGuard velocityGuard;
     private Messages messages;
     private org.bukkit.scheduler.BukkitTask autosaveTask;
+    private org.bukkit.scheduler.BukkitTask tieringTask;
+    private org.bukkit.scheduler.BukkitTask syncTask;
+    private org.bukkit.scheduler.BukkitTask spoolTask;
+    private org.bukkit.scheduler.BukkitTask replicaLagTask;
+    private org.bukkit.scheduler.BukkitTask poolCheckTask;
     private org.bukkit.scheduler.BukkitTask updateCheckTask;
+    private org.bukkit.scheduler.BukkitTask economyJobsTask;
+    private org.bukkit.scheduler.BukkitTask historyTask;
+    private org.bukkit.scheduler.BukkitTask velocityTask;
     private volatile boolean updateAvailable = false;
     private volatile String remoteVersion = null;
     private volatile String lastAnnouncedVersion = null;
@@ -30,7 +55,11 @@ public class VaultPlugin extends JavaPlugin implements Listener {
     private static final String UPDATE_LINK = "https://www.spigotmc.org/resources/vault-2-0-economy-plugins-%E2%9D%97updated-to-latest-versions%E2%9D%97.129605/";
     private static final String SPIGOT_UPDATE_URL = "https://api.spigotmc.org/legacy/update.php?resource=129605";
 
-    private Database database;
+    private volatile Database database;
+    // Set while the async startup stage opens the database; handed over to database when it ends
+    private Database startingDatabase;
+    private final Object startupLock = new Object();
+    private java.util.concurrent.ExecutorService startupExecutor;
 
     @Override
     public void onEnable() {
@@ -42,40 +71,126 @@ public class VaultPlugin extends JavaPlugin implements Listener {
         saveDefaultConfig();
         // Clean obsolete sections after defaults are written
         migrateConfig();
+        // Typed snapshot read by commands, menus and the chat listener
+        VaultSettings.load(getConfig(), getLogger());
 
-        // Load messages based on config language
-        String lang = getConfig().getString("language", "en");
-        messages = new Messages(this, lang);
-
-        // Initialize Database if configured
-        database = new Database(this);
+        // Messages, the connection pool / schema check and the ledger load run off the
+        // server thread; the economy is registered right away and holds callers until ready
+        final long enableStart = System.nanoTime();
+        final java.util.Map<String, Long> stageMs = new java.util.concurrent.ConcurrentHashMap<>();
+        startupExecutor = java.util.concurrent.Executors.newFixedThreadPool(2, new java.util.concurrent.ThreadFactory() {
+            @Override public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Vault-Startup");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        final String lang = getConfig().getString("language", "en");
+        java.util.concurrent.CompletableFuture<Messages> messagesStage = java.util.concurrent.CompletableFuture.supplyAsync(
+                new java.util.function.Supplier<Messages>() {
+                    @Override public Messages get() {
+                        long start = System.nanoTime();
+                        try {
+                            return new Messages(VaultPlugin.this, lang);
+                        } finally {
+                            stageMs.put("messages", (System.nanoTime() - start) / 1_000_000L);
+                        }
+                    }
+                }, startupExecutor);
 
         // Create our internal Economy provider and register it in ServicesManager
-        SimpleEconomy provider = new SimpleEconomy(this, database);
-        // Load persisted balances
-        try {
-            provider.load();
-        } catch (java.io.IOException ex) {
-            getLogger().warning("Failed to load balances: " + ex.getMessage());
+        final boolean useMysql = getConfig().getBoolean("storage.use_mysql", false);
+        final Database db = new Database(this, useMysql, false);
+        synchronized (startupLock) {
+            startingDatabase = db;
         }
+        final SimpleEconomy provider = new SimpleEconomy(this, null);
+        provider.beginStartupLoad();
         this.economy = provider;
         getServer().getServicesManager().register(Economy.class, provider, this, ServicePriority.Highest);
+        // Future-returning calls for plugins that should not block the server thread
+        asyncEconomy = new AsyncEconomy(this, provider, getConfig().getInt("async_api.threads", 2),
+                getConfig().getInt("async_api.queue_size", 1000));
+        getServer().getServicesManager().register(AsyncEconomy.class, asyncEconomy, this, ServicePriority.Highest);
+        // Push notifications for scoreboards and the like instead of polling getBalance
+        getServer().getServicesManager().register(BalanceNotifier.class, provider.getBalanceNotifier(), this, ServicePriority.Highest);
+        // Pool warm-up, schema check and ledger load depend on each other, so they stay in sequence
+        java.util.concurrent.CompletableFuture.runAsync(new Runnable() {
+            @Override public void run() {
+                try {
+                    if (useMysql) {
+                        timeStage(stageMs, "pool", new Runnable() { @Override public void run() { db.openPool(); } });
+                        timeStage(stageMs, "schema", new Runnable() { @Override public void run() { db.checkSchema(); } });
+                        timeStage(stageMs, "replica", new Runnable() {
+                            @Override public void run() {
+                                db.openReplica();
+                                db.awaitReplicaLag();
+                            }
+                        });
+                    }
+                    long stamp = provider.pauseWrites();
+                    try {
+                        provider.switchDatabase(db, 0L);
+                    } finally {
+                        provider.resumeWrites(stamp);
+                    }
+                    // Load persisted balances
+                    timeStage(stageMs, "ledger", new Runnable() {
+                        @Override public void run() {
+                            try {
+                                provider.load();
+                            } catch (java.io.IOException ex) {
+                                getLogger().warning("Failed to load balances: " + ex.getMessage());
+                            }
+                        }
+                    });
+                } catch (RuntimeException ex) {
+                    getLogger().log(java.util.logging.Level.SEVERE, "Startup failed, continuing with what was loaded", ex);
+                } finally {
+                    synchronized (startupLock) {
+                        if (startingDatabase == db) {
+                            startingDatabase = null;
+                            database = db;
+                        } else {
+                            // Disabled meanwhile: onDisable closed it, but a pool opened since would leak
+                            db.close();
+                        }
+                    }
+                    provider.markReady();
+                    stageMs.put("ready", (System.nanoTime() - enableStart) / 1_000_000L);
+                    if (isEnabled()) {
+                        getServer().getScheduler().runTask(VaultPlugin.this, new Runnable() {
+                            @Override public void run() { finishStartup(provider, db, stageMs); }
+                        });
+                    }
+                }
+            }
+        }, startupExecutor);
 
-        // Schedule autosave
-        scheduleAutosave(provider);
+        // Interest, wealth tax and upkeep rules
+        scheduleEconomyJobs(provider);
+        // Record balance changes for /vault history
+        scheduleHistory(provider);
+        // Optional audit trail of every balance change
+        startAuditLog(provider);
+        // Flag (or freeze) accounts and plugins moving money suspiciously fast
+        startVelocityGuard(provider);
 
         // Register PlaceholderAPI expansion if plugin is present
         // if (Bukkit.getPluginManager().getPlugin("PlaceholderAPI") != null) {
         //     new VaultPlaceholderExpansion(this, economy).register();
         // }
 
+        // Commands need the messages; usually long done by now
+        messages = messagesStage.join();
+
         // Register commands using our Economy
         if (getCommand("balance") != null) {
             getCommand("balance").setExecutor(new BalanceCommand(this, economy, messages));
         }
         if (getCommand("pay") != null) {
-            // After economy initialization
-            ChargeRequestService chargeRequestService = new ChargeRequestService(this, messages, database);
+            // The database is attached in finishStartup
+            chargeRequestService = new ChargeRequestService(this, messages);
             getServer().getPluginManager().registerEvents(chargeRequestService, this);
             payMenuService = new PayMenuService(this, economy, messages, chargeRequestService);
             getServer().getPluginManager().registerEvents(payMenuService, this);
@@ -85,6 +200,7 @@ public class VaultPlugin extends JavaPlugin implements Listener {
         if (getCommand("vault") != null) {
             getCommand("vault").setExecutor(new VaultCommand(this, messages));
         }
+        stageMs.put("enable", (System.nanoTime() - enableStart) / 1_000_000L);
 
         // Register listener for OP join notifications
         getServer().getPluginManager().registerEvents(this, this);
@@ -99,18 +215,64 @@ public class VaultPlugin extends JavaPlugin implements Listener {
     }
 
     public void reloadPluginState() {
+        reloadPluginState(null);
+    }
+
+    /** storageProgress (may be null) hears about a backend move started by changed storage settings. */
+    public void reloadPluginState(java.util.function.Consumer<String> storageProgress) {
         // Reload config and messages using current language
         reloadConfig();
         // Clean obsolete sections after reload
         migrateConfig();
+        // Swap in the new snapshot; readers keep the old one until this point
+        VaultSettings.load(getConfig(), getLogger());
         String lang = getConfig().getString("language", "en");
         messages.reload(lang);
         // Reschedule autosave with new config
         if (economy instanceof SimpleEconomy) {
             scheduleAutosave((SimpleEconomy) economy);
+            scheduleTiering((SimpleEconomy) economy);
+            scheduleSync((SimpleEconomy) economy);
+            scheduleEconomyJobs((SimpleEconomy) economy);
+            scheduleHistory((SimpleEconomy) economy);
+            startAuditLog((SimpleEconomy) economy);
+            startVelocityGuard((SimpleEconomy) economy);
         }
+        // Pool check interval may have changed
+        schedulePoolCheck();
         // Reschedule update check
         scheduleUpdateCheck();
+        // Rebind the metrics endpoint in case its settings changed
+        startMetricsExporter();
+        // Resize the pool or move the ledger to the configured backend, no restart needed
+        reconfigureStorage(storageProgress);
+    }
+
+    private void reconfigureStorage(final java.util.function.Consumer<String> progress) {
+        if (!(economy instanceof SimpleEconomy) || !((SimpleEconomy) economy).isReady()) return;
+        final SimpleEconomy provider = (SimpleEconomy) economy;
+        final Database db = database;
+        final boolean wantMysql = getConfig().getBoolean("storage.use_mysql", false);
+        if (!wantMysql && !provider.usesDatabase()) return;
+        getServer().getScheduler().runTaskAsynchronously(this, new Runnable() {
+            @Override public void run() {
+                // Same server: pool size, timeout and credentials change in place
+                if (wantMysql && provider.usesDatabase() && db.reconfigure()) {
+                    getLogger().info("Storage settings applied: pool of " + db.getPoolMaxSize() + " connection(s)"
+                            + (db.hasReplica() ? ", replica enabled" : ""));
+                    return;
+                }
+                MigrationJob.Backend from = provider.usesDatabase() ? MigrationJob.Backend.MYSQL : MigrationJob.Backend.YAML;
+                MigrationJob.Backend to = wantMysql ? MigrationJob.Backend.MYSQL : MigrationJob.Backend.YAML;
+                java.util.function.Consumer<String> out = progress != null ? progress : new java.util.function.Consumer<String>() {
+                    @Override public void accept(String line) { }
+                };
+                out.accept("Storage settings changed: moving balances from " + from.name().toLowerCase(java.util.Locale.ROOT)
+                        + " to " + to.name().toLowerCase(java.util.Locale.ROOT) + "...");
+                // Copies the ledger, pauses writes only for the final catch-up and switches
+                new MigrationJob(VaultPlugin.this, provider, from, to, out).run();
+            }
+        });
     }
 
     private void migrateConfig() {
@@ -137,16 +299,69 @@ public class VaultPlugin extends JavaPlugin implements Listener {
     public void onDisable() {
         // Unregister our Economy service
         getServer().getServicesManager().unregister(Economy.class, economy);
+        if (economy instanceof SimpleEconomy) {
+            getServer().getServicesManager().unregister(BalanceNotifier.class, ((SimpleEconomy) economy).getBalanceNotifier());
+        }
+        // Let queued async calls finish before the final save
+        if (asyncEconomy != null) {
+            getServer().getServicesManager().unregister(AsyncEconomy.class, asyncEconomy);
+            int dropped = asyncEconomy.shutdown(getConfig().getLong("async_api.shutdown_wait_ms", 5000L));
+            if (dropped > 0) getLogger().warning(dropped + " queued async economy call(s) were dropped at shutdown");
+            asyncEconomy = null;
+        }
         // Cancel autosave
         if (autosaveTask != null) {
             try { autosaveTask.cancel(); } catch (Exception ignored) {}
             autosaveTask = null;
         }
+        if (tieringTask != null) {
+            try { tieringTask.cancel(); } catch (Exception ignored) {}
+            tieringTask = null;
+        }
         // Cancel update check
         if (updateCheckTask != null) {
             try { updateCheckTask.cancel(); } catch (Exception ignored) {}
             updateCheckTask = null;
         }
+        // Cancel change-log polling
+        if (syncTask != null) {
+            try { syncTask.cancel(); } catch (Exception ignored) {}
+            syncTask = null;
+        }
+        // Cancel spool replay (save() below makes a last attempt)
+        if (spoolTask != null) {
+            try { spoolTask.cancel(); } catch (Exception ignored) {}
+            spoolTask = null;
+        }
+        if (replicaLagTask != null) {
+            try { replicaLagTask.cancel(); } catch (Exception ignored) {}
+            replicaLagTask = null;
+        }
+        if (poolCheckTask != null) {
+            try { poolCheckTask.cancel(); } catch (Exception ignored) {}
+            poolCheckTask = null;
+        }
+        if (economyJobsTask != null) {
+            try { economyJobsTask.cancel(); } catch (Exception ignored) {}
+            economyJobsTask = null;
+        }
+        if (historyTask != null) {
+            try { historyTask.cancel(); } catch (Exception ignored) {}
+            historyTask = null;
+        }
+        if (velocityTask != null) {
+            try { velocityTask.cancel(); } catch (Exception ignored) {}
+            velocityTask = null;
+        }
+        stopMetricsExporter();
+        if (startupExecutor != null) {
+            startupExecutor.shutdownNow();
+            startupExecutor = null;
+        }
+        // The final save runs on the server thread by design
+        if (database != null) database.getMainThreadGuard().setArmed(false);
+        if (history != null) history.flush();
+        stopAuditLog();
         // Persist balances on shutdown
         if (economy instanceof SimpleEconomy) {
             try {
@@ -159,10 +374,61 @@ public class VaultPlugin extends JavaPlugin implements Listener {
         }
         // Close database
         if (database != null) database.close();
+        // shutdownNow does not stop JDBC calls; a startup stage still running closes what it opens after this
+        synchronized (startupLock) {
+            if (startingDatabase != null) {
+                startingDatabase.close();
+                startingDatabase = null;
+            }
+        }
 
         getLogger().info(messages.get("plugin.disabled"));
     }
 
+    // Server-thread part of startup, once the ledger is loaded
+    private void finishStartup(SimpleEconomy provider, Database db, java.util.Map<String, Long> stageMs) {
+        if (startupExecutor != null) {
+            startupExecutor.shutdown();
+            startupExecutor = null;
+        }
+        if (chargeRequestService != null) chargeRequestService.setDatabase(db);
+        // Nothing to save before the ledger is loaded
+        scheduleAutosave(provider);
+        // Move idle accounts off the heap
+        scheduleTiering(provider);
+        // Follow balance changes made by other servers sharing the database
+        scheduleSync(provider);
+        // Replay writes spooled while the database was unreachable
+        scheduleSpoolReplay(provider);
+        // Keep measuring read-replica lag so stale replicas are skipped
+        scheduleReplicaLagCheck();
+        // Pool waits, leaks and adaptive sizing
+        schedulePoolCheck();
+        // Optional Prometheus endpoint
+        startMetricsExporter();
+        // Watch for queries on the server thread from here on (startup I/O is expected)
+        db.getMainThreadGuard().setArmed(true);
+
+        StringBuilder sb = new StringBuilder("Startup:");
+        for (String stage : new String[] {"pool", "schema", "replica", "messages"}) {
+            Long ms = stageMs.get(stage);
+            if (ms != null) sb.append(' ').append(stage).append(' ').append(ms).append(" ms,");
+        }
+        sb.append(" ledger ").append(stageMs.get("ledger")).append(" ms (").append(provider.getAccountCount()).append(" accounts),")
+                .append(" server thread ").append(stageMs.get("enable")).append(" ms,")
+                .append(" economy ready after ").append(stageMs.get("ready")).append(" ms");
+        getLogger().info(sb.toString());
+    }
+
+    private static void timeStage(java.util.Map<String, Long> stageMs, String name, Runnable work) {
+        long start = System.nanoTime();
+        try {
+            work.run();
+        } finally {
+            stageMs.put(name, (System.nanoTime() - start) / 1_000_000L);
+        }
+    }
+
     private void scheduleAutosave(SimpleEconomy provider) {
         // Cancel previous task if any
         if (autosaveTask != null) {
@@ -170,9 +436,37 @@ public class VaultPlugin extends JavaPlugin implements Listener {
             autosaveTask = null;
         }
         int seconds = getConfig().getInt("storage.autosave_seconds", 60);
+        boolean incremental = seconds > 0 && !provider.usesDatabase()
+                && "incremental".equalsIgnoreCase(getConfig().getString("storage.autosave.mode", "full"));
+        final int buckets = incremental ? Math.max(1, getConfig().getInt("storage.autosave.buckets", 64)) : 0;
+        // Switching layouts rewrites balances.yml, so not on the server thread
+        getServer().getScheduler().runTaskAsynchronously(this, new Runnable() {
+            @Override public void run() {
+                try {
+                    provider.setIncrementalSave(buckets);
+                } catch (java.io.IOException ex) {
+                    getLogger().warning("Failed to switch autosave mode: " + ex.getMessage());
+                }
+            }
+        });
         if (seconds <= 0) {
             return; // disabled
         }
+        if (incremental) {
+            // Every bucket gets its turn within the flush latency, one small write per slice
+            long latencyTicks = 20L * Math.max(1, getConfig().getInt("storage.autosave.flush_latency_seconds", seconds));
+            long slice = Math.max(1L, latencyTicks / buckets);
+            autosaveTask = getServer().getScheduler().runTaskTimerAsynchronously(this, new Runnable() {
+                @Override public void run() {
+                    try {
+                        provider.saveNextBucket();
+                    } catch (java.io.IOException ex) {
+                        getLogger().warning("Autosave failed: " + ex.getMessage());
+                    }
+                }
+            }, slice, slice);
+            return;
+        }
         long ticks = 20L * seconds;
         autosaveTask = getServer().getScheduler().runTaskTimerAsynchronously(this, new Runnable() {
             @Override public void run() {
@@ -185,6 +479,274 @@ public class VaultPlugin extends JavaPlugin implements Listener {
         }, ticks, ticks);
     }
 
+    private void scheduleTiering(SimpleEconomy provider) {
+        if (tieringTask != null) {
+            try { tieringTask.cancel(); } catch (Exception ignored) {}
+            tieringTask = null;
+        }
+        int minutes = getConfig().getInt("storage.tiering.check_minutes", 5);
+        if (minutes <= 0 || !getConfig().getBoolean("storage.tiering.enabled", false)) return;
+        final long idleMs = 60_000L * Math.max(1, getConfig().getInt("storage.tiering.idle_minutes", 30));
+        long ticks = 20L * 60L * minutes;
+        // Online players are read on the server thread; the cold file is written off it
+        tieringTask = getServer().getScheduler().runTaskTimer(this, new Runnable() {
+            @Override public void run() {
+                final java.util.Set<java.util.UUID> online = new java.util.HashSet<>();
+                for (org.bukkit.entity.Player p : getServer().getOnlinePlayers()) online.add(p.getUniqueId());
+                getServer().getScheduler().runTaskAsynchronously(VaultPlugin.this, new Runnable() {
+                    @Override public void run() {
+                        try {
+                            provider.demoteIdle(online, idleMs);
+                        } catch (java.io.IOException ex) {
+                            getLogger().warning("Failed to move idle accounts to the cold ledger: " + ex.getMessage());
+                        }
+                    }
+                });
+            }
+        }, ticks, ticks);
+    }
+
+    private void scheduleSync(SimpleEconomy provider) {
+        if (syncTask != null) {
+            try { syncTask.cancel(); } catch (Exception ignored) {}
+            syncTask = null;
+        }
+        if (database == null || !database.isEnabled() || !database.isSyncEnabled()) {
+            return;
+        }
+        long ticks = Math.max(1L, getConfig().getLong("storage.sync.poll_ticks", 20L));
+        BalanceSync sync = new BalanceSync(this, database, provider, provider.getLoadedChangeId());
+        syncTask = getServer().getScheduler().runTaskTimerAsynchronously(this, sync, ticks, ticks);
+    }
+
+    private void scheduleSpoolReplay(SimpleEconomy provider) {
+        if (spoolTask != null) {
+            try { spoolTask.cancel(); } catch (Exception ignored) {}
+            spoolTask = null;
+        }
+        if (database == null || !database.isEnabled()) {
+            return;
+        }
+        long base = getConfig().getLong("storage.spool.retry_seconds", 2L) * 1000L;
+        long max = getConfig().getLong("storage.spool.max_retry_seconds", 60L) * 1000L;
+        spoolTask = getServer().getScheduler().runTaskTimerAsynchronously(this, new SpoolReplayer(provider, base, max), 20L, 20L);
+    }
+
+    private void schedulePoolCheck() {
+        if (poolCheckTask != null) {
+            try { poolCheckTask.cancel(); } catch (Exception ignored) {}
+            poolCheckTask = null;
+        }
+        if (database == null || !database.isEnabled()) {
+            return;
+        }
+        long ticks = 20L * Math.max(1L, getConfig().getLong("storage.mysql.pool.check_seconds", 10L));
+        final Database db = database;
+        poolCheckTask = getServer().getScheduler().runTaskTimerAsynchronously(this, new Runnable() {
+            @Override public void run() { db.checkPool(); }
+        }, ticks, ticks);
+    }
+
+    private void scheduleReplicaLagCheck() {
+        if (replicaLagTask != null) {
+            try { replicaLagTask.cancel(); } catch (Exception ignored) {}
+            replicaLagTask = null;
+        }
+        if (database == null || !database.hasReplica()) {
+            return;
+        }
+        long ticks = 20L * Math.max(1L, getConfig().getLong("storage.mysql.replica.lag_check_seconds", 5L));
+        final Database db = database;
+        replicaLagTask = getServer().getScheduler().runTaskTimerAsynchronously(this, new Runnable() {
+            @Override public void run() { db.refreshReplicaLag(); }
+        }, ticks, ticks);
+    }
+
+    private void scheduleEconomyJobs(SimpleEconomy provider) {
+        if (economyJobsTask != null) {
+            try { economyJobsTask.cancel(); } catch (Exception ignored) {}
+            economyJobsTask = null;
+        }
+        if (!getConfig().getBoolean("economy_jobs.enabled", false)) {
+            economyJobs = null;
+            return;
+        }
+        final EconomyJobs jobs = new EconomyJobs(this, provider);
+        economyJobs = jobs;
+        long ticks = 20L * 60L * Math.max(1L, getConfig().getLong("economy_jobs.check_minutes", 5L));
+        // Sync timer: due rules snapshot online players here, the run itself is async
+        economyJobsTask = getServer().getScheduler().runTaskTimer(this, new Runnable() {
+            @Override public void run() { jobs.tick(); }
+        }, ticks, ticks);
+    }
+
+    private void startAuditLog(SimpleEconomy provider) {
+        stopAuditLog();
+        if (!getConfig().getBoolean("audit.enabled", false)) {
+            return;
+        }
+        auditLog = new AuditLog(this);
+        provider.addObserver(auditLog);
+    }
+
+    private void stopAuditLog() {
+        if (auditLog != null) {
+            if (economy instanceof SimpleEconomy) ((SimpleEconomy) economy).removeObserver(auditLog);
+            try { auditLog.close(); } catch (Exception ignored) {}
+            auditLog = null;
+        }
+    }
+
+    private void startVelocityGuard(SimpleEconomy provider) {
+        if (velocityTask != null) {
+            try { velocityTask.cancel(); } catch (Exception ignored) {}
+            velocityTask = null;
+        }
+        if (velocityGuard != null) {
+            provider.removeObserver(velocityGuard);
+            velocityGuard = null;
+        }
+        if (!getConfig().getBoolean("velocity.enabled", false)) {
+            return;
+        }
+        final VelocityGuard guard = new VelocityGuard(this, provider);
+        velocityGuard = guard;
+        provider.addObserver(guard);
+        long ticks = 20L * Math.max(1L, getConfig().getLong("velocity.window_seconds", 60L));
+        velocityTask = getServer().getScheduler().runTaskTimerAsynchronously(this, new Runnable() {
+            @Override public void run() { guard.evictIdle(); }
+        }, ticks, ticks);
+    }
+
+    private void scheduleHistory(SimpleEconomy provider) {
+        if (historyTask != null) {
+            try { historyTask.cancel(); } catch (Exception ignored) {}
+            historyTask = null;
+        }
+        if (!getConfig().getBoolean("history.enabled", true)) {
+            final TransactionHistory old = history;
+            if (old != null) {
+                provider.removeObserver(old);
+                history = null;
+                getServer().getScheduler().runTaskAsynchronously(this, new Runnable() {
+                    @Override public void run() { old.flush(); }
+                });
+            }
+            return;
+        }
+        if (history == null) {
+            history = new TransactionHistory(this);
+            provider.addObserver(history);
+        }
+        final TransactionHistory h = history;
+        long ticks = Math.max(1L, getConfig().getLong("history.flush_ticks", 40L));
+        historyTask = getServer().getScheduler().runTaskTimerAsynchronously(this, new Runnable() {
+            @Override public void run() { h.flush(); }
+        }, ticks, ticks);
+    }
+
+    /**
+     * Last step of /vault migrate, on the server thread. The economy already
+     * writes to the new backend; this moves charge requests and the background
+     * tasks over, closes the old pool and stores the choice in config.yml.
+     * carriedRequests are the old database's pending requests when leaving MySQL.
+     */
+    public void completeStorageSwitch(Database newDatabase, java.util.List<Database.ChargeRequest> carriedRequests) {
+        final Database old = database;
+        database = newDatabase;
+        if (chargeRequestService != null) {
+            if (newDatabase != null) {
+                final java.util.List<Database.ChargeRequest> unsaved;
+                if (old != null && old.isEnabled()) {
+                    // Another MySQL server: everything queued on the old one gets a new id here
+                    unsaved = chargeRequestService.detachAll();
+                    unsaved.addAll(carriedRequests);
+                } else {
+                    unsaved = chargeRequestService.detachUnsaved();
+                }
+                chargeRequestService.setDatabase(newDatabase);
+                getServer().getScheduler().runTaskAsynchronously(this, new Runnable() {
+                    @Override public void run() {
+                        try {
+                            newDatabase.insertPendingRequests(unsaved);
+                        } catch (java.sql.SQLException ex) {
+                            getLogger().warning("Failed to copy " + unsaved.size() + " pending charge request(s) to MySQL: " + ex.getMessage());
+                        }
+                    }
+                });
+            } else {
+                chargeRequestService.setDatabase(null);
+                chargeRequestService.attach(carriedRequests);
+            }
+        }
+        if (economy instanceof SimpleEconomy) {
+            // Incremental autosave only applies to YAML
+            scheduleAutosave((SimpleEconomy) economy);
+            scheduleSync((SimpleEconomy) economy);
+            scheduleSpoolReplay((SimpleEconomy) economy);
+        }
+        scheduleReplicaLagCheck();
+        schedulePoolCheck();
+        startMetricsExporter();
+        if (newDatabase != null) newDatabase.getMainThreadGuard().setArmed(true);
+        if (old != null) {
+            old.getMainThreadGuard().setArmed(false);
+            getServer().getScheduler().runTaskAsynchronously(this, new Runnable() {
+                @Override public void run() { old.close(); }
+            });
+        }
+        getConfig().set("storage.use_mysql", newDatabase != null);
+        saveConfig();
+    }
+
+    public Economy getEconomy() {
+        return economy;
+    }
+
+    public Database getDatabase() {
+        return database;
+    }
+
+    /** Null when velocity limits are disabled. */
+    public VelocityGuard getVelocityGuard() {
+        return velocityGuard;
+    }
+
+    /** Null when history is disabled. */
+    public TransactionHistory getHistory() {
+        return history;
+    }
+
+    /** Null when economy_jobs is disabled. */
+    public EconomyJobs getEconomyJobs() {
+        return economyJobs;
+    }
+
+    private void startMetricsExporter() {
+        stopMetricsExporter();
+        if (!getConfig().getBoolean("metrics.exporter.enabled", false) || !(economy instanceof SimpleEconomy)) {
+            return;
+        }
+        String bind = getConfig().getString("metrics.exporter.bind", "127.0.0.1");
+        int port = getConfig().getInt("metrics.exporter.port", 9465);
+        String path = getConfig().getString("metrics.exporter.path", "/metrics");
+        MetricsExporter exporter = new MetricsExporter((SimpleEconomy) economy, database, chargeRequestService);
+        try {
+            exporter.start(bind, port, path);
+            metricsExporter = exporter;
+            getLogger().info("Metrics exporter listening on http://" + bind + ":" + port + path);
+        } catch (java.io.IOException | RuntimeException ex) {
+            getLogger().warning("Failed to start metrics exporter on " + bind + ":" + port + ": " + ex.getMessage());
+        }
+    }
+
+    private void stopMetricsExporter() {
+        if (metricsExporter != null) {
+            try { metricsExporter.stop(); } catch (Exception ignored) {}
+            metricsExporter = null;
+        }
+    }
+
     private void scheduleUpdateCheck() {
         // Cancel previous if any
         if (updateCheckTask != null) {
@@ -0,0 +1,82 @@
+package com.example.vault;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.util.logging.Logger;
+
+/**
+ * Validated, immutable copy of the config values read on hot paths (commands,
+ * the async chat listener, menus) and by background jobs. Built on enable and on /vault reload and
+ * swapped in as a whole, so readers on any thread never touch FileConfiguration.
+ */
+public final class VaultSettings {
+
+    private static volatile VaultSettings current = new VaultSettings(new YamlConfiguration(), null);
+
+    // A null permission means the check is disabled
+    public final String permBalanceUse;
+    public final String permPayUse;
+    public final String permPayBypassMin;
+    public final String permPayBypassMax;
+    // ≤0 disables the limit
+    public final double payMin;
+    public final double payMax;
+    public final int payMenuSize;
+    public final boolean payMenuShowSelf;
+    public final int payPendingMaxOnJoin;
+    public final boolean offlineUuidFallback;
+    public final int historyPageSize;
+    public final int bulkBatchSize;
+    public final int bulkThreads;
+    public final int transferBatchSize;
+
+    private VaultSettings(ConfigurationSection config, Logger logger) {
+        this.permBalanceUse = permission(config.getString("permissions.balance_use", "vault.balance"));
+        this.permPayUse = permission(config.getString("permissions.pay_use", "vault.pay"));
+        this.permPayBypassMin = config.getString("permissions.pay_bypass_min", "vault.pay.bypass_min");
+        this.permPayBypassMax = config.getString("permissions.pay_bypass_max", "vault.pay.bypass_max");
+        this.payMin = config.getDouble("pay_limits.min", 0.0);
+        this.payMax = config.getDouble("pay_limits.max", 0.0);
+        if (payMin > 0 && payMax > 0 && payMin > payMax) {
+            warn(logger, "pay_limits.min (" + payMin + ") is above pay_limits.max (" + payMax + "); no amount can be paid");
+        }
+        int size = config.getInt("pay_menu.size", 27);
+        if (size % 9 != 0 || size < 9 || size > 54) {
+            warn(logger, "pay_menu.size must be a multiple of 9 between 9 and 54, using 27");
+            size = 27;
+        }
+        this.payMenuSize = size;
+        this.payMenuShowSelf = config.getBoolean("pay_menu.show_self", false);
+        this.payPendingMaxOnJoin = Math.max(0, config.getInt("pay_pending.max_on_join", 5));
+        this.offlineUuidFallback = config.getBoolean("offline-uuid-fallback", true);
+        this.historyPageSize = Math.max(1, config.getInt("history.page_size", 10));
+        this.bulkBatchSize = Math.max(1, config.getInt("storage.bulk.batch_size", 500));
+        this.bulkThreads = Math.max(1, config.getInt("storage.bulk.threads", 4));
+        this.transferBatchSize = Math.max(1, config.getInt("transfer.batch_size", 1000));
+    }
+
+    /** The last published snapshot (defaults until the plugin loads its config). */
+    public static VaultSettings get() {
+        return current;
+    }
+
+    /** Reads and publishes a new snapshot; call on the thread that owns the config. */
+    public static VaultSettings load(ConfigurationSection config, Logger logger) {
+        VaultSettings settings = new VaultSettings(config, logger);
+        current = settings;
+        return settings;
+    }
+
+    // "", "none" and "disabled" turn a permission check off
+    private static String permission(String node) {
+        if (node == null) return null;
+        String p = node.trim();
+        if (p.isEmpty() || p.equalsIgnoreCase("none") || p.equalsIgnoreCase("disabled")) return null;
+        return p;
+    }
+
+    private static void warn(Logger logger, String message) {
+        if (logger != null) logger.warning(message);
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.vault.audit;
+
+import com.example.vault.economy.LedgerObserver;
+import com.example.vault.metrics.Metrics;
+import com.example.vault.metrics.OpStats;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Audit trail of every balance change (config audit). The economy publishes
+ * into a lock-free ring buffer; one background thread drains it in batches
+ * into gzip files under audit/, rotated daily and by size. When the buffer
+ * is full the backpressure policy decides: drop the event, block the caller,
+ * or sample. Dropped and sampled-out events are counted in /vault stats.
+ */
+public final class AuditLog implements LedgerObserver {
+    private static final OpStats WRITE = Metrics.op("audit.write");
+    private static final LedgerObserver.Type[] TYPES = LedgerObserver.Type.values();
+    private static final int BATCH = 4096;
+
+    private final Plugin plugin;
+    private final AuditRing ring;
+    private final File dir;
+    private final long rotateBytes;
+    private final long retentionMs;
+    private final Thread consumer;
+    private volatile boolean running = true;
+
+    // Consumer-thread state
+    private final AuditRing.Reader reader = this::write;
+    private final StringBuilder line = new StringBuilder(160);
+    private Writer out;
+    private CountingStream counter;
+    private String openDay;
+    private long dayStart;
+    private int openPart;
+
+    public AuditLog(Plugin plugin) {
+        this.plugin = plugin;
+        AuditRing.Backpressure policy;
+        try {
+            policy = AuditRing.Backpressure.valueOf(plugin.getConfig().getString("audit.backpressure", "drop").trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            plugin.getLogger().warning("Unknown audit.backpressure, using drop");
+            policy = AuditRing.Backpressure.DROP;
+        }
+        this.ring = new AuditRing(plugin.getConfig().getInt("audit.buffer_size", 65536), policy,
+                plugin.getConfig().getInt("audit.sample_rate", 10));
+        this.dir = new File(plugin.getDataFolder(), "audit");
+        this.rotateBytes = Math.max(1L, plugin.getConfig().getLong("audit.rotate_mb", 64L)) * 1024L * 1024L;
+        this.retentionMs = plugin.getConfig().getLong("audit.retention_days", 30L) * 86_400_000L;
+        this.consumer = new Thread(this::consume, "Vault-Audit");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    @Override
+    public void onChange(UUID account, Type type, UUID counterparty, double amount, double balance) {
+        ring.publish(System.currentTimeMillis(), account, type.ordinal(), counterparty, amount, balance);
+    }
+
+    /** Stops the consumer after it has written everything already published. */
+    public void close() {
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void consume() {
+        long lastFlush = System.nanoTime();
+        while (true) {
+            boolean stopping = !running;
+            int n;
+            long start = System.nanoTime();
+            try {
+                n = ring.drain(reader, BATCH);
+                if (n > 0) WRITE.record(start);
+                if (out != null && (n == 0 || System.nanoTime() - lastFlush > 1_000_000_000L)) {
+                    out.flush();
+                    lastFlush = System.nanoTime();
+                }
+            } catch (IOException | java.io.UncheckedIOException ex) {
+                // Unwritten events stay in the ring (backpressure applies) and are retried
+                WRITE.recordFailure(start);
+                plugin.getLogger().warning("Audit log write failed, retrying in a second: " + ex.getMessage());
+                closeFile();
+                if (stopping) break;
+                LockSupport.parkNanos(1_000_000_000L);
+                continue;
+            }
+            if (n == 0) {
+                if (stopping) break;
+                LockSupport.parkNanos(5_000_000L);
+            }
+        }
+        closeFile();
+    }
+
+    private void write(long seq, long time, long accountHigh, long accountLow, int type,
+                       long counterpartyHigh, long counterpartyLow, double amount, double balance) {
+        try {
+            if (out == null || time < dayStart || time >= dayStart + 86_400_000L || counter.count >= rotateBytes) open(time);
+            line.setLength(0);
+            line.append(java.time.Instant.ofEpochMilli(time)).append(',').append(seq).append(',')
+                    .append(new UUID(accountHigh, accountLow)).append(',').append(TYPES[type].name()).append(',');
+            if (counterpartyHigh != 0L || counterpartyLow != 0L) line.append(new UUID(counterpartyHigh, counterpartyLow));
+            line.append(',').append(amount).append(',').append(balance).append('\n');
+            out.append(line);
+        } catch (IOException ex) {
+            throw new java.io.UncheckedIOException(ex);
+        }
+    }
+
+    private void open(long time) throws IOException {
+        closeFile();
+        String day = java.time.Instant.ofEpochMilli(time).toString().substring(0, 10);
+        dayStart = Math.floorDiv(time, 86_400_000L) * 86_400_000L;
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        int part = day.equals(openDay) ? openPart + 1 : 1;
+        File file;
+        while ((file = new File(dir, "audit-" + day + "-" + part + ".csv.gz")).exists()) part++;
+        counter = new CountingStream(new FileOutputStream(file));
+        // Fastest level: the consumer has to keep up with the economy, size matters less
+        out = new OutputStreamWriter(new GZIPOutputStream(counter, 64 * 1024, true) {
+            { def.setLevel(java.util.zip.Deflater.BEST_SPEED); }
+        }, StandardCharsets.UTF_8);
+        openDay = day;
+        openPart = part;
+        pruneOldFiles();
+    }
+
+    private void closeFile() {
+        if (out == null) return;
+        try {
+            out.close();
+        } catch (IOException ex) {
+            plugin.getLogger().warning("Failed to close audit file: " + ex.getMessage());
+        }
+        out = null;
+    }
+
+    private void pruneOldFiles() {
+        if (retentionMs <= 0) return;
+        File[] files = dir.listFiles((d, name) -> name.startsWith("audit-") && name.endsWith(".csv.gz"));
+        if (files == null) return;
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        for (File f : files) {
+            if (f.lastModified() < cutoff && !f.delete()) {
+                plugin.getLogger().warning("Failed to delete old audit file " + f.getName());
+            }
+        }
+    }
+
+    // Compressed bytes written to the current file, for size-based rotation
+    private static final class CountingStream extends java.io.FilterOutputStream {
+        long count;
+
+        CountingStream(java.io.OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.vault.audit;
+
+import com.example.vault.metrics.Metrics;
+import com.example.vault.metrics.OpStats;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Multi-producer, single-consumer ring of preallocated event slots, laid out
+ * as parallel primitive arrays. A producer claims a sequence with one CAS,
+ * fills the slot and publishes it by writing the sequence into the slot's
+ * marker; the consumer reads slots in order until it finds one that is not
+ * published yet. Publishing allocates nothing and takes no lock.
+ */
+final class AuditRing {
+    enum Backpressure { DROP, BLOCK, SAMPLE }
+
+    private static final OpStats DROPPED = Metrics.op("audit.dropped");
+    private static final OpStats SAMPLED_OUT = Metrics.op("audit.sampled_out");
+
+    private final int mask;
+    private final long[] time;
+    private final long[] accountHigh;
+    private final long[] accountLow;
+    private final long[] counterpartyHigh;
+    private final long[] counterpartyLow;
+    private final double[] amount;
+    private final double[] balance;
+    private final byte[] type;
+    private final AtomicLongArray published; // sequence stored in each slot once readable
+    private final AtomicLong claimed = new AtomicLong(-1L);
+    private volatile long consumed = -1L;    // last sequence the consumer is done with
+    private final Backpressure backpressure;
+    private final int sampleRate;
+    private final AtomicLong offered = new AtomicLong();
+
+    AuditRing(int requestedSize, Backpressure backpressure, int sampleRate) {
+        int size = Integer.highestOneBit(Math.max(64, Math.min(1 << 24, requestedSize) - 1)) << 1;
+        this.mask = size - 1;
+        this.time = new long[size];
+        this.accountHigh = new long[size];
+        this.accountLow = new long[size];
+        this.counterpartyHigh = new long[size];
+        this.counterpartyLow = new long[size];
+        this.amount = new double[size];
+        this.balance = new double[size];
+        this.type = new byte[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) published.set(i, -1L);
+        this.backpressure = backpressure;
+        this.sampleRate = Math.max(1, sampleRate);
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /** Returns false when the event was dropped or sampled out. */
+    boolean publish(long when, UUID account, int typeOrdinal, UUID counterparty, double change, double newBalance) {
+        if (backpressure == Backpressure.SAMPLE && claimed.get() - consumed > capacity() / 2
+                && offered.incrementAndGet() % sampleRate != 0) {
+            // Above half full: keep one event in sampleRate
+            SAMPLED_OUT.increment();
+            return false;
+        }
+        long seq;
+        while (true) {
+            long current = claimed.get();
+            seq = current + 1;
+            if (seq - consumed > capacity()) {
+                if (backpressure != Backpressure.BLOCK) {
+                    DROPPED.increment();
+                    return false;
+                }
+                LockSupport.parkNanos(10_000L);
+                continue;
+            }
+            if (claimed.compareAndSet(current, seq)) break;
+        }
+        int slot = (int) seq & mask;
+        time[slot] = when;
+        accountHigh[slot] = account.getMostSignificantBits();
+        accountLow[slot] = account.getLeastSignificantBits();
+        counterpartyHigh[slot] = counterparty != null ? counterparty.getMostSignificantBits() : 0L;
+        counterpartyLow[slot] = counterparty != null ? counterparty.getLeastSignificantBits() : 0L;
+        amount[slot] = change;
+        balance[slot] = newBalance;
+        type[slot] = (byte) typeOrdinal;
+        published.lazySet(slot, seq); // ordered after the plain writes above
+        return true;
+    }
+
+    /** Slot-reading callback for {@link #drain}. */
+    interface Reader {
+        void read(long seq, long time, long accountHigh, long accountLow, int type,
+                  long counterpartyHigh, long counterpartyLow, double amount, double balance);
+    }
+
+    /**
+     * Consumer only: reads up to max published events in order; returns how many.
+     * When the reader throws, the events it already took stay consumed and the
+     * failed one is read again next time.
+     */
+    int drain(Reader reader, int max) {
+        long next = consumed + 1;
+        int n = 0;
+        try {
+            while (n < max) {
+                int slot = (int) next & mask;
+                if (published.get(slot) != next) break;
+                reader.read(next, time[slot], accountHigh[slot], accountLow[slot], type[slot],
+                        counterpartyHigh[slot], counterpartyLow[slot], amount[slot], balance[slot]);
+                next++;
+                n++;
+            }
+        } finally {
+            if (n > 0) consumed = next - 1; // frees the slots for producers
+        }
+        return n;
+    }
+}
@@ -6,6 +6,7 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
+import com.example.vault.VaultSettings;
 import com.example.vault.i18n.Messages;
 
 
@@ -27,15 +28,10 @@ public class BalanceCommand implements CommandExecutor {
             return true;
         }
         Player player = (Player) sender;
-        String permBalance = plugin.getConfig().getString("permissions.balance_use", "vault.balance");
-        if (permBalance != null) {
-            String p = permBalance.trim();
-            if (!(p.isEmpty() || p.equalsIgnoreCase("none") || p.equalsIgnoreCase("disabled"))) {
-                if (!player.hasPermission(p)) {
-                    player.sendMessage(messages.chat("balance.no_permission"));
-                    return true;
-                }
-            }
+        String permBalance = VaultSettings.get().permBalanceUse;
+        if (permBalance != null && !player.hasPermission(permBalance)) {
+            player.sendMessage(messages.chat("balance.no_permission"));
+            return true;
         }
         economy.createPlayerAccount(player);
         double bal = economy.getBalance(player);
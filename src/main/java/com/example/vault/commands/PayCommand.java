@@ -8,6 +8,8 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
+import com.example.vault.VaultSettings;
+import com.example.vault.economy.SimpleEconomy;
 import com.example.vault.menu.PayMenuService;
 import com.example.vault.i18n.Messages;
 
@@ -32,15 +34,10 @@ public class PayCommand implements CommandExecutor {
             return true;
         }
         Player player = (Player) sender;
-        String permPay = plugin.getConfig().getString("permissions.pay_use", "vault.pay");
-        if (permPay != null) {
-            String p = permPay.trim();
-            if (!(p.isEmpty() || p.equalsIgnoreCase("none") || p.equalsIgnoreCase("disabled"))) {
-                if (!player.hasPermission(p)) {
-                    player.sendMessage(messages.chat("pay.no_permission"));
-                    return true;
-                }
-            }
+        VaultSettings settings = VaultSettings.get();
+        if (settings.permPayUse != null && !player.hasPermission(settings.permPayUse)) {
+            player.sendMessage(messages.chat("pay.no_permission"));
+            return true;
         }
         if (args.length == 0) {
             payMenuService.openMainMenu(player);
@@ -69,15 +66,13 @@ public class PayCommand implements CommandExecutor {
                 player.sendMessage(messages.chat("pay.invalid_amount"));
                 return true;
             }
-            String permBypassMin = plugin.getConfig().getString("permissions.pay_bypass_min", "vault.pay.bypass_min");
-            String permBypassMax = plugin.getConfig().getString("permissions.pay_bypass_max", "vault.pay.bypass_max");
-            double min = plugin.getConfig().getDouble("pay_limits.min", 0.0);
-            double max = plugin.getConfig().getDouble("pay_limits.max", 0.0);
-            if (min > 0 && amount < min && !player.hasPermission(permBypassMin)) {
+            double min = settings.payMin;
+            double max = settings.payMax;
+            if (min > 0 && amount < min && !player.hasPermission(settings.permPayBypassMin)) {
                 player.sendMessage(messages.formatChat("pay.amount_too_small", java.util.Collections.singletonMap("min", economy.format(min))));
                 return true;
             }
-            if (max > 0 && amount > max && !player.hasPermission(permBypassMax)) {
+            if (max > 0 && amount > max && !player.hasPermission(settings.permPayBypassMax)) {
                 player.sendMessage(messages.formatChat("pay.amount_too_large", java.util.Collections.singletonMap("max", economy.format(max))));
                 return true;
             }
@@ -87,12 +82,20 @@ public class PayCommand implements CommandExecutor {
                 player.sendMessage(messages.chat("pay.not_enough_money"));
                 return true;
             }
-            EconomyResponse resp = economy.withdrawPlayer(player, amount);
-            if (!resp.transactionSuccess()) {
-                player.sendMessage(messages.chat("pay.withdraw_failed"));
-                return true;
+            if (economy instanceof SimpleEconomy) {
+                // Both sides land in the history with the other player as counterparty
+                if (!((SimpleEconomy) economy).transfer(player, target, amount).transactionSuccess()) {
+                    player.sendMessage(messages.chat("pay.withdraw_failed"));
+                    return true;
+                }
+            } else {
+                EconomyResponse resp = economy.withdrawPlayer(player, amount);
+                if (!resp.transactionSuccess()) {
+                    player.sendMessage(messages.chat("pay.withdraw_failed"));
+                    return true;
+                }
+                economy.depositPlayer(target, amount);
             }
-            economy.depositPlayer(target, amount);
             java.util.Map<String, String> placeholders = new java.util.HashMap<>();
             placeholders.put("player", target.getName());
             placeholders.put("amount", economy.format(amount));
@@ -1,7 +1,21 @@
 package com.example.vault.commands;
 
 import com.example.vault.VaultPlugin;
+import com.example.vault.VaultSettings;
+import com.example.vault.economy.BulkOperation;
+import com.example.vault.economy.EconomyJobs;
+import com.example.vault.economy.SimpleEconomy;
+import com.example.vault.economy.VelocityGuard;
+import com.example.vault.history.HistoryEntry;
+import com.example.vault.history.TransactionHistory;
 import com.example.vault.i18n.Messages;
+import com.example.vault.metrics.Metrics;
+import com.example.vault.transfer.ExportJob;
+import com.example.vault.transfer.ImportJob;
+import com.example.vault.transfer.MigrationJob;
+import com.example.vault.transfer.TransferJob;
+import com.example.vault.util.PlayerResolver;
+import net.milkbowl.vault.economy.Economy;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -19,7 +33,7 @@ public class VaultCommand implements CommandExecutor {
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
         if (args.length == 0) {
-            sender.sendMessage(messages.prefix() + "Usage: /vault reload|update");
+            sender.sendMessage(messages.prefix() + "Usage: /vault reload|update|stats|eco|jobs|history|velocity|import|export|migrate");
             return true;
         }
         String sub = args[0].toLowerCase();
@@ -28,7 +42,7 @@ public class VaultCommand implements CommandExecutor {
                 sender.sendMessage(messages.chat("cmd.vault.no_permission"));
                 return true;
             }
-            plugin.reloadPluginState();
+            plugin.reloadPluginState(line -> plugin.getServer().getScheduler().runTask(plugin, () -> sender.sendMessage(messages.prefix() + line)));
             String lang = plugin.getConfig().getString("language", "en");
             sender.sendMessage(messages.formatChat("plugin.reloaded", java.util.Collections.singletonMap("lang", lang)));
             return true;
@@ -42,7 +56,455 @@ public class VaultCommand implements CommandExecutor {
             plugin.runUpdateCheckAndAnnounce(sender);
             return true;
         }
-        sender.sendMessage(messages.prefix() + "Usage: /vault reload|update");
+        if ("stats".equals(sub)) {
+            if (sender instanceof Player && !sender.isOp()) {
+                sender.sendMessage(messages.chat("cmd.vault.no_permission"));
+                return true;
+            }
+            handleStats(sender, args);
+            return true;
+        }
+        if ("eco".equals(sub)) {
+            if (sender instanceof Player && !sender.isOp()) {
+                sender.sendMessage(messages.chat("cmd.vault.no_permission"));
+                return true;
+            }
+            handleEco(sender, args);
+            return true;
+        }
+        if ("jobs".equals(sub)) {
+            if (sender instanceof Player && !sender.isOp()) {
+                sender.sendMessage(messages.chat("cmd.vault.no_permission"));
+                return true;
+            }
+            handleJobs(sender, args);
+            return true;
+        }
+        if ("history".equals(sub)) {
+            // Players may read their own history; other players' history is OP-only
+            handleHistory(sender, args);
+            return true;
+        }
+        if ("velocity".equals(sub)) {
+            if (sender instanceof Player && !sender.isOp()) {
+                sender.sendMessage(messages.chat("cmd.vault.no_permission"));
+                return true;
+            }
+            handleVelocity(sender, args);
+            return true;
+        }
+        if ("import".equals(sub) || "export".equals(sub)) {
+            if (sender instanceof Player && !sender.isOp()) {
+                sender.sendMessage(messages.chat("cmd.vault.no_permission"));
+                return true;
+            }
+            handleTransfer(sender, sub, args);
+            return true;
+        }
+        if ("migrate".equals(sub)) {
+            if (sender instanceof Player && !sender.isOp()) {
+                sender.sendMessage(messages.chat("cmd.vault.no_permission"));
+                return true;
+            }
+            handleMigrate(sender, args);
+            return true;
+        }
+        sender.sendMessage(messages.prefix() + "Usage: /vault reload|update|stats|eco|jobs|history|velocity|import|export|migrate");
         return true;
     }
+
+    private static final String ECO_USAGE = "Usage: /vault eco give|take|set <selector> <amount> | reset <selector>."
+            + " Selectors: all, online, below:<x>, above:<x>, between:<min>:<max>, players:<name,name,...>";
+
+    private void handleEco(CommandSender sender, String[] args) {
+        if (args.length < 3) {
+            sender.sendMessage(messages.prefix() + ECO_USAGE);
+            return;
+        }
+        BulkOperation.Action action;
+        try {
+            action = BulkOperation.Action.valueOf(args[1].toUpperCase(java.util.Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            sender.sendMessage(messages.prefix() + ECO_USAGE);
+            return;
+        }
+        double amount = 0.0;
+        if (action != BulkOperation.Action.RESET) {
+            if (args.length < 4) {
+                sender.sendMessage(messages.prefix() + ECO_USAGE);
+                return;
+            }
+            try {
+                amount = Double.parseDouble(args[3]);
+            } catch (NumberFormatException ex) {
+                amount = -1.0;
+            }
+            if (!(amount >= 0.0) || Double.isInfinite(amount)) {
+                sender.sendMessage(messages.chat("pay.invalid_amount"));
+                return;
+            }
+        }
+        if (!(plugin.getEconomy() instanceof SimpleEconomy)) {
+            sender.sendMessage(messages.prefix() + "Bulk operations need the built-in economy.");
+            return;
+        }
+        if (BulkOperation.isRunning()) {
+            sender.sendMessage(messages.prefix() + "Another bulk operation is still running.");
+            return;
+        }
+
+        // Selectors naming players are resolved here, on the server thread
+        String selector = args[2];
+        String lower = selector.toLowerCase(java.util.Locale.ROOT);
+        java.util.Collection<java.util.UUID> targets = null;
+        java.util.function.DoublePredicate filter = null;
+        try {
+            if (lower.equals("all")) {
+                filter = b -> true;
+            } else if (lower.equals("online")) {
+                targets = new java.util.ArrayList<>();
+                for (Player p : plugin.getServer().getOnlinePlayers()) targets.add(p.getUniqueId());
+            } else if (lower.startsWith("below:")) {
+                double max = Double.parseDouble(selector.substring(6));
+                filter = b -> b < max;
+            } else if (lower.startsWith("above:")) {
+                double min = Double.parseDouble(selector.substring(6));
+                filter = b -> b > min;
+            } else if (lower.startsWith("between:")) {
+                String[] range = selector.substring(8).split(":");
+                if (range.length != 2) throw new NumberFormatException(selector);
+                double min = Double.parseDouble(range[0]);
+                double max = Double.parseDouble(range[1]);
+                filter = b -> b >= min && b <= max;
+            } else if (lower.startsWith("players:")) {
+                targets = new java.util.LinkedHashSet<>();
+                java.util.List<String> unknown = new java.util.ArrayList<>();
+                for (String name : selector.substring(8).split(",")) {
+                    if (name.trim().isEmpty()) continue;
+                    org.bukkit.OfflinePlayer p = PlayerResolver.resolveByNameWithOfflineFallback(plugin, name.trim());
+                    if (p == null) unknown.add(name.trim());
+                    else targets.add(p.getUniqueId());
+                }
+                if (!unknown.isEmpty()) {
+                    sender.sendMessage(messages.prefix() + "Unknown player(s): " + String.join(", ", unknown));
+                    return;
+                }
+            } else {
+                sender.sendMessage(messages.prefix() + ECO_USAGE);
+                return;
+            }
+        } catch (NumberFormatException ex) {
+            sender.sendMessage(messages.prefix() + "Invalid selector: " + selector);
+            return;
+        }
+
+        String description = "eco " + action.name().toLowerCase(java.util.Locale.ROOT)
+                + (action == BulkOperation.Action.RESET ? "" : " " + amount) + " on " + selector + " (by " + sender.getName() + ")";
+        sender.sendMessage(messages.prefix() + "Started " + description + "...");
+        BulkOperation op = new BulkOperation(plugin, (SimpleEconomy) plugin.getEconomy(), action, amount, targets, filter, description,
+                line -> plugin.getServer().getScheduler().runTask(plugin, () -> sender.sendMessage(messages.prefix() + line)));
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, op);
+    }
+
+    private static final String IMPORT_USAGE = "Usage: /vault import <csv|jsonl|essentials> <file or folder> [fresh]";
+    private static final String EXPORT_USAGE = "Usage: /vault export <csv|jsonl> [file] [fresh]";
+
+    private void handleTransfer(CommandSender sender, String sub, String[] args) {
+        boolean export = "export".equals(sub);
+        int argc = args.length;
+        boolean fresh = argc > 2 && "fresh".equalsIgnoreCase(args[argc - 1]);
+        if (fresh) argc--;
+        if (argc < (export ? 2 : 3) || argc > 3) {
+            sender.sendMessage(messages.prefix() + (export ? EXPORT_USAGE : IMPORT_USAGE));
+            return;
+        }
+        if (!(plugin.getEconomy() instanceof SimpleEconomy)) {
+            sender.sendMessage(messages.prefix() + "Import and export need the built-in economy.");
+            return;
+        }
+        if (TransferJob.isRunning()) {
+            sender.sendMessage(messages.prefix() + "Another import, export or migration is still running.");
+            return;
+        }
+        if (!((SimpleEconomy) plugin.getEconomy()).isReady()) {
+            sender.sendMessage(messages.prefix() + "Balances are still loading, try again shortly.");
+            return;
+        }
+        SimpleEconomy economy = (SimpleEconomy) plugin.getEconomy();
+        java.util.function.Consumer<String> progress =
+                line -> plugin.getServer().getScheduler().runTask(plugin, () -> sender.sendMessage(messages.prefix() + line));
+        String format = args[1].toUpperCase(java.util.Locale.ROOT);
+        TransferJob job;
+        try {
+            if (export) {
+                // Relative export paths land in plugins/Vault/exports
+                java.io.File file = null;
+                if (argc == 3) {
+                    file = new java.io.File(args[2]);
+                    if (!file.isAbsolute()) file = new java.io.File(new java.io.File(plugin.getDataFolder(), "exports"), args[2]);
+                }
+                job = new ExportJob(plugin, economy, ExportJob.Format.valueOf(format), file, fresh, progress);
+            } else {
+                // Relative import paths are tried from the server folder, then from plugins/Vault
+                java.io.File source = new java.io.File(args[2]);
+                if (!source.isAbsolute() && !source.exists()) source = new java.io.File(plugin.getDataFolder(), args[2]);
+                ImportJob.Format fmt = ImportJob.Format.valueOf(format);
+                if (fmt == ImportJob.Format.ESSENTIALS ? !source.isDirectory() : !source.isFile()) {
+                    sender.sendMessage(messages.prefix() + "Not found: " + args[2]);
+                    return;
+                }
+                job = new ImportJob(plugin, economy, fmt, source, fresh, progress);
+            }
+        } catch (IllegalArgumentException ex) {
+            sender.sendMessage(messages.prefix() + (export ? EXPORT_USAGE : IMPORT_USAGE));
+            return;
+        }
+        sender.sendMessage(messages.prefix() + "Started " + sub + "...");
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, job);
+    }
+
+    private void handleMigrate(CommandSender sender, String[] args) {
+        MigrationJob.Backend from;
+        MigrationJob.Backend to;
+        try {
+            if (args.length != 3) throw new IllegalArgumentException();
+            from = MigrationJob.Backend.valueOf(args[1].toUpperCase(java.util.Locale.ROOT));
+            to = MigrationJob.Backend.valueOf(args[2].toUpperCase(java.util.Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            sender.sendMessage(messages.prefix() + "Usage: /vault migrate <yaml|mysql> <yaml|mysql>");
+            return;
+        }
+        if (!(plugin.getEconomy() instanceof SimpleEconomy)) {
+            sender.sendMessage(messages.prefix() + "Migration needs the built-in economy.");
+            return;
+        }
+        if (TransferJob.isRunning()) {
+            sender.sendMessage(messages.prefix() + "Another import, export or migration is still running.");
+            return;
+        }
+        if (!((SimpleEconomy) plugin.getEconomy()).isReady()) {
+            sender.sendMessage(messages.prefix() + "Balances are still loading, try again shortly.");
+            return;
+        }
+        sender.sendMessage(messages.prefix() + "Started migration from " + args[1] + " to " + args[2] + "...");
+        MigrationJob job = new MigrationJob(plugin, (SimpleEconomy) plugin.getEconomy(), from, to,
+                line -> plugin.getServer().getScheduler().runTask(plugin, () -> sender.sendMessage(messages.prefix() + line)));
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, job);
+    }
+
+    private void handleJobs(CommandSender sender, String[] args) {
+        EconomyJobs jobs = plugin.getEconomyJobs();
+        if (jobs == null) {
+            sender.sendMessage(messages.prefix() + "Economy jobs are disabled (economy_jobs.enabled).");
+            return;
+        }
+        String action = args.length > 1 ? args[1].toLowerCase() : "";
+        if (("run".equals(action) || "dry".equals(action)) && args.length == 3) {
+            boolean started = jobs.start(args[2], "dry".equals(action),
+                    line -> plugin.getServer().getScheduler().runTask(plugin, () -> sender.sendMessage(messages.prefix() + line)));
+            if (started) sender.sendMessage(messages.prefix() + ("dry".equals(action) ? "Computing " : "Running ") + args[2] + "...");
+            return;
+        }
+        if (!action.isEmpty()) {
+            sender.sendMessage(messages.prefix() + "Usage: /vault jobs [run|dry <rule>]");
+            return;
+        }
+        sender.sendMessage(messages.prefix() + "Economy jobs (/vault jobs run|dry <rule>):");
+        for (String line : jobs.describe()) sender.sendMessage(" " + line);
+    }
+
+    private void handleHistory(CommandSender sender, String[] args) {
+        TransactionHistory history = plugin.getHistory();
+        if (history == null) {
+            sender.sendMessage(messages.prefix() + "Transaction history is disabled (history.enabled).");
+            return;
+        }
+        String name = null;
+        int page = 1;
+        try {
+            if (args.length == 2 && sender instanceof Player && args[1].matches("\\d+")) {
+                page = Integer.parseInt(args[1]);
+            } else if (args.length >= 2) {
+                name = args[1];
+                if (args.length == 3) page = Integer.parseInt(args[2]);
+            }
+            if (args.length > 3 || page < 1 || (name == null && !(sender instanceof Player))) throw new NumberFormatException();
+        } catch (NumberFormatException ex) {
+            sender.sendMessage(messages.prefix() + "Usage: /vault history [player] [page]");
+            return;
+        }
+        boolean self = name == null || (sender instanceof Player && name.equalsIgnoreCase(sender.getName()));
+        if (!self && sender instanceof Player && !sender.isOp()) {
+            sender.sendMessage(messages.chat("cmd.vault.no_permission"));
+            return;
+        }
+        final String targetName = name;
+        final int pageNumber = page;
+        final int pageSize = VaultSettings.get().historyPageSize;
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, new Runnable() {
+            @Override
+            public void run() {
+                org.bukkit.OfflinePlayer target = targetName == null ? (Player) sender
+                        : PlayerResolver.resolveByNameWithOfflineFallback(plugin, targetName);
+                java.util.List<String> lines = new java.util.ArrayList<>();
+                if (target == null) {
+                    lines.add(messages.prefix() + "Unknown player: " + targetName);
+                } else {
+                    try {
+                        java.util.List<HistoryEntry> entries = historyPage(history, sender, target.getUniqueId(), pageNumber, pageSize);
+                        String who = target.getName() != null ? target.getName() : target.getUniqueId().toString();
+                        if (entries.isEmpty()) {
+                            lines.add(messages.prefix() + (pageNumber == 1 ? "No transactions recorded for " + who + "." : "No more transactions for " + who + "."));
+                        } else {
+                            lines.add(messages.prefix() + "History of " + who + ", page " + pageNumber + " (newest first):");
+                            for (HistoryEntry e : entries) lines.add(" " + formatHistory(e));
+                        }
+                    } catch (java.sql.SQLException | java.io.IOException ex) {
+                        lines.add(messages.prefix() + "Failed to read history: " + ex.getMessage());
+                    }
+                }
+                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                    for (String line : lines) sender.sendMessage(line);
+                });
+            }
+        });
+    }
+
+    // Start cursors of the pages each sender has already seen, per account: page n starts at cursors.get(n - 1)
+    private final java.util.Map<String, java.util.List<long[]>> historyCursors = new java.util.concurrent.ConcurrentHashMap<>();
+
+    /**
+     * Keyset pagination: page n is read from the cursor where page n - 1 ended.
+     * A page never seen before is reached by walking forward from the last
+     * known cursor, which reads only pageSize rows per page skipped.
+     */
+    private java.util.List<HistoryEntry> historyPage(TransactionHistory history, CommandSender sender, java.util.UUID account,
+                                                     int page, int pageSize) throws java.sql.SQLException, java.io.IOException {
+        if (historyCursors.size() > 256) historyCursors.clear();
+        String key = sender.getName() + "/" + account;
+        java.util.List<long[]> cursors = historyCursors.computeIfAbsent(key, k -> new java.util.ArrayList<>());
+        synchronized (cursors) {
+            if (page == 1) {
+                cursors.clear();
+                cursors.add(new long[]{Long.MAX_VALUE, Long.MAX_VALUE});
+            }
+            if (cursors.isEmpty()) cursors.add(new long[]{Long.MAX_VALUE, Long.MAX_VALUE});
+            while (true) {
+                int known = Math.min(cursors.size(), page);
+                long[] from = cursors.get(known - 1);
+                java.util.List<HistoryEntry> entries = history.page(account, from[0], from[1], pageSize);
+                if (known == page) {
+                    if (entries.size() == pageSize && cursors.size() == page) {
+                        HistoryEntry last = entries.get(entries.size() - 1);
+                        cursors.add(new long[]{last.time, last.id});
+                    }
+                    return entries;
+                }
+                if (entries.size() < pageSize) return java.util.Collections.emptyList();
+                HistoryEntry last = entries.get(entries.size() - 1);
+                cursors.add(new long[]{last.time, last.id});
+            }
+        }
+    }
+
+    private String formatHistory(HistoryEntry e) {
+        java.text.SimpleDateFormat time = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm");
+        Economy economy = plugin.getEconomy();
+        StringBuilder sb = new StringBuilder(time.format(new java.util.Date(e.time))).append(' ')
+                .append(e.type.toLowerCase(java.util.Locale.ROOT)).append(' ')
+                .append(e.amount >= 0 ? "+" : "-").append(economy.format(Math.abs(e.amount)));
+        if (e.counterparty != null) {
+            String other = plugin.getServer().getOfflinePlayer(e.counterparty).getName();
+            sb.append(e.amount >= 0 ? " from " : " to ").append(other != null ? other : e.counterparty.toString());
+        }
+        sb.append(" = ").append(economy.format(e.balance));
+        if (e.source != null) sb.append(" [").append(e.source).append(']');
+        return sb.toString();
+    }
+
+    private void handleVelocity(CommandSender sender, String[] args) {
+        if (!(plugin.getEconomy() instanceof SimpleEconomy)) {
+            sender.sendMessage(messages.prefix() + "Velocity limits need the built-in economy.");
+            return;
+        }
+        SimpleEconomy economy = (SimpleEconomy) plugin.getEconomy();
+        VelocityGuard guard = plugin.getVelocityGuard();
+        String action = args.length > 1 ? args[1].toLowerCase() : "";
+        if (("freeze".equals(action) || "unfreeze".equals(action)) && args.length == 3) {
+            org.bukkit.OfflinePlayer target = PlayerResolver.resolveByNameWithOfflineFallback(plugin, args[2]);
+            if (target == null) {
+                sender.sendMessage(messages.prefix() + "Unknown player: " + args[2]);
+                return;
+            }
+            boolean changed = economy.setFrozen(target.getUniqueId(), "freeze".equals(action));
+            sender.sendMessage(messages.prefix() + args[2] + (changed ? " is now " : " was already ")
+                    + ("freeze".equals(action) ? "frozen." : "unfrozen."));
+            return;
+        }
+        if ("clear".equals(action)) {
+            if (guard != null) guard.clearFlags();
+            sender.sendMessage(messages.prefix() + "Velocity flags cleared.");
+            return;
+        }
+        if (!action.isEmpty()) {
+            sender.sendMessage(messages.prefix() + "Usage: /vault velocity [clear | freeze <player> | unfreeze <player>]");
+            return;
+        }
+        java.util.List<String> flags = guard != null ? guard.describeFlags() : java.util.Collections.<String>emptyList();
+        sender.sendMessage(messages.prefix() + (guard == null ? "Velocity limits are disabled (velocity.enabled)." : flags.isEmpty() ? "No velocity flags." : "Velocity flags (/vault velocity clear):"));
+        for (String line : flags) sender.sendMessage(" " + line);
+        if (!economy.frozenAccounts().isEmpty()) {
+            sender.sendMessage(messages.prefix() + "Frozen accounts (/vault velocity unfreeze <player>):");
+            for (java.util.UUID id : economy.frozenAccounts()) {
+                String name = plugin.getServer().getOfflinePlayer(id).getName();
+                sender.sendMessage(" " + (name != null ? name + " (" + id + ")" : id.toString()));
+            }
+        }
+    }
+
+    private void handleStats(CommandSender sender, String[] args) {
+        String action = args.length > 1 ? args[1].toLowerCase() : "";
+        if ("reset".equals(action)) {
+            Metrics.resetAll();
+            if (plugin.getDatabase() != null) plugin.getDatabase().getMainThreadGuard().reset();
+            sender.sendMessage(messages.prefix() + "Operation stats reset.");
+            return;
+        }
+        if ("dump".equals(action)) {
+            final java.io.File dir = new java.io.File(plugin.getDataFolder(), "stats");
+            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, new Runnable() {
+                @Override
+                public void run() {
+                    String result;
+                    try {
+                        result = "Stats written to " + Metrics.dump(dir).getName();
+                    } catch (java.io.IOException e) {
+                        result = "Failed to write stats: " + e.getMessage();
+                    }
+                    final String line = result;
+                    plugin.getServer().getScheduler().runTask(plugin, () -> sender.sendMessage(messages.prefix() + line));
+                }
+            });
+            return;
+        }
+        java.util.List<String> lines = Metrics.report();
+        if (lines.isEmpty()) {
+            sender.sendMessage(messages.prefix() + "No operations recorded yet.");
+            return;
+        }
+        sender.sendMessage(messages.prefix() + "Operation stats (/vault stats dump|reset):");
+        for (String line : lines) sender.sendMessage(" " + line);
+        java.util.List<String> pool = plugin.getDatabase() != null
+                ? plugin.getDatabase().poolReport() : java.util.Collections.<String>emptyList();
+        if (!pool.isEmpty()) {
+            sender.sendMessage(messages.prefix() + "Connection pool:");
+            for (String line : pool) sender.sendMessage(" " + line);
+        }
+        java.util.List<String> blocking = plugin.getDatabase() != null
+                ? plugin.getDatabase().getMainThreadGuard().report() : java.util.Collections.<String>emptyList();
+        if (!blocking.isEmpty()) {
+            sender.sendMessage(messages.prefix() + "Database calls on the server thread:");
+            for (String line : blocking) sender.sendMessage(" " + line);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,137 @@
+package com.example.vault.economy;
+
+import com.example.vault.metrics.Metrics;
+import com.example.vault.metrics.OpStats;
+import net.milkbowl.vault.economy.EconomyResponse;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.plugin.Plugin;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * CompletableFuture front end to {@link SimpleEconomy}, registered as a
+ * service next to Economy. Calls run on a small bounded pool, so a caller on
+ * the server thread never waits for the database. Futures complete on that
+ * pool; {@link #onMainThread} or {@link #mainThread()} bring results back to
+ * the server thread. When the queue is full the future fails with
+ * RejectedExecutionException instead of running on the caller's thread.
+ */
+public final class AsyncEconomy {
+    private static final OpStats QUEUE_WAIT = Metrics.op("async.queue_wait");
+    private static final OpStats REJECTED = Metrics.op("async.rejected");
+
+    // A queued call; keeps its future so shutdown can fail the ones never run
+    private static final class Call<T> implements Runnable {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final Supplier<T> body;
+        final long queuedAt = System.nanoTime();
+
+        Call(Supplier<T> body) {
+            this.body = body;
+        }
+
+        @Override public void run() {
+            QUEUE_WAIT.record(queuedAt);
+            try {
+                future.complete(body.get());
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private final SimpleEconomy economy;
+    private final ThreadPoolExecutor executor;
+    private final Executor mainThread;
+
+    public AsyncEconomy(Plugin plugin, SimpleEconomy economy, int threads, int queueSize) {
+        this.economy = economy;
+        int size = Math.max(1, threads);
+        this.executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)), r -> {
+                    Thread t = new Thread(r, "Vault-Async");
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.mainThread = task -> {
+            if (plugin.getServer().isPrimaryThread()) task.run();
+            else plugin.getServer().getScheduler().runTask(plugin, task);
+        };
+    }
+
+    public CompletableFuture<EconomyResponse> depositAsync(OfflinePlayer player, double amount) {
+        return submit(() -> economy.depositPlayer(player, amount));
+    }
+
+    public CompletableFuture<EconomyResponse> withdrawAsync(OfflinePlayer player, double amount) {
+        return submit(() -> economy.withdrawPlayer(player, amount));
+    }
+
+    public CompletableFuture<EconomyResponse> transferAsync(OfflinePlayer from, OfflinePlayer to, double amount) {
+        return submit(() -> economy.transfer(from, to, amount));
+    }
+
+    public CompletableFuture<Double> getBalanceAsync(OfflinePlayer player) {
+        return submit(() -> economy.getBalance(player));
+    }
+
+    public CompletableFuture<List<EconomyResponse>> applyBatchAsync(EconomyBatch batch, boolean atomic) {
+        return submit(() -> economy.applyBatch(batch, atomic));
+    }
+
+    /** Runs tasks on the server thread, e.g. {@code future.thenAcceptAsync(callback, async.mainThread())}. */
+    public Executor mainThread() {
+        return mainThread;
+    }
+
+    /** The same outcome, completed on the server thread so plain callbacks may use the Bukkit API. */
+    public <T> CompletableFuture<T> onMainThread(CompletableFuture<T> future) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        future.whenCompleteAsync((value, error) -> {
+            if (error != null) result.completeExceptionally(error);
+            else result.complete(value);
+        }, mainThread);
+        return result;
+    }
+
+    /** Calls waiting for a thread right now. */
+    public int queued() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Stops taking calls and lets queued ones finish for up to timeoutMs;
+     * the rest fail. Returns how many were dropped.
+     */
+    public int shutdown(long timeoutMs) {
+        executor.shutdown();
+        try {
+            if (executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Runnable> dropped = executor.shutdownNow();
+        for (Runnable r : dropped) {
+            ((Call<?>) r).future.completeExceptionally(new RejectedExecutionException("Economy is shutting down"));
+        }
+        return dropped.size();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> body) {
+        Call<T> call = new Call<>(body);
+        try {
+            executor.execute(call);
+        } catch (RejectedExecutionException e) {
+            REJECTED.increment();
+            call.future.completeExceptionally(e);
+        }
+        return call.future;
+    }
+}
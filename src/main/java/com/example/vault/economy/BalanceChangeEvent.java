@@ -0,0 +1,54 @@
+package com.example.vault.economy;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+import java.util.UUID;
+
+/**
+ * Fired on the server thread at most once per tick per account whose balance
+ * changed during that tick, whether by this server or by another one sharing
+ * the database. Carries the balance before the first change and after the
+ * last one; changes that cancel out fire nothing.
+ */
+public class BalanceChangeEvent extends Event {
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final UUID account;
+    private final double oldBalance;
+    private final double newBalance;
+    private final int changes;
+
+    public BalanceChangeEvent(UUID account, double oldBalance, double newBalance, int changes) {
+        this.account = account;
+        this.oldBalance = oldBalance;
+        this.newBalance = newBalance;
+        this.changes = changes;
+    }
+
+    public UUID getAccount() {
+        return account;
+    }
+
+    public double getOldBalance() {
+        return oldBalance;
+    }
+
+    public double getNewBalance() {
+        return newBalance;
+    }
+
+    /** Balance changes merged into this event. */
+    public int getChanges() {
+        return changes;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.vault.economy;
+
+import java.util.UUID;
+
+/**
+ * Push alternative to polling getBalance, subscribed through
+ * {@link BalanceNotifier}. Called on the server thread with the same merged
+ * per-tick change as {@link BalanceChangeEvent}.
+ */
+public interface BalanceListener {
+    void onBalanceChange(UUID account, double oldBalance, double newBalance);
+}
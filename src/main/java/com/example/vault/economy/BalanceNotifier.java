@@ -0,0 +1,113 @@
+package com.example.vault.economy;
+
+import org.bukkit.plugin.Plugin;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Turns balance changes from any thread into one notification per account
+ * per tick: changes are merged into a pending entry, and the first one
+ * schedules a flush on the server thread that fires {@link BalanceChangeEvent}
+ * and calls the subscribed {@link BalanceListener}s. Records nothing while
+ * nobody listens. Registered as a service; also reachable through
+ * {@link SimpleEconomy#getBalanceNotifier()}.
+ */
+public final class BalanceNotifier {
+    // Changes to one account since the last flush
+    private static final class Pending {
+        final double before;
+        double after;
+        int changes = 1;
+
+        Pending(double before, double after) {
+            this.before = before;
+            this.after = after;
+        }
+    }
+
+    private final Plugin plugin;
+    private final Map<UUID, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final List<BalanceListener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<UUID, List<BalanceListener>> accountListeners = new ConcurrentHashMap<>();
+    private final Runnable flush = this::flush;
+
+    public BalanceNotifier(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /** Notified of every account's changes. */
+    public void subscribe(BalanceListener listener) {
+        listeners.add(listener);
+    }
+
+    public void unsubscribe(BalanceListener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Notified of one account's changes, e.g. while its owner is online. */
+    public void subscribe(UUID account, BalanceListener listener) {
+        accountListeners.computeIfAbsent(account, k -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    public void unsubscribe(UUID account, BalanceListener listener) {
+        accountListeners.computeIfPresent(account, (k, list) -> {
+            list.remove(listener);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    /** Called by the economy after a balance changed; any thread. */
+    void changed(UUID account, double before, double after) {
+        if (!hasConsumers(account)) return;
+        pending.compute(account, (k, p) -> {
+            if (p == null) return new Pending(before, after);
+            p.after = after;
+            p.changes++;
+            return p;
+        });
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                plugin.getServer().getScheduler().runTask(plugin, flush);
+            } catch (RuntimeException e) {
+                // Plugin disabled; nothing will be delivered any more
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    private boolean hasConsumers(UUID account) {
+        return !listeners.isEmpty() || !accountListeners.isEmpty()
+                || BalanceChangeEvent.getHandlerList().getRegisteredListeners().length > 0;
+    }
+
+    // Server thread. Changes arriving during the flush stay pending for the next one
+    private void flush() {
+        flushScheduled.set(false);
+        for (UUID account : pending.keySet()) {
+            Pending p = pending.remove(account);
+            if (p == null || p.before == p.after) continue;
+            if (BalanceChangeEvent.getHandlerList().getRegisteredListeners().length > 0) {
+                plugin.getServer().getPluginManager().callEvent(new BalanceChangeEvent(account, p.before, p.after, p.changes));
+            }
+            deliver(listeners, account, p);
+            List<BalanceListener> own = accountListeners.get(account);
+            if (own != null) deliver(own, account, p);
+        }
+    }
+
+    private void deliver(List<BalanceListener> targets, UUID account, Pending p) {
+        for (BalanceListener listener : targets) {
+            try {
+                listener.onBalanceChange(account, p.before, p.after);
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("Balance listener failed: " + e);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.vault.economy;
+
+import com.example.vault.Database;
+import org.bukkit.plugin.Plugin;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Tails the shared change log so balances written by other servers
+ * replace the cached ones. Runs on an async scheduler thread.
+ * <p>
+ * Auto-increment ids are handed out when a row is inserted but become visible
+ * when its transaction commits, so a long batch can commit ids far behind rows
+ * already read. Ids skipped over are kept as gaps and looked up again on each
+ * poll until they show up or time out (rolled back inserts never do).
+ */
+public class BalanceSync implements Runnable {
+    private static final int BATCH_SIZE = 500;
+    // Ids just below the load position may still be uncommitted at startup; they are
+    // re-read (harmless: applyRemoteChange ignores versions it already has) or become gaps
+    private static final long OVERLAP = 64;
+    private static final long GAP_TIMEOUT_MS = 60_000L;
+    private static final int MAX_GAPS = 10_000;
+    private static final long PRUNE_INTERVAL_MS = 10 * 60 * 1000L;
+    // Only for applied ids written before spools had an id
+    private static final long UNOWNED_APPLIED_TX_RETENTION_MS = 7L * 24 * 60 * 60 * 1000L;
+
+    private final Plugin plugin;
+    private final Database database;
+    private final SimpleEconomy economy;
+    private final long retentionMs;
+    private long lastSeenId;
+    private final TreeMap<Long, Long> gaps = new TreeMap<>(); // id -> when it was skipped
+    private long lastPruneMs = 0L;
+
+    public BalanceSync(Plugin plugin, Database database, SimpleEconomy economy, long startAfterId) {
+        this.plugin = plugin;
+        this.database = database;
+        this.economy = economy;
+        this.retentionMs = Math.max(1, plugin.getConfig().getLong("storage.sync.retention_hours", 24)) * 60L * 60L * 1000L;
+        this.lastSeenId = Math.max(0L, startAfterId - OVERLAP);
+    }
+
+    @Override
+    public synchronized void run() {
+        if (!database.isEnabled()) return;
+        try {
+            long now = System.currentTimeMillis();
+            if (!gaps.isEmpty()) {
+                gaps.values().removeIf(skippedAt -> now - skippedAt > GAP_TIMEOUT_MS);
+                if (!gaps.isEmpty()) {
+                    for (Database.BalanceChange change : database.loadChanges(gaps.keySet())) {
+                        gaps.remove(change.id);
+                        apply(change);
+                    }
+                }
+            }
+            List<Database.BalanceChange> changes;
+            do {
+                changes = database.loadChangesSince(lastSeenId, BATCH_SIZE);
+                for (Database.BalanceChange change : changes) {
+                    if (change.id - lastSeenId - 1 <= MAX_GAPS - gaps.size()) {
+                        for (long id = lastSeenId + 1; id < change.id; id++) gaps.put(id, now);
+                    }
+                    lastSeenId = change.id;
+                    apply(change);
+                }
+            } while (changes.size() == BATCH_SIZE);
+
+            if (now - lastPruneMs >= PRUNE_INTERVAL_MS) {
+                lastPruneMs = now;
+                database.pruneChanges(now - retentionMs);
+                economy.pruneAppliedTransactions();
+                database.pruneUnownedAppliedTransactions(now - UNOWNED_APPLIED_TX_RETENTION_MS);
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Failed to poll balance changes: " + e.getMessage());
+        }
+    }
+
+    private void apply(Database.BalanceChange change) {
+        // Own writes are not skipped: their versions are already known and get ignored,
+        // but after a restart from a lagging replica they are still missing locally
+        if (change.uuid == null) return;
+        economy.applyRemoteChange(change.uuid, change.balance, change.version);
+    }
+
+    /** Ids skipped over that have not shown up yet. */
+    synchronized int pendingGaps() {
+        return gaps.size();
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.vault.economy;
+
+import com.example.vault.VaultSettings;
+import org.bukkit.plugin.Plugin;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.DoublePredicate;
+
+/**
+ * One run of /vault eco. Picks the target accounts, then writes them in
+ * chunks on a few background threads, one batched transaction per chunk.
+ * Progress lines go to the given consumer, at most every two seconds.
+ * Only one bulk operation runs at a time.
+ */
+public class BulkOperation implements Runnable {
+    public enum Action { GIVE, TAKE, SET, RESET }
+
+    private static final AtomicBoolean RUNNING = new AtomicBoolean();
+    private static final long PROGRESS_INTERVAL_NANOS = 2_000_000_000L;
+
+    private final Plugin plugin;
+    private final VaultSettings settings; // taken on the command thread
+    private final SimpleEconomy economy;
+    private final Action action;
+    private final double amount;
+    private final Collection<UUID> targets;  // explicit targets, or null to use filter
+    private final DoublePredicate filter;
+    private final String description;
+    private final Consumer<String> progress;
+
+    public BulkOperation(Plugin plugin, SimpleEconomy economy, Action action, double amount,
+                         Collection<UUID> targets, DoublePredicate filter, String description, Consumer<String> progress) {
+        this.plugin = plugin;
+        this.settings = VaultSettings.get();
+        this.economy = economy;
+        this.action = action;
+        this.amount = action == Action.RESET ? 0.0 : amount;
+        this.targets = targets;
+        this.filter = filter;
+        this.description = description;
+        this.progress = progress;
+    }
+
+    public static boolean isRunning() {
+        return RUNNING.get();
+    }
+
+    @Override
+    public void run() {
+        if (!RUNNING.compareAndSet(false, true)) {
+            progress.accept("Another bulk operation is still running.");
+            return;
+        }
+        try {
+            execute();
+        } finally {
+            RUNNING.set(false);
+        }
+    }
+
+    private void execute() {
+        long start = System.nanoTime();
+        List<UUID> ids = targets != null ? new ArrayList<>(targets) : economy.selectAccounts(filter);
+        if (ids.isEmpty()) {
+            progress.accept("No accounts match " + description + ".");
+            return;
+        }
+        int batchSize = settings.bulkBatchSize;
+        List<List<UUID>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += batchSize) {
+            chunks.add(ids.subList(i, Math.min(ids.size(), i + batchSize)));
+        }
+        int threads = Math.max(1, Math.min(chunks.size(), settings.bulkThreads));
+        double delta = action == Action.TAKE ? -amount : amount;
+        boolean absolute = action == Action.SET || action == Action.RESET;
+
+        AtomicInteger processed = new AtomicInteger();
+        AtomicInteger updated = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicReference<String> firstError = new AtomicReference<>();
+        AtomicLong lastReport = new AtomicLong(start);
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "Vault-Bulk");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (List<UUID> chunk : chunks) {
+                futures.add(pool.submit(() -> {
+                    try {
+                        updated.addAndGet(economy.applyBulk(chunk, delta, absolute));
+                    } catch (SQLException e) {
+                        failed.addAndGet(chunk.size());
+                        firstError.compareAndSet(null, e.getMessage());
+                    }
+                    int done = processed.addAndGet(chunk.size());
+                    long now = System.nanoTime();
+                    long last = lastReport.get();
+                    if (done < ids.size() && now - last >= PROGRESS_INTERVAL_NANOS && lastReport.compareAndSet(last, now)) {
+                        progress.accept(String.format(Locale.ROOT, "%s: %d/%d accounts (%d%%)",
+                                description, done, ids.size(), done * 100L / ids.size()));
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                try {
+                    f.get();
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    firstError.compareAndSet(null, String.valueOf(e.getCause()));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        try {
+            // Balances file (or spooled writes) in one go instead of once per account
+            economy.save();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to save balances after bulk operation: " + e.getMessage());
+        }
+        String result = String.format(Locale.ROOT, "%s: %d account(s) updated in %.2fs",
+                description, updated.get(), (System.nanoTime() - start) / 1_000_000_000d);
+        if (failed.get() > 0) {
+            result += ", " + failed.get() + " failed (" + firstError.get() + ")";
+        }
+        plugin.getLogger().info(result);
+        progress.accept(result);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.vault.economy;
+
+import org.bukkit.OfflinePlayer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Balance changes to apply together with {@link SimpleEconomy#applyBatch}:
+ * a positive delta is a deposit, a negative one a withdrawal. Entries run in
+ * the order they were added and may name the same player more than once.
+ * Not thread-safe; build it on one thread, then hand it over.
+ */
+public final class EconomyBatch {
+    private final List<UUID> ids = new ArrayList<>();
+    private double[] deltas = new double[16];
+
+    public EconomyBatch add(OfflinePlayer player, double delta) {
+        return add(player.getUniqueId(), delta);
+    }
+
+    public EconomyBatch add(UUID id, double delta) {
+        if (ids.size() == deltas.length) deltas = Arrays.copyOf(deltas, deltas.length * 2);
+        deltas[ids.size()] = delta;
+        ids.add(id);
+        return this;
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    public UUID id(int index) {
+        return ids.get(index);
+    }
+
+    public double delta(int index) {
+        return deltas[index];
+    }
+
+    List<UUID> ids() {
+        return ids;
+    }
+
+    double[] deltas() {
+        return Arrays.copyOf(deltas, ids.size());
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.vault.economy;
+
+import com.example.vault.Database;
+import com.example.vault.VaultSettings;
+import com.example.vault.metrics.Metrics;
+import com.example.vault.metrics.OpStats;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Scheduled interest, wealth tax and upkeep (config economy_jobs). A run
+ * computes every account's change in one parallel pass over the cached
+ * ledger, then writes the changes as batched deltas and saves once.
+ * Last run times live in economy_jobs.yml; a run is recorded before it is
+ * written so a crash mid-run skips the rest rather than applying it twice.
+ * With MySQL the run is first claimed in vault_job_runs, so when several
+ * servers share the database only one of them applies it. One run at a time.
+ */
+public final class EconomyJobs {
+    private final Plugin plugin;
+    private final SimpleEconomy economy;
+    private final Map<String, EconomyRule> rules = new LinkedHashMap<>();
+    private final Map<String, String> lastResults = new ConcurrentHashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final File stateFile;
+    private final YamlConfiguration state;
+
+    public EconomyJobs(Plugin plugin, SimpleEconomy economy) {
+        this.plugin = plugin;
+        this.economy = economy;
+        ConfigurationSection section = plugin.getConfig().getConfigurationSection("economy_jobs.rules");
+        if (section != null) {
+            for (String name : section.getKeys(false)) {
+                ConfigurationSection ruleSection = section.getConfigurationSection(name);
+                EconomyRule rule = ruleSection == null ? null : EconomyRule.parse(name.toLowerCase(Locale.ROOT), ruleSection, plugin.getLogger());
+                if (rule != null) rules.put(rule.getName(), rule);
+            }
+        }
+        this.stateFile = new File(plugin.getDataFolder(), "economy_jobs.yml");
+        this.state = YamlConfiguration.loadConfiguration(stateFile);
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /** Server thread, every economy_jobs.check_minutes: starts the rules that are due. */
+    public void tick() {
+        long now = System.currentTimeMillis();
+        for (EconomyRule rule : rules.values()) {
+            long last = lastRun(rule);
+            if (last == 0L) {
+                // New rule: first run one interval from now, not at startup
+                markRun(rule, now);
+            } else if (now - last >= rule.getIntervalMs()) {
+                if (!start(rule, false, null, true)) return;
+            }
+        }
+    }
+
+    /**
+     * Starts a run of the named rule on a background thread; call from the
+     * server thread (online players are read here). A dry run only reports.
+     * Returns false when the rule is unknown or another run is in progress.
+     */
+    public boolean start(String name, boolean dryRun, Consumer<String> progress) {
+        EconomyRule rule = rules.get(name.toLowerCase(Locale.ROOT));
+        if (rule == null) {
+            if (progress != null) progress.accept("Unknown economy job: " + name);
+            return false;
+        }
+        return start(rule, dryRun, progress, false);
+    }
+
+    // scheduled: only claim the run if no server ran it within the interval
+    private boolean start(EconomyRule rule, boolean dryRun, Consumer<String> progress, boolean scheduled) {
+        if (!economy.isReady()) {
+            // Would see an empty ledger and still mark the rule as run
+            if (progress != null) progress.accept("Economy is still loading, try again shortly.");
+            return false;
+        }
+        if (!running.compareAndSet(false, true)) {
+            if (progress != null) progress.accept("Another economy job is still running.");
+            return false;
+        }
+        final Set<UUID> online;
+        if (rule.isOnlineOnly()) {
+            online = new HashSet<>();
+            for (Player p : plugin.getServer().getOnlinePlayers()) online.add(p.getUniqueId());
+        } else {
+            online = null;
+        }
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, new Runnable() {
+            @Override public void run() {
+                try {
+                    String result = execute(rule, online, dryRun, scheduled);
+                    plugin.getLogger().info(result);
+                    if (progress != null) progress.accept(result);
+                } finally {
+                    running.set(false);
+                }
+            }
+        });
+        return true;
+    }
+
+    private String execute(EconomyRule rule, Set<UUID> online, boolean dryRun, boolean scheduled) {
+        OpStats stats = Metrics.op("jobs." + rule.getName());
+        long start = System.nanoTime();
+        List<Map.Entry<UUID, Double>> changes = economy.computeChanges(
+                id -> online == null || online.contains(id), rule::change);
+        long computed = System.nanoTime();
+        double credited = 0.0;
+        double debited = 0.0;
+        for (Map.Entry<UUID, Double> change : changes) {
+            if (change.getValue() > 0) credited += change.getValue();
+            else debited -= change.getValue();
+        }
+        String summary = String.format(Locale.ROOT, "%s %s: %d account(s), +%s / -%s, computed in %s",
+                dryRun ? "Dry run of" : "Economy job", rule.getName(), changes.size(),
+                economy.format(credited), economy.format(debited), Metrics.formatNanos(computed - start));
+        if (dryRun) return summary;
+
+        try {
+            if (!claim(rule, System.currentTimeMillis(), scheduled)) {
+                return "Economy job " + rule.getName() + " skipped: another server already ran it";
+            }
+        } catch (SQLException e) {
+            // Not claimed, so not applied; the next check tries again
+            stats.recordFailure(start);
+            return "Economy job " + rule.getName() + " not run, could not claim it in the database: " + e.getMessage();
+        }
+        int batchSize = VaultSettings.get().bulkBatchSize;
+        int failed = 0;
+        String firstError = null;
+        for (int i = 0; i < changes.size(); i += batchSize) {
+            List<Map.Entry<UUID, Double>> chunk = changes.subList(i, Math.min(changes.size(), i + batchSize));
+            List<UUID> ids = new ArrayList<>(chunk.size());
+            double[] deltas = new double[chunk.size()];
+            for (int j = 0; j < chunk.size(); j++) {
+                ids.add(chunk.get(j).getKey());
+                deltas[j] = chunk.get(j).getValue();
+            }
+            try {
+                economy.applyBulk(ids, deltas, false, LedgerObserver.Type.JOB);
+            } catch (SQLException e) {
+                failed += chunk.size();
+                if (firstError == null) firstError = e.getMessage();
+            }
+        }
+        try {
+            economy.save();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to save balances after economy job " + rule.getName() + ": " + e.getMessage());
+        }
+        long end = System.nanoTime();
+        if (failed > 0) stats.recordFailure(start);
+        else stats.record(start);
+        summary += ", written in " + Metrics.formatNanos(end - computed);
+        if (failed > 0) summary += ", " + failed + " failed (" + firstError + ")";
+        lastResults.put(rule.getName(), summary);
+        return summary;
+    }
+
+    private boolean claim(EconomyRule rule, long now, boolean scheduled) throws SQLException {
+        Database db = economy.database();
+        if (db != null && !db.claimJobRun(rule.getName(), now, scheduled ? now - rule.getIntervalMs() : Long.MAX_VALUE)) {
+            // Follow the schedule of the server that ran it
+            markRun(rule, db.loadJobRun(rule.getName()));
+            return false;
+        }
+        markRun(rule, now);
+        return true;
+    }
+
+    private long lastRun(EconomyRule rule) {
+        synchronized (state) {
+            return state.getLong("last_run." + rule.getName(), 0L);
+        }
+    }
+
+    private void markRun(EconomyRule rule, long when) {
+        synchronized (state) {
+            state.set("last_run." + rule.getName(), when);
+            try {
+                state.save(stateFile);
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to save economy job state: " + e.getMessage());
+            }
+        }
+    }
+
+    /** One line per rule: interval, next run and the last result since startup. */
+    public List<String> describe() {
+        if (rules.isEmpty()) return Collections.singletonList("No economy jobs configured.");
+        long now = System.currentTimeMillis();
+        List<String> lines = new ArrayList<>();
+        for (EconomyRule rule : rules.values()) {
+            long last = lastRun(rule);
+            long dueInMinutes = last == 0L ? rule.getIntervalMs() / 60_000L
+                    : Math.max(0L, (last + rule.getIntervalMs() - now) / 60_000L);
+            String line = String.format(Locale.ROOT, "%s: every %.1fh%s, next in %dm",
+                    rule.getName(), rule.getIntervalMs() / 3_600_000d, rule.isOnlineOnly() ? " (online only)" : "", dueInMinutes);
+            String result = lastResults.get(rule.getName());
+            lines.add(result == null ? line : line + " | last: " + result);
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.vault.economy;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * One rule from economy_jobs.rules: interest or tax by balance band, a flat
+ * upkeep amount, a cap per account and which accounts it applies to.
+ * Bands work like tax brackets: each rate applies to the part of the balance
+ * inside its band.
+ */
+public final class EconomyRule {
+    private final String name;
+    private final long intervalMs;
+    private final boolean onlineOnly;
+    private final double minBalance;
+    private final double flat;
+    private final double maxChange;
+    private final double[] bandFrom;
+    private final double[] bandTo;
+    private final double[] bandPercent;
+
+    private EconomyRule(String name, long intervalMs, boolean onlineOnly, double minBalance, double flat, double maxChange,
+                        double[] bandFrom, double[] bandTo, double[] bandPercent) {
+        this.name = name;
+        this.intervalMs = intervalMs;
+        this.onlineOnly = onlineOnly;
+        this.minBalance = minBalance;
+        this.flat = flat;
+        this.maxChange = maxChange;
+        this.bandFrom = bandFrom;
+        this.bandTo = bandTo;
+        this.bandPercent = bandPercent;
+    }
+
+    /** Reads a rule section; logs and returns null when it is unusable. */
+    static EconomyRule parse(String name, ConfigurationSection section, Logger logger) {
+        List<double[]> bands = new ArrayList<>();
+        // "from:to:percent", to may be empty for no upper bound
+        for (String band : section.getStringList("bands")) {
+            String[] parts = band.split(":", -1);
+            try {
+                if (parts.length != 3) throw new NumberFormatException();
+                double from = Double.parseDouble(parts[0].trim());
+                double to = parts[1].trim().isEmpty() ? Double.POSITIVE_INFINITY : Double.parseDouble(parts[1].trim());
+                double percent = Double.parseDouble(parts[2].trim());
+                if (!(to > from) || from < 0) throw new NumberFormatException();
+                bands.add(new double[]{from, to, percent});
+            } catch (NumberFormatException ex) {
+                logger.warning("Economy job '" + name + "': ignoring band \"" + band + "\" (expected from:to:percent)");
+            }
+        }
+        double flat = section.getDouble("flat", 0.0);
+        double hours = section.getDouble("interval_hours", 24.0);
+        if (bands.isEmpty() && flat == 0.0) {
+            logger.warning("Economy job '" + name + "' has no bands and no flat amount; skipped");
+            return null;
+        }
+        if (!(hours > 0)) {
+            logger.warning("Economy job '" + name + "' needs a positive interval_hours; skipped");
+            return null;
+        }
+        double[] from = new double[bands.size()];
+        double[] to = new double[bands.size()];
+        double[] percent = new double[bands.size()];
+        for (int i = 0; i < bands.size(); i++) {
+            from[i] = bands.get(i)[0];
+            to[i] = bands.get(i)[1];
+            percent[i] = bands.get(i)[2];
+        }
+        return new EconomyRule(name, (long) (hours * 3_600_000L), section.getBoolean("online_only", false),
+                section.getDouble("min_balance", 0.0), flat, Math.max(0.0, section.getDouble("max_change", 0.0)), from, to, percent);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getIntervalMs() {
+        return intervalMs;
+    }
+
+    public boolean isOnlineOnly() {
+        return onlineOnly;
+    }
+
+    /** Change for an account with this balance, rounded to cents; never takes the balance below zero. */
+    public double change(double balance) {
+        if (balance < minBalance) return 0.0;
+        double change = flat;
+        for (int i = 0; i < bandFrom.length; i++) {
+            if (balance > bandFrom[i]) change += (Math.min(balance, bandTo[i]) - bandFrom[i]) * bandPercent[i] / 100.0;
+        }
+        if (maxChange > 0) change = Math.max(-maxChange, Math.min(maxChange, change));
+        change = Math.round(change * 100.0) / 100.0;
+        return balance + change < 0 ? -balance : change;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.vault.economy;
+
+import java.util.UUID;
+
+/**
+ * Notified after every balance change this server makes, on the thread that
+ * made it (often the server thread), so implementations must be cheap.
+ * Changes read from other servers' change log are not reported.
+ */
+public interface LedgerObserver {
+    enum Type { DEPOSIT, WITHDRAW, PAY_SENT, PAY_RECEIVED, ADMIN, IMPORT, JOB }
+
+    /**
+     * @param counterparty the other account of a payment, otherwise null
+     * @param amount       signed change actually applied
+     * @param balance      balance after the change
+     */
+    void onChange(UUID account, Type type, UUID counterparty, double amount, double balance);
+}
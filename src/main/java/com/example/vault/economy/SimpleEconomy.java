@@ -1,6 +1,11 @@
 package com.example.vault.economy;
 
 import com.example.vault.Database;
+import com.example.vault.metrics.Metrics;
+import com.example.vault.metrics.OpStats;
+import com.example.vault.storage.ColdLedger;
+import com.example.vault.storage.SnapshotFile;
+import com.example.vault.storage.WriteSpool;
 import net.milkbowl.vault.economy.Economy;
 import net.milkbowl.vault.economy.EconomyResponse;
 import net.milkbowl.vault.economy.EconomyResponse.ResponseType;
@@ -12,15 +17,101 @@ import java.io.File;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.text.DecimalFormat;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.StampedLock;
 
 public class SimpleEconomy implements Economy {
+    private static final OpStats DEPOSIT = Metrics.op("economy.deposit");
+    private static final OpStats WITHDRAW = Metrics.op("economy.withdraw");
+    private static final OpStats CREATE_ACCOUNT = Metrics.op("economy.create_account");
+    private static final OpStats GET_BALANCE = Metrics.op("economy.get_balance"); // counted, not timed
+    private static final OpStats CACHE_HIT = Metrics.op("economy.cache_hit");
+    private static final OpStats CACHE_MISS = Metrics.op("economy.cache_miss");
+    private static final OpStats VERSION_CONFLICT = Metrics.op("economy.version_conflict");
+    private static final OpStats SPOOLED_WRITE = Metrics.op("economy.spooled_write");
+    private static final OpStats STARTUP_WAIT = Metrics.op("economy.startup_wait");
+    private static final OpStats STARTUP_REJECT = Metrics.op("economy.startup_reject");
+    private static final OpStats SNAPSHOT = Metrics.op("economy.snapshot");
+    private static final OpStats BUCKET_SAVE = Metrics.op("economy.bucket_save");
+    private static final OpStats BATCH = Metrics.op("economy.batch");
+    private static final OpStats COLD_HIT = Metrics.op("economy.cold_hit");
+    private static final OpStats PROMOTE = Metrics.op("economy.promote");
+    private static final OpStats DEMOTE = Metrics.op("economy.demote");
+
     private final Plugin plugin;
-    private final Database database; // may be null
-    private final Map<UUID, Double> balances = new HashMap<>();
+    private volatile Database database; // may be null; replaced by a storage migration
+    private final Map<UUID, Account> accounts = new ConcurrentHashMap<>();
     private final DecimalFormat formatter = new DecimalFormat("#,##0.00");
+    private final int maxRetries;
+    private volatile WriteSpool spool; // null without a database
+    private final Object replayLock = new Object();
+    private volatile long loadedChangeId = 0L;
+    // Balance writes hold the read side; a storage migration takes the write side to switch backends,
+    // a YAML snapshot takes it just long enough to start a new epoch. Always taken before an account monitor.
+    private final StampedLock storageLock = new StampedLock();
+    private volatile long snapshotEpoch; // read by writers under the storage read lock
+    private final SnapshotFile snapshot;
+    // Incremental autosave: one flag per hash bucket, set when an account in it changes; null = full snapshots
+    private volatile AtomicIntegerArray dirtyBuckets;
+    private final File bucketDir;
+    private final Object saveLock = new Object(); // one writer of the YAML files at a time
+    private int nextBucket; // guarded by saveLock
+    // Tiering: idle accounts live in a memory-mapped file instead of the map; an account in both is read from the map
+    private volatile ColdLedger cold = ColdLedger.EMPTY;
+    private final boolean tiering;
+    private final File coldDir;
+    private long coldGeneration; // guarded by saveLock
+    private volatile Set<UUID> captured; // accounts changed since a migration started copying, or null
+    private volatile LedgerObserver[] observers = new LedgerObserver[0]; // copy-on-write
+    private final BalanceNotifier balanceNotifier;
+    private final Set<UUID> frozen = ConcurrentHashMap.newKeySet(); // may not withdraw or pay; kept in frozen.yml
+    // Startup gate: false while the ledger loads in the background; calls wait for it briefly
+    private volatile boolean ready = true;
+    private final java.util.concurrent.CountDownLatch readyLatch = new java.util.concurrent.CountDownLatch(1);
+    private final long readyWaitMs;
+    private volatile boolean readyWaitExpired; // one wait timed out; later calls fail at once
+
+    // Result of writing a balance change through the version check
+    private enum Commit { OK, INSUFFICIENT_FUNDS, CONFLICT }
+
+    // In-memory account; writes are done while holding the account monitor
+    private static final class Account {
+        volatile double balance;
+        long version;        // version of the DB row this balance is based on (0 = no row yet)
+        double pendingDelta; // spooled changes not yet replayed into the DB
+        long epoch;          // snapshot epoch of the last change
+        double preimage;     // balance at the start of that epoch (NaN = account did not exist)
+        volatile long lastUsed;           // last change (ms); idle accounts move to the cold tier
+        volatile double coldValue = Double.NaN; // its balance in the current cold file, NaN if not there
+
+        Account(double balance, long version) {
+            this.balance = balance;
+            this.version = version;
+        }
+
+        // Caller holds the monitor; the first change after a snapshot cut keeps the old value for it
+        void set(double value, long cut) {
+            if (epoch != cut) {
+                preimage = balance;
+                epoch = cut;
+            }
+            balance = value;
+            lastUsed = System.currentTimeMillis();
+        }
+
+        synchronized double balanceAt(long cut) {
+            return epoch == cut ? preimage : balance;
+        }
+    }
 
     public SimpleEconomy(Plugin plugin) {
         this(plugin, null);
@@ -29,6 +120,103 @@ public class SimpleEconomy implements Economy {
     public SimpleEconomy(Plugin plugin, Database database) {
         this.plugin = plugin;
         this.database = database;
+        this.maxRetries = Math.max(1, plugin.getConfig().getInt("storage.sync.max_retries", 5));
+        this.readyWaitMs = Math.max(0L, plugin.getConfig().getLong("startup.ready_wait_ms", 2000L));
+        this.spool = database != null ? new WriteSpool(new File(plugin.getDataFolder(), "spool.log")) : null;
+        this.snapshot = new SnapshotFile(new File(plugin.getDataFolder(), "balances.yml"), new File(plugin.getDataFolder(), "backups"),
+                plugin.getConfig().getInt("storage.backups.keep", 5),
+                Math.max(0L, plugin.getConfig().getLong("storage.backups.interval_minutes", 10L)) * 60_000L);
+        this.bucketDir = new File(plugin.getDataFolder(), "balances");
+        this.balanceNotifier = new BalanceNotifier(plugin);
+        this.tiering = plugin.getConfig().getBoolean("storage.tiering.enabled", false);
+        this.coldDir = new File(plugin.getDataFolder(), "cold");
+    }
+
+    /** Per-tick balance change notifications, local and from other servers. */
+    public BalanceNotifier getBalanceNotifier() {
+        return balanceNotifier;
+    }
+
+    // Accounts created after a snapshot cut are left out of that snapshot
+    private Account newAccount() {
+        Account acc = new Account(0.0, 0L);
+        acc.epoch = snapshotEpoch;
+        acc.preimage = Double.NaN;
+        acc.lastUsed = System.currentTimeMillis();
+        return acc;
+    }
+
+    // A cold account brought back on-heap; it existed at the last snapshot cut with its cold balance
+    private static Account promoted(ColdLedger c, int index, long cut) {
+        PROMOTE.increment();
+        Account acc = new Account(c.balance(index), c.version(index));
+        acc.epoch = cut;
+        acc.preimage = acc.balance;
+        acc.coldValue = acc.balance;
+        acc.lastUsed = System.currentTimeMillis();
+        return acc;
+    }
+
+    // The on-heap account, promoted from the cold tier when it is there; null for an unknown account.
+    // Writers call this under the storage read lock so a demotion cannot move the account meanwhile
+    private Account hotAccount(UUID id) {
+        Account acc = accounts.get(id);
+        if (acc != null) return acc;
+        ColdLedger c = cold;
+        int index = c.indexOf(id);
+        if (index < 0) return null;
+        return accounts.computeIfAbsent(id, k -> promoted(c, index, snapshotEpoch));
+    }
+
+    private Account hotOrNewAccount(UUID id) {
+        Account acc = hotAccount(id);
+        return acc != null ? acc : accounts.computeIfAbsent(id, k -> newAccount());
+    }
+
+    private boolean useDatabase() {
+        return database != null && database.isEnabled();
+    }
+
+    /**
+     * Marks the ledger as loading: until {@link #markReady} balance reads and
+     * writes give up (reads see 0, writes fail) instead of seeing a half-loaded
+     * ledger. Off the server thread they first wait up to startup.ready_wait_ms,
+     * but only until one such wait has timed out. save() is skipped.
+     */
+    public void beginStartupLoad() {
+        ready = false;
+    }
+
+    public void markReady() {
+        ready = true;
+        readyLatch.countDown();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private boolean awaitReady() {
+        if (ready) return true;
+        // Parking the server thread would stall every tick of a join wave or placeholder refresh
+        if (readyWaitExpired || plugin.getServer().isPrimaryThread()) {
+            STARTUP_REJECT.increment();
+            return ready;
+        }
+        long start = System.nanoTime();
+        try {
+            boolean loaded = readyLatch.await(readyWaitMs, java.util.concurrent.TimeUnit.MILLISECONDS);
+            if (loaded) {
+                STARTUP_WAIT.record(start);
+            } else {
+                STARTUP_WAIT.recordFailure(start);
+                readyWaitExpired = true;
+            }
+            return loaded;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 
     @Override
@@ -73,7 +261,8 @@ public class SimpleEconomy implements Economy {
 
     @Override
     public boolean hasAccount(OfflinePlayer player) {
-        return balances.containsKey(player.getUniqueId());
+        if (!ready && !awaitReady()) return false;
+        return accounts.containsKey(player.getUniqueId()) || cold.indexOf(player.getUniqueId()) >= 0;
     }
 
     @Override
@@ -83,14 +272,24 @@ public class SimpleEconomy implements Economy {
 
     @Override
     public boolean createPlayerAccount(OfflinePlayer player) {
-        balances.putIfAbsent(player.getUniqueId(), 0.0);
-        if (database != null && database.isEnabled()) {
-            try {
-                database.saveBalance(player.getUniqueId(), 0.0);
-            } catch (SQLException e) {
-                plugin.getLogger().warning("Failed to create account in DB: " + e.getMessage());
+        UUID id = player.getUniqueId();
+        if (!ready && !awaitReady()) return false;
+        if (accounts.containsKey(id) || cold.indexOf(id) >= 0) return true;
+        long start = System.nanoTime();
+        long stamp = storageLock.readLock();
+        try {
+            Account acc = hotOrNewAccount(id);
+            if (useDatabase()) {
+                synchronized (acc) {
+                    // Inserts the row, or picks up the one another server already created
+                    if (acc.version == 0L) commitDelta(id, acc, 0.0, false, "create account");
+                }
             }
+            touched(id);
+        } finally {
+            storageLock.unlockRead(stamp);
         }
+        CREATE_ACCOUNT.record(start);
         return true;
     }
 
@@ -101,7 +300,22 @@ public class SimpleEconomy implements Economy {
 
     @Override
     public double getBalance(OfflinePlayer player) {
-        return balances.getOrDefault(player.getUniqueId(), 0.0);
+        GET_BALANCE.increment();
+        if (!ready && !awaitReady()) return 0.0;
+        Account acc = accounts.get(player.getUniqueId());
+        if (acc == null) {
+            // Read in place; only a change brings the account back on-heap
+            ColdLedger c = cold;
+            int index = c.indexOf(player.getUniqueId());
+            if (index >= 0) {
+                COLD_HIT.increment();
+                return c.balance(index);
+            }
+            CACHE_MISS.increment();
+            return 0.0;
+        }
+        CACHE_HIT.increment();
+        return acc.balance;
     }
 
     @Override
@@ -111,35 +325,747 @@ public class SimpleEconomy implements Economy {
 
     @Override
     public EconomyResponse withdrawPlayer(OfflinePlayer player, double amount) {
-        double bal = getBalance(player);
-        if (bal < amount) {
-            return new EconomyResponse(0.0, bal, ResponseType.FAILURE, "Insufficient funds");
+        return withdraw(player.getUniqueId(), amount, LedgerObserver.Type.WITHDRAW, null, false);
+    }
+
+    @Override
+    public EconomyResponse depositPlayer(OfflinePlayer player, double amount) {
+        return deposit(player.getUniqueId(), amount, LedgerObserver.Type.DEPOSIT, null, false);
+    }
+
+    /**
+     * Moves money between two players: a withdrawal from one and a deposit to
+     * the other, each recorded with the other as counterparty. Fails without
+     * changes when the sender cannot pay; when the deposit is refused the
+     * withdrawal is paid back and the transfer fails.
+     */
+    public EconomyResponse transfer(OfflinePlayer from, OfflinePlayer to, double amount) {
+        if (!ready && !awaitReady()) return new EconomyResponse(0.0, 0.0, ResponseType.FAILURE, "Economy is still loading");
+        // Both sides under one read-lock hold, so a snapshot sees the whole payment or none of it
+        long stamp = storageLock.readLock();
+        try {
+            EconomyResponse resp = withdraw(from.getUniqueId(), amount, LedgerObserver.Type.PAY_SENT, to.getUniqueId(), true);
+            if (!resp.transactionSuccess()) return resp;
+            EconomyResponse received = deposit(to.getUniqueId(), amount, LedgerObserver.Type.PAY_RECEIVED, from.getUniqueId(), true);
+            if (received.transactionSuccess()) return resp;
+            EconomyResponse refund = deposit(from.getUniqueId(), amount, LedgerObserver.Type.PAY_SENT, to.getUniqueId(), true);
+            if (!refund.transactionSuccess()) {
+                plugin.getLogger().severe("Transfer of " + amount + " from " + from.getUniqueId() + " to " + to.getUniqueId()
+                        + " failed and could not be paid back: " + refund.errorMessage);
+            }
+            return new EconomyResponse(0.0, refund.balance, ResponseType.FAILURE, received.errorMessage);
+        } finally {
+            storageLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Applies a batch of deposits and withdrawals in one pass and returns one
+     * response per entry, in order. When atomic, nothing is applied if any
+     * withdrawal is refused (insufficient funds, frozen account, bad amount);
+     * otherwise each entry succeeds or fails on its own. With a database the
+     * batch is one transaction. Responses carry the balances after the batch.
+     */
+    public List<EconomyResponse> applyBatch(EconomyBatch batch, boolean atomic) {
+        long start = System.nanoTime();
+        int n = batch.size();
+        String[] refused = new String[n];
+        if (n == 0) return new ArrayList<>();
+        if (!ready && !awaitReady()) {
+            Arrays.fill(refused, "Economy is still loading");
+            BATCH.recordFailure(start);
+            return batchResponses(batch, refused);
+        }
+        for (int i = 0; i < n; i++) {
+            double delta = batch.delta(i);
+            if (Double.isNaN(delta) || Double.isInfinite(delta)) refused[i] = "Invalid amount";
+            else if (delta < 0 && !frozen.isEmpty() && frozen.contains(batch.id(i))) refused[i] = "Account frozen";
+            if (atomic && refused[i] != null) return rejectBatch(batch, refused, i, start);
+        }
+        // Atomic without a database checks the whole batch before applying it, so no other write may interleave
+        boolean exclusive = atomic && !useDatabase();
+        long stamp = exclusive ? storageLock.writeLock() : storageLock.readLock();
+        try {
+            int rejected = useDatabase() ? applyBatchToDatabase(batch, atomic, refused) : applyBatchInMemory(batch, atomic, refused);
+            if (rejected >= 0) return rejectBatch(batch, refused, rejected, start);
+        } finally {
+            storageLock.unlock(stamp);
+        }
+        BATCH.record(start);
+        return batchResponses(batch, refused);
+    }
+
+    // Caller holds the storage lock (the write side when atomic). Returns the entry that rejects an atomic batch, or -1
+    private int applyBatchInMemory(EconomyBatch batch, boolean atomic, String[] refused) {
+        int n = batch.size();
+        if (atomic) {
+            Map<UUID, Double> after = new java.util.HashMap<>();
+            for (int i = 0; i < n; i++) {
+                UUID id = batch.id(i);
+                Double current = after.get(id);
+                double balance = (current != null ? current : balanceOrZero(id)) + batch.delta(i);
+                if (batch.delta(i) < 0 && balance < 0) {
+                    refused[i] = "Insufficient funds";
+                    return i;
+                }
+                after.put(id, balance);
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (refused[i] != null) continue;
+            UUID id = batch.id(i);
+            double delta = batch.delta(i);
+            Account acc = delta < 0 ? hotAccount(id) : hotOrNewAccount(id);
+            if (acc == null) {
+                refused[i] = "Insufficient funds";
+                continue;
+            }
+            synchronized (acc) {
+                if (delta < 0 && acc.balance + delta < 0) {
+                    refused[i] = "Insufficient funds";
+                    continue;
+                }
+                acc.set(acc.balance + delta, snapshotEpoch);
+                notifyChange(id, delta < 0 ? LedgerObserver.Type.WITHDRAW : LedgerObserver.Type.DEPOSIT, null, delta, acc.balance);
+            }
+            touched(id);
+        }
+        return -1;
+    }
+
+    // Caller holds the storage read lock. Returns the entry that rejects an atomic batch, or -1
+    private int applyBatchToDatabase(EconomyBatch batch, boolean atomic, String[] refused) {
+        List<UUID> ids = new ArrayList<>();
+        List<Integer> entries = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (refused[i] != null) continue;
+            ids.add(batch.id(i));
+            entries.add(i);
+        }
+        if (ids.isEmpty()) return -1;
+        double[] deltas = new double[ids.size()];
+        for (int j = 0; j < deltas.length; j++) deltas[j] = batch.delta(entries.get(j));
+        Database.DeltaBatchResult result;
+        try {
+            result = database.applyDeltaBatch(ids, deltas, atomic);
+        } catch (SQLException e) {
+            if (atomic) {
+                refused[entries.get(0)] = "Failed to save balances: " + e.getMessage();
+                return entries.get(0);
+            }
+            // One at a time instead, so deposits are spooled like single calls
+            plugin.getLogger().warning("Batch write failed, applying its entries one by one: " + e.getMessage());
+            for (int j = 0; j < deltas.length; j++) {
+                UUID id = ids.get(j);
+                EconomyResponse resp = deltas[j] < 0
+                        ? withdraw(id, -deltas[j], LedgerObserver.Type.WITHDRAW, null, true)
+                        : deposit(id, deltas[j], LedgerObserver.Type.DEPOSIT, null, true);
+                if (!resp.transactionSuccess()) refused[entries.get(j)] = resp.errorMessage;
+            }
+            return -1;
+        }
+        if (result.refused >= 0) {
+            refused[entries.get(result.refused)] = "Insufficient funds";
+            return entries.get(result.refused);
+        }
+        for (Map.Entry<UUID, Database.VersionedBalance> row : result.rows.entrySet()) {
+            applyRow(row.getKey(), row.getValue().balance, row.getValue().version);
         }
-        double newBal = bal - amount;
-        balances.put(player.getUniqueId(), newBal);
-        if (database != null && database.isEnabled()) {
+        for (int j = 0; j < deltas.length; j++) {
+            if (!result.applied[j]) {
+                refused[entries.get(j)] = "Insufficient funds";
+                continue;
+            }
+            UUID id = ids.get(j);
+            notifyChange(id, deltas[j] < 0 ? LedgerObserver.Type.WITHDRAW : LedgerObserver.Type.DEPOSIT, null, deltas[j], balanceOrZero(id));
+        }
+        return -1;
+    }
+
+    private List<EconomyResponse> rejectBatch(EconomyBatch batch, String[] refused, int cause, long start) {
+        String reason = "Batch rejected: entry " + cause + " failed (" + refused[cause] + ")";
+        for (int i = 0; i < refused.length; i++) {
+            if (i != cause) refused[i] = reason;
+        }
+        BATCH.recordFailure(start);
+        return batchResponses(batch, refused);
+    }
+
+    private List<EconomyResponse> batchResponses(EconomyBatch batch, String[] refused) {
+        List<EconomyResponse> out = new ArrayList<>(refused.length);
+        for (int i = 0; i < refused.length; i++) {
+            double balance = balanceOrZero(batch.id(i));
+            out.add(refused[i] != null
+                    ? new EconomyResponse(0.0, balance, ResponseType.FAILURE, refused[i])
+                    : new EconomyResponse(Math.abs(batch.delta(i)), balance, ResponseType.SUCCESS, ""));
+        }
+        return out;
+    }
+
+    private double balanceOrZero(UUID id) {
+        double balance = cachedBalance(id);
+        return Double.isNaN(balance) ? 0.0 : balance;
+    }
+
+    public synchronized void addObserver(LedgerObserver observer) {
+        LedgerObserver[] next = Arrays.copyOf(observers, observers.length + 1);
+        next[observers.length] = observer;
+        observers = next;
+    }
+
+    public synchronized void removeObserver(LedgerObserver observer) {
+        List<LedgerObserver> next = new ArrayList<>(Arrays.asList(observers));
+        next.remove(observer);
+        observers = next.toArray(new LedgerObserver[0]);
+    }
+
+    // lockHeld: the caller already holds the storage read lock (StampedLock is not reentrant)
+    private EconomyResponse withdraw(UUID id, double amount, LedgerObserver.Type type, UUID counterparty, boolean lockHeld) {
+        long start = System.nanoTime();
+        if (!ready && !awaitReady()) {
+            WITHDRAW.recordFailure(start);
+            return new EconomyResponse(0.0, 0.0, ResponseType.FAILURE, "Economy is still loading");
+        }
+        if (amount > 0 && !frozen.isEmpty() && frozen.contains(id)) {
+            WITHDRAW.recordFailure(start);
+            return new EconomyResponse(0.0, balanceOrZero(id), ResponseType.FAILURE, "Account frozen");
+        }
+        long stamp = lockHeld ? 0L : storageLock.readLock();
+        try {
+            Account acc = hotAccount(id);
+            if (acc == null) {
+                if (amount > 0) {
+                    WITHDRAW.recordFailure(start);
+                    return new EconomyResponse(0.0, 0.0, ResponseType.FAILURE, "Insufficient funds");
+                }
+                acc = hotOrNewAccount(id);
+            }
+            synchronized (acc) {
+                Commit result = commitDelta(id, acc, -amount, true, "withdraw");
+                if (result == Commit.INSUFFICIENT_FUNDS) {
+                    WITHDRAW.recordFailure(start);
+                    return new EconomyResponse(0.0, acc.balance, ResponseType.FAILURE, "Insufficient funds");
+                }
+                if (result == Commit.CONFLICT) {
+                    WITHDRAW.recordFailure(start);
+                    return new EconomyResponse(0.0, acc.balance, ResponseType.FAILURE, "Balance changed concurrently, try again");
+                }
+                WITHDRAW.record(start);
+                notifyChange(id, type, counterparty, -amount, acc.balance);
+                return new EconomyResponse(amount, acc.balance, ResponseType.SUCCESS, "");
+            }
+        } finally {
+            touched(id);
+            if (!lockHeld) storageLock.unlockRead(stamp);
+        }
+    }
+
+    private EconomyResponse deposit(UUID id, double amount, LedgerObserver.Type type, UUID counterparty, boolean lockHeld) {
+        long start = System.nanoTime();
+        if (!ready && !awaitReady()) {
+            DEPOSIT.recordFailure(start);
+            return new EconomyResponse(0.0, 0.0, ResponseType.FAILURE, "Economy is still loading");
+        }
+        long stamp = lockHeld ? 0L : storageLock.readLock();
+        try {
+            Account acc = hotOrNewAccount(id);
+            synchronized (acc) {
+                Commit result = commitDelta(id, acc, amount, false, "deposit");
+                if (result == Commit.CONFLICT) {
+                    DEPOSIT.recordFailure(start);
+                    return new EconomyResponse(0.0, acc.balance, ResponseType.FAILURE, "Balance changed concurrently, try again");
+                }
+                DEPOSIT.record(start);
+                notifyChange(id, type, counterparty, amount, acc.balance);
+                return new EconomyResponse(amount, acc.balance, ResponseType.SUCCESS, "");
+            }
+        } finally {
+            touched(id);
+            if (!lockHeld) storageLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Freezes or unfreezes an account: a frozen account keeps receiving money
+     * but cannot withdraw or pay until unfrozen. Returns false when nothing
+     * changed. Frozen accounts are saved right away and survive restarts.
+     */
+    public boolean setFrozen(UUID id, boolean freeze) {
+        boolean changed = freeze ? frozen.add(id) : frozen.remove(id);
+        if (changed) saveFrozen();
+        return changed;
+    }
+
+    public boolean isFrozen(UUID id) {
+        return frozen.contains(id);
+    }
+
+    public Set<UUID> frozenAccounts() {
+        return java.util.Collections.unmodifiableSet(frozen);
+    }
+
+    private synchronized void saveFrozen() {
+        YamlConfiguration config = new YamlConfiguration();
+        List<String> ids = new ArrayList<>();
+        for (UUID id : frozen) ids.add(id.toString());
+        config.set("frozen", ids);
+        try {
+            config.save(new File(plugin.getDataFolder(), "frozen.yml"));
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to save frozen accounts: " + e.getMessage());
+        }
+    }
+
+    private void loadFrozen() {
+        File file = new File(plugin.getDataFolder(), "frozen.yml");
+        if (!file.exists()) return;
+        for (String key : YamlConfiguration.loadConfiguration(file).getStringList("frozen")) {
             try {
-                database.saveBalance(player.getUniqueId(), newBal);
-            } catch (SQLException e) {
-                plugin.getLogger().warning("Failed to save balance after withdraw: " + e.getMessage());
+                frozen.add(UUID.fromString(key));
+            } catch (IllegalArgumentException e) {
+                plugin.getLogger().warning("Invalid frozen account: " + key);
             }
         }
-        return new EconomyResponse(amount, newBal, ResponseType.SUCCESS, "");
     }
 
-    @Override
-    public EconomyResponse depositPlayer(OfflinePlayer player, double amount) {
-        double bal = getBalance(player);
-        double newBal = bal + amount;
-        balances.put(player.getUniqueId(), newBal);
-        if (database != null && database.isEnabled()) {
+    private void notifyChange(UUID id, LedgerObserver.Type type, UUID counterparty, double amount, double balance) {
+        if (amount == 0.0) return;
+        balanceNotifier.changed(id, balance - amount, balance);
+        for (LedgerObserver o : observers) {
             try {
-                database.saveBalance(player.getUniqueId(), newBal);
+                o.onChange(id, type, counterparty, amount, balance);
+            } catch (RuntimeException ex) {
+                plugin.getLogger().warning("Ledger observer failed: " + ex);
+            }
+        }
+    }
+
+    /**
+     * Applies delta to the account. With MySQL the new balance is written with a
+     * version check; when another server won the race the row is re-read and the
+     * delta re-applied on top of it. If the DB is unreachable the change is
+     * appended to the spool and replayed later. Caller holds the account monitor.
+     */
+    private Commit commitDelta(UUID id, Account acc, double delta, boolean requireFunds, String action) {
+        if (!useDatabase()) {
+            double target = acc.balance + delta;
+            if (requireFunds && target < 0) return Commit.INSUFFICIENT_FUNDS;
+            acc.set(target, snapshotEpoch);
+            return Commit.OK;
+        }
+        boolean refreshed = false;
+        for (int attempt = 0; attempt < maxRetries; attempt++) {
+            // Spooled changes are not in the row yet; they are replayed separately
+            double stored = acc.balance - acc.pendingDelta;
+            double target = acc.balance + delta;
+            try {
+                if (requireFunds && target < 0) {
+                    // The cached balance may be stale; only refuse once the row has been re-read
+                    if (refreshed) return Commit.INSUFFICIENT_FUNDS;
+                } else if (database.compareAndSetBalance(id, stored + delta, acc.version)) {
+                    acc.set(target, snapshotEpoch);
+                    acc.version = acc.version + 1;
+                    return Commit.OK;
+                } else {
+                    VERSION_CONFLICT.increment();
+                }
+                refreshed = true;
+                Database.VersionedBalance fresh = database.loadBalance(id);
+                acc.set((fresh != null ? fresh.balance : 0.0) + acc.pendingDelta, snapshotEpoch);
+                acc.version = fresh != null ? fresh.version : 0L;
+                if (delta == 0.0) return Commit.OK; // nothing to write, row is known now
             } catch (SQLException e) {
-                plugin.getLogger().warning("Failed to save balance after deposit: " + e.getMessage());
+                if (requireFunds && target < 0) return Commit.INSUFFICIENT_FUNDS;
+                if (delta != 0.0) {
+                    try {
+                        spool.append(id, delta);
+                        acc.pendingDelta += delta;
+                        SPOOLED_WRITE.increment();
+                    } catch (IOException io) {
+                        plugin.getLogger().severe("Failed to spool " + action + " for " + id + " (" + delta + "): " + io.getMessage());
+                    }
+                }
+                plugin.getLogger().warning("Failed to save balance after " + action + ", queued for retry: " + e.getMessage());
+                acc.set(target, snapshotEpoch);
+                return Commit.OK;
+            }
+        }
+        plugin.getLogger().warning("Gave up on " + action + " for " + id + " after " + maxRetries + " concurrent updates");
+        return Commit.CONFLICT;
+    }
+
+    /**
+     * Replays spooled changes into the database. Each entry is applied once by
+     * transaction id, so a replay interrupted by a crash can simply run again.
+     * Returns true when the spool is empty afterwards.
+     */
+    public boolean replaySpool() {
+        if (spool == null || !useDatabase() || spool.isEmpty()) return true;
+        synchronized (replayLock) {
+            return replaySpoolLocked();
+        }
+    }
+
+    private boolean replaySpoolLocked() {
+        // Fields can be swapped by a storage migration meanwhile
+        Database db = database;
+        WriteSpool sp = spool;
+        if (db == null || sp == null) return true;
+        List<WriteSpool.Entry> entries;
+        String spoolId;
+        try {
+            entries = sp.readAll();
+            spoolId = sp.id();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to read write spool: " + e.getMessage());
+            return false;
+        }
+        Set<String> done = new HashSet<>();
+        boolean complete = true;
+        for (WriteSpool.Entry entry : entries) {
+            // Never cold: accounts with spooled changes are not demoted
+            Account acc = hotOrNewAccount(entry.uuid);
+            synchronized (acc) {
+                try {
+                    Database.VersionedBalance row = db.applyDeltaOnce(spoolId, entry.txId, entry.uuid, entry.delta);
+                    acc.pendingDelta -= entry.delta;
+                    // Already applied: the cache may have counted it twice, so the row (same version) wins too
+                    if (row == null) row = db.loadBalance(entry.uuid);
+                    if (row != null && row.version >= acc.version) {
+                        acc.set(row.balance + acc.pendingDelta, snapshotEpoch);
+                        acc.version = row.version;
+                    }
+                    done.add(entry.txId);
+                } catch (SQLException e) {
+                    complete = false;
+                    break;
+                }
+            }
+        }
+        try {
+            sp.remove(done);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to compact write spool: " + e.getMessage());
+            return false;
+        }
+        if (!done.isEmpty()) {
+            plugin.getLogger().info("Replayed " + done.size() + " spooled balance change(s) into the database");
+        }
+        return complete;
+    }
+
+    /**
+     * Forgets the applied transaction ids of entries this server's spool no
+     * longer holds. Runs under the replay lock, so an entry applied by a replay
+     * still counts as spooled until that replay has compacted it away.
+     */
+    public void pruneAppliedTransactions() {
+        if (spool == null || !useDatabase()) return;
+        synchronized (replayLock) {
+            Database db = database;
+            WriteSpool sp = spool;
+            if (db == null || sp == null) return;
+            try {
+                Set<String> spooled = new HashSet<>();
+                for (WriteSpool.Entry entry : sp.readAll()) spooled.add(entry.txId);
+                db.pruneAppliedTransactions(sp.id(), spooled);
+            } catch (IOException | SQLException e) {
+                plugin.getLogger().warning("Failed to prune applied spool transactions: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Applies a write made by another server, as read from the change log.
+     * Older or already-seen versions are ignored.
+     */
+    public void applyRemoteChange(UUID uuid, double balance, long version) {
+        long stamp = storageLock.readLock();
+        try {
+            double before = applyRow(uuid, balance, version);
+            // Not a change this server made, so observers are not told; balance listeners are
+            if (!Double.isNaN(before)) balanceNotifier.changed(uuid, before, cachedBalance(uuid));
+        } finally {
+            storageLock.unlockRead(stamp);
+        }
+    }
+
+    // Caller holds the storage read lock. Returns the balance it replaced, or NaN if the row was not newer
+    private double applyRow(UUID uuid, double balance, long version) {
+        Account acc = accounts.get(uuid);
+        if (acc == null) {
+            // Sync re-reads rows it has seen; only a newer one may bring a cold account back
+            ColdLedger c = cold;
+            int index = c.indexOf(uuid);
+            if (index >= 0 && version <= c.version(index)) return Double.NaN;
+            acc = hotOrNewAccount(uuid);
+        }
+        double before;
+        synchronized (acc) {
+            if (version <= acc.version) return Double.NaN;
+            before = acc.balance;
+            acc.set(balance + acc.pendingDelta, snapshotEpoch);
+            acc.version = version;
+        }
+        touched(uuid);
+        return before;
+    }
+
+    /** Accounts whose cached balance matches the filter, found with a parallel pass over the ledger. */
+    public List<UUID> selectAccounts(java.util.function.DoublePredicate balanceFilter) {
+        if (!ready && !awaitReady()) return new ArrayList<>();
+        long stamp = storageLock.readLock();
+        try {
+            return ledger()
+                    .filter(e -> balanceFilter.test(e.getValue()))
+                    .map(Map.Entry::getKey)
+                    .collect(java.util.stream.Collectors.toList());
+        } finally {
+            storageLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Computes a change for every cached account accepted by the filter, in
+     * parallel over the whole ledger. Only nonzero changes are returned.
+     */
+    public List<Map.Entry<UUID, Double>> computeChanges(java.util.function.Predicate<UUID> accountFilter,
+                                                       java.util.function.DoubleUnaryOperator change) {
+        if (!ready && !awaitReady()) return new ArrayList<>();
+        long stamp = storageLock.readLock();
+        try {
+            return ledger()
+                    .filter(e -> accountFilter.test(e.getKey()))
+                    .map(e -> new java.util.AbstractMap.SimpleImmutableEntry<>(e.getKey(), change.applyAsDouble(e.getValue())))
+                    .filter(e -> e.getValue() != 0.0)
+                    .collect(java.util.stream.Collectors.<Map.Entry<UUID, Double>>toList());
+        } finally {
+            storageLock.unlockRead(stamp);
+        }
+    }
+
+    // Every account with its current balance, in parallel: the on-heap ones, then the cold ones not
+    // shadowed by them. Caller holds the storage read lock so a demotion cannot move accounts between the two
+    private java.util.stream.Stream<Map.Entry<UUID, Double>> ledger() {
+        java.util.stream.Stream<Map.Entry<UUID, Double>> hot = accounts.entrySet().parallelStream()
+                .map(e -> new java.util.AbstractMap.SimpleImmutableEntry<>(e.getKey(), e.getValue().balance));
+        ColdLedger c = cold;
+        if (c.size() == 0) return hot;
+        java.util.stream.Stream<Map.Entry<UUID, Double>> rest = java.util.stream.IntStream.range(0, c.size()).parallel()
+                .mapToObj(i -> new java.util.AbstractMap.SimpleImmutableEntry<>(c.id(i), c.balance(i)))
+                .filter(e -> !accounts.containsKey(e.getKey()))
+                .map(e -> e);
+        return java.util.stream.Stream.concat(hot, rest);
+    }
+
+    /**
+     * Sets (absolute) or adjusts the balances of a chunk of accounts for bulk
+     * admin commands; adjustments stop at zero. With a database the chunk is
+     * one batched transaction and the cache takes the resulting rows.
+     * Returns the number of accounts updated.
+     */
+    public int applyBulk(List<UUID> ids, double amount, boolean absolute) throws SQLException {
+        double[] amounts = new double[ids.size()];
+        Arrays.fill(amounts, amount);
+        return applyBulk(ids, amounts, absolute);
+    }
+
+    /** Same as above with one amount per account (amounts[i] belongs to ids.get(i)). */
+    public int applyBulk(List<UUID> ids, double[] amounts, boolean absolute) throws SQLException {
+        return applyBulk(ids, amounts, absolute, LedgerObserver.Type.ADMIN);
+    }
+
+    /** Same as above; type is what the ledger observer is told the changes were. */
+    public int applyBulk(List<UUID> ids, double[] amounts, boolean absolute, LedgerObserver.Type type) throws SQLException {
+        if (!ready && !awaitReady()) throw new SQLException("Economy is still loading");
+        // Held for the whole chunk so a storage switch cannot happen halfway through it
+        long stamp = storageLock.readLock();
+        try {
+            if (useDatabase()) {
+                Map<UUID, Database.VersionedBalance> rows = database.applyBalanceBatch(ids, amounts, absolute);
+                for (Map.Entry<UUID, Database.VersionedBalance> row : rows.entrySet()) {
+                    double before = cachedBalance(row.getKey());
+                    applyRow(row.getKey(), row.getValue().balance, row.getValue().version);
+                    notifyChange(row.getKey(), type, null, row.getValue().balance - (Double.isNaN(before) ? 0.0 : before), row.getValue().balance);
+                }
+                return rows.size();
+            }
+            for (int i = 0; i < ids.size(); i++) {
+                Account acc = hotOrNewAccount(ids.get(i));
+                synchronized (acc) {
+                    double before = acc.balance;
+                    acc.set(absolute ? amounts[i] : Math.max(acc.balance + amounts[i], 0.0), snapshotEpoch);
+                    notifyChange(ids.get(i), type, null, acc.balance - before, acc.balance);
+                }
+                touched(ids.get(i));
+            }
+            return ids.size();
+        } finally {
+            storageLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Up to limit (uuid, balance) pairs in uuid order after the given uuid
+     * (null to start). Reads the database when there is one, so an export
+     * sees every stored account; otherwise scans the cache for the page.
+     */
+    public List<Map.Entry<String, Double>> balancePage(String afterUuid, int limit) throws SQLException {
+        if (useDatabase()) return database.loadBalancePage(afterUuid, limit);
+        java.util.TreeMap<String, Double> page = new java.util.TreeMap<>();
+        long stamp = storageLock.readLock();
+        try {
+            java.util.Iterator<Map.Entry<UUID, Double>> it = ledger().sequential().iterator();
+            while (it.hasNext()) {
+                Map.Entry<UUID, Double> e = it.next();
+                String key = e.getKey().toString();
+                if (afterUuid != null && key.compareTo(afterUuid) <= 0) continue;
+                if (page.size() == limit) {
+                    if (key.compareTo(page.lastKey()) >= 0) continue;
+                    page.pollLastEntry();
+                }
+                page.put(key, e.getValue());
             }
+        } finally {
+            storageLock.unlockRead(stamp);
+        }
+        return new ArrayList<>(page.entrySet());
+    }
+
+    public int getAccountCount() {
+        ColdLedger c = cold;
+        if (c.size() == 0) return accounts.size();
+        int count = c.size();
+        for (Account acc : accounts.values()) {
+            if (Double.isNaN(acc.coldValue)) count++;
+        }
+        return count;
+    }
+
+    /** Accounts held on-heap; the rest are in the cold tier. */
+    public int getHotAccountCount() {
+        return accounts.size();
+    }
+
+    /** Sum of all cached balances (weakly consistent while writes are in flight). */
+    public double getMoneySupply() {
+        ColdLedger c = cold;
+        double total = c.total();
+        for (Account acc : accounts.values()) {
+            total += acc.balance;
+            // Counted above at its cold value already
+            if (!Double.isNaN(acc.coldValue)) total -= acc.coldValue;
+        }
+        return total;
+    }
+
+    public long getLoadedChangeId() {
+        return loadedChangeId;
+    }
+
+    // -- Storage migration support (see transfer.MigrationJob) --
+
+    public boolean usesDatabase() {
+        return useDatabase();
+    }
+
+    // The current backend's database, or null without one; follows storage switches
+    Database database() {
+        Database db = database;
+        return db != null && db.isEnabled() ? db : null;
+    }
+
+    /**
+     * Ids of all accounts: a live view of the map without a cold tier, a copy
+     * otherwise (demotion pauses while changes are being captured).
+     */
+    public Set<UUID> accountIds() {
+        ColdLedger c = cold;
+        if (c.size() == 0) return java.util.Collections.unmodifiableSet(accounts.keySet());
+        Set<UUID> ids = new HashSet<>(accounts.keySet());
+        for (int i = 0; i < c.size(); i++) ids.add(c.id(i));
+        return ids;
+    }
+
+    /** Cached balance, or NaN for an unknown account. */
+    public double cachedBalance(UUID id) {
+        Account acc = accounts.get(id);
+        if (acc != null) return acc.balance;
+        ColdLedger c = cold;
+        int index = c.indexOf(id);
+        return index >= 0 ? c.balance(index) : Double.NaN;
+    }
+
+    /** Starts (or stops, with false) recording which accounts change. */
+    public void captureChanges(boolean enabled) {
+        captured = enabled ? ConcurrentHashMap.<UUID>newKeySet() : null;
+    }
+
+    /**
+     * Removes up to max recorded account ids and returns them. An id is marked
+     * after its balance changes and removed here before the balance is read,
+     * so a change racing with this call is either seen or marked again.
+     */
+    public List<UUID> takeCaptured(int max) {
+        List<UUID> out = new ArrayList<>();
+        Set<UUID> set = captured;
+        if (set == null) return out;
+        java.util.Iterator<UUID> it = set.iterator();
+        while (out.size() < max && it.hasNext()) {
+            out.add(it.next());
+            it.remove();
         }
-        return new EconomyResponse(amount, newBal, ResponseType.SUCCESS, "");
+        return out;
+    }
+
+    public boolean isCaptured(UUID id) {
+        Set<UUID> set = captured;
+        return set != null && set.contains(id);
+    }
+
+    /** Records the row version a migration target holds for this account. */
+    public void setStoredVersion(UUID id, long version) {
+        Account acc = accounts.get(id);
+        if (acc == null) return;
+        synchronized (acc) {
+            acc.version = version;
+        }
+    }
+
+    /** Blocks balance writes until {@link #resumeWrites}; returns the lock stamp. */
+    public long pauseWrites() {
+        return storageLock.writeLock();
+    }
+
+    public void resumeWrites(long stamp) {
+        storageLock.unlockWrite(stamp);
+    }
+
+    /**
+     * Switches to another backend: a database (null for the YAML file) and the
+     * change-log position to follow it from. Only while writes are paused.
+     */
+    public void switchDatabase(Database newDatabase, long changeId) {
+        if (!storageLock.isWriteLocked()) throw new IllegalStateException("Writes are not paused");
+        database = newDatabase;
+        if (newDatabase != null && spool == null) spool = new WriteSpool(new File(plugin.getDataFolder(), "spool.log"));
+        if (newDatabase == null) spool = null;
+        loadedChangeId = changeId;
+        captured = null;
+    }
+
+    private void touched(UUID id) {
+        Set<UUID> set = captured;
+        if (set != null) set.add(id);
+        AtomicIntegerArray dirty = dirtyBuckets;
+        if (dirty != null) {
+            int bucket = bucketOf(id, dirty.length());
+            if (dirty.get(bucket) == 0) dirty.set(bucket, 1);
+        }
+    }
+
+    private static int bucketOf(UUID id, int buckets) {
+        return (id.hashCode() & 0x7fffffff) % buckets;
     }
 
     @Override
@@ -168,7 +1094,8 @@ public class SimpleEconomy implements Economy {
     @Override
     public boolean createPlayerAccount(String playerName) {
         OfflinePlayer p = com.example.vault.util.PlayerResolver.resolveByNameWithOfflineFallback(plugin, playerName);
-        if (p == null) return false;
+        // The offline fallback invents a profile for any name; only real players get an account
+        if (p == null || (!p.isOnline() && !p.hasPlayedBefore())) return false;
         return createPlayerAccount(p);
     }
     @Override
@@ -243,11 +1170,36 @@ public class SimpleEconomy implements Economy {
 
     // Persistence methods
     public void load() throws IOException {
-        if (database != null && database.isEnabled()) {
+        loadFrozen();
+        if (useDatabase()) {
             try {
-                Map<UUID, Double> fromDb = database.loadAllBalances();
-                balances.clear();
-                balances.putAll(fromDb);
+                // Read the change-log position first so nothing written during the load is missed.
+                // Both reads may hit a lagging replica: the change log (tailed on the primary)
+                // then replays whatever the replica had not applied yet.
+                long changeId = database.latestChangeId(Database.ReadMode.REPLICA_OK);
+                Map<UUID, Database.VersionedBalance> fromDb = database.loadAllVersionedBalances(Database.ReadMode.REPLICA_OK);
+                accounts.clear();
+                for (Map.Entry<UUID, Database.VersionedBalance> e : fromDb.entrySet()) {
+                    accounts.put(e.getKey(), new Account(e.getValue().balance, e.getValue().version));
+                }
+                loadedChangeId = changeId;
+                // Changes spooled during an earlier outage are not in the DB yet, unless a replay
+                // committed them and the server stopped before spool.log was compacted
+                List<WriteSpool.Entry> spooled = spool.readAll();
+                Set<String> txIds = new HashSet<>();
+                for (WriteSpool.Entry entry : spooled) txIds.add(entry.txId);
+                Set<String> applied = txIds.isEmpty() ? Collections.<String>emptySet() : database.appliedTransactions(txIds);
+                if (!applied.isEmpty()) {
+                    spool.remove(applied);
+                    plugin.getLogger().info("Dropped " + applied.size() + " spooled balance change(s) the database already had");
+                }
+                for (WriteSpool.Entry entry : spooled) {
+                    if (applied.contains(entry.txId)) continue;
+                    Account acc = accounts.computeIfAbsent(entry.uuid, k -> newAccount());
+                    acc.balance += entry.delta;
+                    acc.pendingDelta += entry.delta;
+                }
+                loadColdTier();
                 return;
             } catch (SQLException e) {
                 plugin.getLogger().warning("Failed to load balances from DB: " + e.getMessage());
@@ -255,37 +1207,242 @@ public class SimpleEconomy implements Economy {
         }
         // Fallback to YAML file
         File file = new File(plugin.getDataFolder(), "balances.yml");
-        if (!file.exists()) return;
+        if (file.exists() && !loadYaml(file)) {
+            for (File backup : snapshot.backups()) {
+                plugin.getLogger().severe("balances.yml is unreadable, trying backup " + backup.getName());
+                if (loadYaml(backup)) {
+                    plugin.getLogger().severe("Loaded balances from backup " + backup.getName() + "; changes made after it are lost");
+                    break;
+                }
+            }
+        }
+        // Buckets written by incremental autosave are newer than balances.yml for the accounts they hold
+        File[] parts = bucketDir.listFiles((dir, name) -> name.startsWith("bucket-") && name.endsWith(".yml"));
+        if (parts != null) {
+            for (File part : parts) {
+                if (!loadYaml(part)) plugin.getLogger().severe("Skipped unreadable " + part.getName() + "; its accounts keep their balances.yml values");
+            }
+        }
+        loadColdTier();
+    }
+
+    // With tiering, the whole loaded ledger starts cold; files from an earlier run are stale
+    private void loadColdTier() throws IOException {
+        File[] stale = coldDir.listFiles();
+        if (stale != null) {
+            for (File f : stale) f.delete();
+        }
+        if (!tiering || accounts.isEmpty()) return;
+        synchronized (saveLock) {
+            demote(java.util.Collections.<UUID>emptySet(), Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Moves accounts that have not changed for idleMs, other than those in
+     * keep (online players), from the map to a new cold file generation that
+     * also carries the current one over. Not while a migration captures
+     * changes. Runs off the server thread; returns the number moved.
+     */
+    public int demoteIdle(Set<UUID> keep, long idleMs) throws IOException {
+        if (!tiering || !ready || captured != null) return 0;
+        synchronized (saveLock) {
+            return demote(keep, System.currentTimeMillis() - idleMs);
+        }
+    }
+
+    // Caller holds saveLock, so no snapshot reads the tiers while they change
+    private int demote(Set<UUID> keep, long cutoff) throws IOException {
+        long start = System.nanoTime();
+        ColdLedger.Builder builder = new ColdLedger.Builder();
+        List<UUID> ids = new ArrayList<>();
+        List<Account> picked = new ArrayList<>();
+        List<double[]> seen = new ArrayList<>(); // balance and version when picked
+        for (Map.Entry<UUID, Account> e : accounts.entrySet()) {
+            Account acc = e.getValue();
+            if (acc.lastUsed > cutoff || keep.contains(e.getKey())) continue;
+            synchronized (acc) {
+                if (acc.pendingDelta != 0.0) continue; // the spool replay needs it
+                builder.add(e.getKey(), acc.balance, acc.version);
+                seen.add(new double[] {acc.balance, acc.version});
+            }
+            ids.add(e.getKey());
+            picked.add(acc);
+        }
+        if (ids.isEmpty()) return 0;
+        ColdLedger old = cold;
+        for (int i = 0; i < old.size(); i++) {
+            UUID id = old.id(i);
+            if (!accounts.containsKey(id)) builder.add(id, old.balance(i), old.version(i));
+        }
+        if (!coldDir.isDirectory() && !coldDir.mkdirs()) throw new IOException("Cannot create " + coldDir);
+        File file = new File(coldDir, "ledger-" + (++coldGeneration) + ".dat");
+        ColdLedger next = builder.write(file);
+        int moved = 0;
+        // Short: no write runs meanwhile, so an unchanged account can leave the map safely
+        long stamp = storageLock.writeLock();
+        try {
+            cold = next; // before the removals, so a lock-free reader missing the map finds the account here
+            for (int i = 0; i < ids.size(); i++) {
+                Account acc = picked.get(i);
+                if (acc.balance != seen.get(i)[0] || acc.version != (long) seen.get(i)[1] || acc.pendingDelta != 0.0) continue;
+                if (accounts.remove(ids.get(i), acc)) moved++;
+            }
+            for (Map.Entry<UUID, Account> e : accounts.entrySet()) {
+                int index = next.indexOf(e.getKey());
+                e.getValue().coldValue = index >= 0 ? next.balance(index) : Double.NaN;
+            }
+        } finally {
+            storageLock.unlockWrite(stamp);
+        }
+        // Still mapped until collected; where that blocks deleting, the next start cleans up
+        if (old.file() != null && !old.file().delete()) old.file().deleteOnExit();
+        DEMOTE.record(start);
+        return moved;
+    }
+
+    // False when a non-empty file yields no balances (unparseable)
+    private boolean loadYaml(File file) {
         YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
-        for (String key : config.getKeys(false)) {
+        Set<String> keys = config.getKeys(false);
+        if (keys.isEmpty() && file.length() > 0) return false;
+        for (String key : keys) {
             try {
                 UUID uuid = UUID.fromString(key);
                 double balance = config.getDouble(key);
-                balances.put(uuid, balance);
+                accounts.put(uuid, new Account(balance, 0L));
             } catch (Exception e) {
                 plugin.getLogger().warning("Invalid balance entry: " + key);
             }
         }
+        return true;
+    }
+
+    /**
+     * Starts a new snapshot epoch once in-flight writes finish (the write lock
+     * is held for no more than that). From then on the first change to each
+     * account keeps its balance as of this cut, so a snapshot can read a
+     * consistent view while writers carry on.
+     */
+    private long cutSnapshot() {
+        long stamp = storageLock.writeLock();
+        try {
+            return ++snapshotEpoch;
+        } finally {
+            storageLock.unlockWrite(stamp);
+        }
     }
 
     public void save() throws IOException {
-        if (database != null && database.isEnabled()) {
-            // save every balance
-            for (Map.Entry<UUID, Double> entry : balances.entrySet()) {
-                try {
-                    database.saveBalance(entry.getKey(), entry.getValue());
-                } catch (SQLException e) {
-                    plugin.getLogger().warning("Failed to save balance to DB: " + e.getMessage());
-                }
-            }
+        if (!ready) return; // nothing loaded yet; writing now would lose balances
+        if (useDatabase()) {
+            // Every change is written when it happens; only retry the ones the DB missed
+            replaySpool();
             return;
         }
-        File file = new File(plugin.getDataFolder(), "balances.yml");
-        YamlConfiguration config = new YamlConfiguration();
-        for (Map.Entry<UUID, Double> entry : balances.entrySet()) {
-            config.set(entry.getKey().toString(), entry.getValue());
+        synchronized (saveLock) {
+            AtomicIntegerArray dirty = dirtyBuckets;
+            if (dirty == null) {
+                saveFull();
+                return;
+            }
+            for (int bucket = 0; bucket < dirty.length(); bucket++) saveBucket(dirty, bucket);
+        }
+    }
+
+    /**
+     * Switches YAML autosave between full snapshots (0) and the given number of
+     * hash buckets, each kept in its own file under balances/ and rewritten by
+     * {@link #saveNextBucket} only when one of its accounts changed. The switch
+     * writes the whole ledger to balances.yml once and drops the old bucket
+     * files, so call it off the server thread. Always full snapshots with MySQL.
+     */
+    public void setIncrementalSave(int buckets) throws IOException {
+        if (!ready) return; // the bucket files on disk are still needed by load()
+        synchronized (saveLock) {
+            AtomicIntegerArray current = dirtyBuckets;
+            if (useDatabase() || buckets <= 0) {
+                dirtyBuckets = null;
+                // Also merges buckets left by an earlier run in incremental mode
+                if (!useDatabase() && (current != null || bucketDir.isDirectory())) saveFull();
+                return;
+            }
+            if (current != null && current.length() == buckets) return;
+            // Set before the cut so a change the full save misses still marks its bucket
+            dirtyBuckets = new AtomicIntegerArray(buckets);
+            nextBucket = 0;
+            saveFull();
         }
-        config.save(file);
+    }
+
+    /** One incremental autosave slice: writes the next bucket in turn if it changed. */
+    public boolean saveNextBucket() throws IOException {
+        if (!ready || useDatabase()) return false;
+        synchronized (saveLock) {
+            AtomicIntegerArray dirty = dirtyBuckets;
+            if (dirty == null) return false;
+            int bucket = nextBucket % dirty.length();
+            nextBucket = bucket + 1;
+            return saveBucket(dirty, bucket);
+        }
+    }
+
+    // Caller holds saveLock
+    private void saveFull() throws IOException {
+        if (!ready) return;
+        long start = System.nanoTime();
+        // Streamed in the format load() reads; the file is replaced atomically once synced
+        snapshot.write(out -> writeBalances(out, cutSnapshot(), -1, 0));
+        SNAPSHOT.record(start);
+        // balances.yml now holds everything; left-over buckets would override it on load
+        File[] parts = bucketDir.listFiles();
+        if (parts == null) return;
+        for (File part : parts) {
+            if (!part.delete()) plugin.getLogger().warning("Failed to delete " + part + "; delete it before the next start");
+        }
+        bucketDir.delete();
+    }
+
+    // Caller holds saveLock. The flag is cleared before the cut, so a change the cut misses sets it again
+    private boolean saveBucket(AtomicIntegerArray dirty, int bucket) throws IOException {
+        if (dirty.getAndSet(bucket, 0) == 0) return false;
+        long start = System.nanoTime();
+        try {
+            if (!bucketDir.isDirectory() && !bucketDir.mkdirs()) throw new IOException("Cannot create " + bucketDir);
+            SnapshotFile file = new SnapshotFile(new File(bucketDir, String.format("bucket-%03d.yml", bucket)), bucketDir, 0, 0L);
+            file.write(out -> writeBalances(out, cutSnapshot(), bucket, dirty.length()));
+        } catch (IOException e) {
+            dirty.set(bucket, 1);
+            BUCKET_SAVE.recordFailure(start);
+            throw e;
+        }
+        BUCKET_SAVE.record(start);
+        return true;
+    }
+
+    // Every account as of the cut, or only those of one bucket (bucket >= 0)
+    private void writeBalances(java.io.Writer out, long cut, int bucket, int buckets) throws IOException {
+        // saveLock keeps the cold tier fixed; accounts in both tiers are written once, in the second loop
+        ColdLedger c = cold;
+        for (Map.Entry<UUID, Account> entry : accounts.entrySet()) {
+            if (bucket >= 0 && bucketOf(entry.getKey(), buckets) != bucket) continue;
+            if (c.size() > 0 && c.indexOf(entry.getKey()) >= 0) continue;
+            writeBalance(out, entry.getKey(), entry.getValue().balanceAt(cut));
+        }
+        for (int i = 0; i < c.size(); i++) {
+            UUID id = c.id(i);
+            if (bucket >= 0 && bucketOf(id, buckets) != bucket) continue;
+            Account acc = accounts.get(id);
+            writeBalance(out, id, acc != null ? acc.balanceAt(cut) : c.balance(i));
+        }
+    }
+
+    private static void writeBalance(java.io.Writer out, UUID id, double balance) throws IOException {
+        if (Double.isNaN(balance)) return;
+        out.write(id.toString());
+        out.write(": ");
+        out.write(java.math.BigDecimal.valueOf(balance).toPlainString());
+        out.write('\n');
     }
 
     public void close() {
@@ -0,0 +1,33 @@
+package com.example.vault.economy;
+
+/**
+ * Periodically replays the write spool, backing off exponentially while
+ * the database keeps failing. Runs on an async scheduler thread.
+ */
+public class SpoolReplayer implements Runnable {
+    private final SimpleEconomy economy;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private long delayMs;
+    private long nextAttemptAt = 0L;
+
+    public SpoolReplayer(SimpleEconomy economy, long baseDelayMs, long maxDelayMs) {
+        this.economy = economy;
+        this.baseDelayMs = Math.max(1000L, baseDelayMs);
+        this.maxDelayMs = Math.max(this.baseDelayMs, maxDelayMs);
+        this.delayMs = this.baseDelayMs;
+    }
+
+    @Override
+    public synchronized void run() {
+        long now = System.currentTimeMillis();
+        if (now < nextAttemptAt) return;
+        if (economy.replaySpool()) {
+            delayMs = baseDelayMs;
+            nextAttemptAt = 0L;
+        } else {
+            nextAttemptAt = now + delayMs;
+            delayMs = Math.min(maxDelayMs, delayMs * 2);
+        }
+    }
+}
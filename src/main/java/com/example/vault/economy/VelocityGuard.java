@@ -0,0 +1,174 @@
+package com.example.vault.economy;
+
+import com.example.vault.metrics.Metrics;
+import com.example.vault.metrics.OpStats;
+import com.example.vault.util.CallerPlugin;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Watches money flowing into accounts (config velocity). Sliding-window sums
+ * are kept per receiving account and per depositing plugin; crossing a limit
+ * flags the account or plugin, alerts online OPs and, with velocity.freeze,
+ * freezes the account. Each change costs a fixed number of bucket updates;
+ * per-plugin limits (off by default) add a stack walk to every deposit.
+ */
+public final class VelocityGuard implements LedgerObserver {
+    private static final OpStats FLAGGED = Metrics.op("velocity.flagged");
+
+    private final Plugin plugin;
+    private final SimpleEconomy economy;
+    private final CallerPlugin callers; // null when plugin limits are off
+    private final long bucketMs;
+    private final int buckets;
+    private final double accountMaxInflow;
+    private final int accountMaxDeposits;
+    private final double pluginMaxInflow;
+    private final boolean freeze;
+    private final long alertCooldownMs;
+    private final Set<String> exemptPlugins = new HashSet<>();
+    private final Map<UUID, Window> accounts = new ConcurrentHashMap<>();
+    private final Map<String, Window> plugins = new ConcurrentHashMap<>();
+    private final Map<String, String> flags = new ConcurrentHashMap<>(); // who -> last reason
+    private final Map<String, Long> lastAlert = new ConcurrentHashMap<>();
+
+    /**
+     * Ring of time buckets covering one window, with running totals. Buckets
+     * that fall out of the window are subtracted as time moves on, so an
+     * update touches at most the buckets skipped since the previous one.
+     */
+    private static final class Window {
+        final double[] sums;
+        final int[] counts;
+        double total;
+        int totalCount;
+        volatile long lastSlot;
+
+        Window(int buckets, long slot) {
+            sums = new double[buckets];
+            counts = new int[buckets];
+            lastSlot = slot;
+        }
+
+        /** Adds one change and returns true when the window now exceeds a limit (0 = no limit). */
+        synchronized boolean add(long slot, double amount, double maxSum, int maxCount) {
+            int n = sums.length;
+            if (slot - lastSlot >= n) {
+                Arrays.fill(sums, 0.0);
+                Arrays.fill(counts, 0);
+                total = 0.0;
+                totalCount = 0;
+                lastSlot = slot;
+            }
+            for (long s = lastSlot + 1; s <= slot; s++) {
+                int i = (int) (s % n);
+                total -= sums[i];
+                totalCount -= counts[i];
+                sums[i] = 0.0;
+                counts[i] = 0;
+            }
+            if (slot > lastSlot) lastSlot = slot;
+            int i = (int) (lastSlot % n); // a clock step backwards counts towards the current bucket
+            sums[i] += amount;
+            counts[i]++;
+            total += amount;
+            totalCount++;
+            return (maxSum > 0 && total > maxSum) || (maxCount > 0 && totalCount > maxCount);
+        }
+    }
+
+    private Window window(Map<UUID, Window> map, UUID key, long slot) {
+        Window w = map.get(key);
+        return w != null ? w : map.computeIfAbsent(key, k -> new Window(buckets, slot));
+    }
+
+    public VelocityGuard(Plugin plugin, SimpleEconomy economy) {
+        this.plugin = plugin;
+        this.economy = economy;
+        this.buckets = Math.max(2, plugin.getConfig().getInt("velocity.buckets", 12));
+        this.bucketMs = Math.max(1L, plugin.getConfig().getLong("velocity.window_seconds", 60L) * 1000L / buckets);
+        this.accountMaxInflow = plugin.getConfig().getDouble("velocity.account_max_inflow", 1_000_000.0);
+        this.accountMaxDeposits = plugin.getConfig().getInt("velocity.account_max_deposits", 300);
+        this.pluginMaxInflow = plugin.getConfig().getDouble("velocity.plugin_max_inflow", 0.0);
+        this.freeze = plugin.getConfig().getBoolean("velocity.freeze", false);
+        this.alertCooldownMs = plugin.getConfig().getLong("velocity.alert_cooldown_seconds", 60L) * 1000L;
+        for (String name : plugin.getConfig().getStringList("velocity.exempt_plugins")) {
+            exemptPlugins.add(name.toLowerCase(Locale.ROOT));
+        }
+        this.callers = pluginMaxInflow > 0 ? new CallerPlugin(plugin) : null;
+    }
+
+    @Override
+    public void onChange(UUID account, Type type, UUID counterparty, double amount, double balance) {
+        if (amount <= 0 || (type != Type.DEPOSIT && type != Type.PAY_RECEIVED)) return;
+        long slot = System.currentTimeMillis() / bucketMs;
+        if (window(accounts, account, slot).add(slot, amount, accountMaxInflow, accountMaxDeposits)) {
+            trip(account.toString(), account, String.format(Locale.ROOT, "received more than %s or %d deposits within %ds",
+                    economy.format(accountMaxInflow), accountMaxDeposits, bucketMs * buckets / 1000L));
+        }
+        if (callers != null && type == Type.DEPOSIT) {
+            String source = callers.find();
+            if (source == null) source = "unknown";
+            if (exemptPlugins.contains(source.toLowerCase(Locale.ROOT))) return;
+            Window w = plugins.get(source);
+            if (w == null) w = plugins.computeIfAbsent(source, k -> new Window(buckets, slot));
+            if (w.add(slot, amount, pluginMaxInflow, 0)) {
+                trip("plugin " + source, null, String.format(Locale.ROOT, "deposited more than %s within %ds (last to %s)",
+                        economy.format(pluginMaxInflow), bucketMs * buckets / 1000L, account));
+            }
+        }
+    }
+
+    private void trip(String who, UUID account, String reason) {
+        FLAGGED.increment();
+        flags.put(who, reason);
+        boolean frozeNow = freeze && account != null && economy.setFrozen(account, true);
+        long now = System.currentTimeMillis();
+        Long last = lastAlert.get(who);
+        if (!frozeNow && last != null && now - last < alertCooldownMs) return;
+        lastAlert.put(who, now);
+        String name = who;
+        if (account != null) {
+            String playerName = plugin.getServer().getOfflinePlayer(account).getName();
+            if (playerName != null) name = playerName + " (" + account + ")";
+        }
+        final String message = "Velocity limit: " + name + " " + reason + (frozeNow ? "; account frozen" : "");
+        plugin.getLogger().warning(message);
+        plugin.getServer().getScheduler().runTask(plugin, new Runnable() {
+            @Override public void run() {
+                for (Player p : plugin.getServer().getOnlinePlayers()) {
+                    if (p.isOp()) p.sendMessage("§c[Vault] " + message);
+                }
+            }
+        });
+    }
+
+    /** Background timer: forgets windows with no recent activity. */
+    public void evictIdle() {
+        long oldest = System.currentTimeMillis() / bucketMs - buckets;
+        accounts.values().removeIf(w -> w.lastSlot <= oldest);
+        plugins.values().removeIf(w -> w.lastSlot <= oldest);
+    }
+
+    /** Flagged accounts and plugins with the last reason, for /vault velocity. */
+    public List<String> describeFlags() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, String> e : flags.entrySet()) lines.add(e.getKey() + ": " + e.getValue());
+        return lines;
+    }
+
+    public void clearFlags() {
+        flags.clear();
+        lastAlert.clear();
+    }
+}
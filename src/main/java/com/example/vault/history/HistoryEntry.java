@@ -0,0 +1,26 @@
+package com.example.vault.history;
+
+import java.util.UUID;
+
+/** One recorded balance change. */
+public final class HistoryEntry {
+    public final long id;            // row id once stored in MySQL, line number in a local segment
+    public final long time;          // epoch millis
+    public final UUID account;
+    public final String type;
+    public final UUID counterparty;  // null unless a payment
+    public final double amount;      // signed
+    public final double balance;     // after the change
+    public final String source;      // plugin that made the change, or null
+
+    public HistoryEntry(long id, long time, UUID account, String type, UUID counterparty, double amount, double balance, String source) {
+        this.id = id;
+        this.time = time;
+        this.account = account;
+        this.type = type;
+        this.counterparty = counterparty;
+        this.amount = amount;
+        this.balance = balance;
+        this.source = source;
+    }
+}
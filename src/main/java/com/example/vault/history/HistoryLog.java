@@ -0,0 +1,282 @@
+package com.example.vault.history;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * History without MySQL: one tab-separated segment file per UTC day, so
+ * retention just deletes old files. Pages are read newest segment first;
+ * an entry's id is its position (day * LINES_PER_DAY + line) and serves as
+ * the page cursor.
+ * <p>
+ * Each segment has a sorted index next to it (day.idx): the segment length
+ * and line count it covers, then one record per line ordered by account and
+ * line. A page binary-searches it and reads only the account's lines; lines
+ * appended since (today's, mostly) are scanned, and the index is rebuilt
+ * once that tail grows past a quarter of what it covers.
+ */
+final class HistoryLog {
+    private static final long LINES_PER_DAY = 100_000_000L;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final int HEADER = 16;
+    private static final int RECORD = 32; // account msb, lsb, line, byte offset
+    private static final long MIN_REINDEX_BYTES = 256 * 1024L;
+
+    private final File dir;
+
+    HistoryLog(File dir) {
+        this.dir = dir;
+    }
+
+    synchronized void append(List<HistoryEntry> entries) throws IOException {
+        if (entries.isEmpty()) return;
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        BufferedWriter out = null;
+        long openDay = -1L;
+        try {
+            for (HistoryEntry e : entries) {
+                long day = Math.floorDiv(e.time, MILLIS_PER_DAY);
+                if (day != openDay) {
+                    if (out != null) out.close();
+                    out = Files.newBufferedWriter(segment(day).toPath(), StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                    openDay = day;
+                }
+                out.write(e.time + "\t" + e.account + "\t" + e.type + "\t" + (e.counterparty != null ? e.counterparty : "-")
+                        + "\t" + e.amount + "\t" + e.balance + "\t" + (e.source != null ? e.source : "-"));
+                out.newLine();
+            }
+        } finally {
+            if (out != null) out.close();
+        }
+    }
+
+    /** Up to limit entries of one account, newest first, positioned before beforeId. */
+    List<HistoryEntry> page(UUID account, long beforeId, int limit) throws IOException {
+        List<HistoryEntry> out = new ArrayList<>();
+        for (long day : days()) {
+            if (day * LINES_PER_DAY >= beforeId) continue;
+            long beforeLine = Math.min(LINES_PER_DAY, beforeId - day * LINES_PER_DAY);
+            long[] covered = index(day);
+            try (RandomAccessFile seg = new RandomAccessFile(segment(day), "r")) {
+                List<HistoryEntry> tail = scanTail(seg, day, covered, account, beforeLine);
+                for (int i = tail.size() - 1; i >= 0 && out.size() < limit; i--) out.add(tail.get(i));
+                if (out.size() < limit) readIndexed(seg, day, account, beforeLine, limit, out);
+            }
+            if (out.size() >= limit) break;
+        }
+        return out;
+    }
+
+    // Lines past the index, oldest first; the last one may be torn and is then skipped
+    private List<HistoryEntry> scanTail(RandomAccessFile seg, long day, long[] covered, UUID account, long beforeLine) throws IOException {
+        List<HistoryEntry> out = new ArrayList<>();
+        if (seg.length() <= covered[0]) return out;
+        seg.seek(covered[0]);
+        String key = "\t" + account + "\t";
+        BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(seg.getChannel()), StandardCharsets.UTF_8));
+        long line = covered[1];
+        String text;
+        while ((text = in.readLine()) != null && ++line < beforeLine) {
+            // Account is the second column; the same uuid may also appear as counterparty
+            if (!text.startsWith(key, text.indexOf('\t'))) continue;
+            HistoryEntry entry = parse(day * LINES_PER_DAY + line, account, text);
+            if (entry != null) out.add(entry);
+        }
+        return out;
+    }
+
+    private void readIndexed(RandomAccessFile seg, long day, UUID account, long beforeLine, int limit, List<HistoryEntry> out) throws IOException {
+        File file = indexFile(day);
+        if (!file.exists()) return;
+        try (RandomAccessFile idx = new RandomAccessFile(file, "r")) {
+            long msb = account.getMostSignificantBits();
+            long lsb = account.getLeastSignificantBits();
+            // First record at or after (account, beforeLine); the account's earlier lines precede it
+            long lo = 0, hi = (idx.length() - HEADER) / RECORD;
+            while (lo < hi) {
+                long mid = (lo + hi) >>> 1;
+                idx.seek(HEADER + mid * RECORD);
+                int cmp = Long.compare(idx.readLong(), msb);
+                if (cmp == 0) cmp = Long.compare(idx.readLong(), lsb);
+                if (cmp == 0) cmp = Long.compare(idx.readLong(), beforeLine);
+                if (cmp < 0) lo = mid + 1;
+                else hi = mid;
+            }
+            for (long r = lo - 1; r >= 0 && out.size() < limit; r--) {
+                idx.seek(HEADER + r * RECORD);
+                if (idx.readLong() != msb || idx.readLong() != lsb) break;
+                long line = idx.readLong();
+                HistoryEntry entry = parse(day * LINES_PER_DAY + line, account, readLine(seg, idx.readLong()));
+                if (entry != null) out.add(entry);
+            }
+        }
+    }
+
+    // {segment bytes, lines} the index of this day covers, rebuilt when the rest has grown too large
+    private synchronized long[] index(long day) throws IOException {
+        File seg = segment(day);
+        File file = indexFile(day);
+        long length = seg.length();
+        if (file.length() >= HEADER) {
+            try (RandomAccessFile idx = new RandomAccessFile(file, "r")) {
+                long bytes = idx.readLong();
+                long lines = idx.readLong();
+                if (bytes <= length && length - bytes <= Math.max(MIN_REINDEX_BYTES, bytes / 4)) return new long[]{bytes, lines};
+            }
+        }
+        return buildIndex(seg, file);
+    }
+
+    private static long[] buildIndex(File seg, File file) throws IOException {
+        Map<UUID, long[]> positions = new HashMap<>(); // per account: count, then (line, offset) pairs
+        long offset = 0, lineStart = 0, lines = 0;
+        byte[] column = new byte[36];
+        int tabs = 0, columnLength = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(seg.toPath()), 1 << 16)) {
+            int b;
+            while ((b = in.read()) != -1) {
+                offset++;
+                if (b == '\n') {
+                    lines++;
+                    if (columnLength == 36) {
+                        try {
+                            UUID account = UUID.fromString(new String(column, StandardCharsets.US_ASCII));
+                            long[] list = positions.get(account);
+                            if (list == null || 1 + (int) list[0] * 2 + 2 > list.length) {
+                                long[] grown = new long[list == null ? 9 : list.length * 2 - 1];
+                                if (list != null) System.arraycopy(list, 0, grown, 0, list.length);
+                                positions.put(account, list = grown);
+                            }
+                            int at = 1 + (int) list[0] * 2;
+                            list[at] = lines;
+                            list[at + 1] = lineStart;
+                            list[0]++;
+                        } catch (IllegalArgumentException ignored) {
+                            // torn or foreign line, not indexed (parse would skip it too)
+                        }
+                    }
+                    lineStart = offset;
+                    tabs = 0;
+                    columnLength = 0;
+                } else if (b == '\t') {
+                    tabs++;
+                } else if (tabs == 1) {
+                    if (columnLength < 36) column[columnLength] = (byte) b;
+                    columnLength++;
+                }
+            }
+        }
+        List<UUID> accounts = new ArrayList<>(positions.keySet());
+        Collections.sort(accounts); // signed msb, then lsb: the order readIndexed searches in
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+            // Only whole lines are covered; a torn last line is left to the tail scan
+            out.writeLong(lineStart);
+            out.writeLong(lines);
+            for (UUID account : accounts) {
+                long[] list = positions.get(account);
+                for (int i = 0; i < list[0]; i++) {
+                    out.writeLong(account.getMostSignificantBits());
+                    out.writeLong(account.getLeastSignificantBits());
+                    out.writeLong(list[1 + i * 2]);
+                    out.writeLong(list[2 + i * 2]);
+                }
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new long[]{lineStart, lines};
+    }
+
+    private static String readLine(RandomAccessFile seg, long offset) throws IOException {
+        seg.seek(offset);
+        byte[] buf = new byte[256];
+        int n = 0;
+        while (true) {
+            if (n == buf.length) buf = Arrays.copyOf(buf, n * 2);
+            int read = seg.read(buf, n, buf.length - n);
+            if (read <= 0) break;
+            int end = n + read;
+            for (; n < end; n++) {
+                if (buf[n] == '\n') return decode(buf, n);
+            }
+        }
+        return decode(buf, n);
+    }
+
+    private static String decode(byte[] line, int length) {
+        if (length > 0 && line[length - 1] == '\r') length--;
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /** Deletes segments that only hold entries older than the given time. */
+    synchronized int prune(long olderThanMillis) {
+        long keepFrom = Math.floorDiv(olderThanMillis, MILLIS_PER_DAY);
+        int deleted = 0;
+        for (long day : days()) {
+            if (day < keepFrom && segment(day).delete()) {
+                deleted++;
+                indexFile(day).delete();
+            }
+        }
+        return deleted;
+    }
+
+    private File segment(long day) {
+        return new File(dir, java.time.LocalDate.ofEpochDay(day) + ".log");
+    }
+
+    private File indexFile(long day) {
+        return new File(dir, java.time.LocalDate.ofEpochDay(day) + ".idx");
+    }
+
+    // Segment days, newest first
+    private List<Long> days() {
+        List<Long> days = new ArrayList<>();
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".log"));
+        if (files == null) return days;
+        for (File f : files) {
+            try {
+                days.add(java.time.LocalDate.parse(f.getName().substring(0, f.getName().length() - 4)).toEpochDay());
+            } catch (java.time.format.DateTimeParseException ignored) {
+                // not a segment
+            }
+        }
+        days.sort(java.util.Collections.reverseOrder());
+        return days;
+    }
+
+    private static HistoryEntry parse(long id, UUID account, String line) {
+        String[] f = line.split("\t", -1);
+        if (f.length != 7) return null; // torn line from a crash or a concurrent append
+        try {
+            return new HistoryEntry(id, Long.parseLong(f[0]), account, f[2].toUpperCase(Locale.ROOT),
+                    "-".equals(f[3]) ? null : UUID.fromString(f[3]), Double.parseDouble(f[4]), Double.parseDouble(f[5]),
+                    "-".equals(f[6]) ? null : f[6]);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.vault.history;
+
+import com.example.vault.Database;
+import com.example.vault.VaultPlugin;
+import com.example.vault.economy.LedgerObserver;
+import com.example.vault.metrics.Metrics;
+import com.example.vault.metrics.OpStats;
+import com.example.vault.util.CallerPlugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records every balance change (config history). Changes are queued by the
+ * thread that made them and written in batches by a background task: to
+ * vault_history with MySQL, otherwise to daily segment files under history/.
+ * Entries older than history.retention_days are pruned.
+ */
+public final class TransactionHistory implements LedgerObserver {
+    private static final OpStats FLUSH = Metrics.op("history.flush");
+    private static final OpStats DROPPED = Metrics.op("history.dropped");
+    private static final long PRUNE_INTERVAL_MS = 3_600_000L;
+    private static final int PRUNE_CHUNK = 10_000;
+
+    private final VaultPlugin plugin;
+    private final HistoryLog log;
+    private final ConcurrentLinkedQueue<HistoryEntry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final CallerPlugin callers; // null when history.detect_source is off
+    private final int maxQueued;
+    private final int batchSize;
+    private final long retentionMs;
+    private List<HistoryEntry> retry = new ArrayList<>(); // batch that failed to write, flusher only
+    private long lastPruneMs;
+    private volatile long lastDropWarningMs;
+
+    public TransactionHistory(VaultPlugin plugin) {
+        this.plugin = plugin;
+        this.log = new HistoryLog(new File(plugin.getDataFolder(), "history"));
+        this.maxQueued = Math.max(1000, plugin.getConfig().getInt("history.max_queued", 100_000));
+        this.batchSize = Math.max(1, plugin.getConfig().getInt("history.batch_size", 500));
+        this.retentionMs = plugin.getConfig().getLong("history.retention_days", 90L) * 86_400_000L;
+        this.callers = plugin.getConfig().getBoolean("history.detect_source", false) ? new CallerPlugin(plugin) : null;
+    }
+
+    @Override
+    public void onChange(UUID account, Type type, UUID counterparty, double amount, double balance) {
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            DROPPED.increment();
+            long now = System.currentTimeMillis();
+            if (now - lastDropWarningMs > 60_000L) {
+                lastDropWarningMs = now;
+                plugin.getLogger().warning("History queue is full (" + maxQueued + "), dropping entries until it drains");
+            }
+            return;
+        }
+        queue.add(new HistoryEntry(0L, System.currentTimeMillis(), account, type.name(), counterparty, amount, balance,
+                callers != null ? callers.find() : null));
+    }
+
+    /** Background timer: writes queued entries in batches and prunes old ones once an hour. */
+    public synchronized void flush() {
+        while (true) {
+            if (retry.isEmpty()) {
+                HistoryEntry e;
+                while (retry.size() < batchSize && (e = queue.poll()) != null) retry.add(e);
+                if (retry.isEmpty()) break;
+            }
+            long start = System.nanoTime();
+            try {
+                Database db = plugin.getDatabase();
+                if (db != null && db.isEnabled()) db.insertHistory(retry);
+                else log.append(retry);
+                FLUSH.record(start);
+            } catch (SQLException | IOException | RuntimeException ex) {
+                // Kept and retried on the next run; new changes keep queueing meanwhile
+                FLUSH.recordFailure(start);
+                plugin.getLogger().warning("Failed to write " + retry.size() + " history entries: " + ex.getMessage());
+                return;
+            }
+            queued.addAndGet(-retry.size());
+            retry = new ArrayList<>();
+        }
+        long now = System.currentTimeMillis();
+        if (retentionMs > 0 && now - lastPruneMs >= PRUNE_INTERVAL_MS) {
+            lastPruneMs = now;
+            prune(now - retentionMs);
+        }
+    }
+
+    private void prune(long olderThan) {
+        Database db = plugin.getDatabase();
+        try {
+            if (db != null && db.isEnabled()) {
+                // Small chunks so the delete never holds locks for long
+                int deleted;
+                do {
+                    deleted = db.pruneHistory(olderThan, PRUNE_CHUNK);
+                } while (deleted == PRUNE_CHUNK);
+            } else {
+                log.prune(olderThan);
+            }
+        } catch (SQLException ex) {
+            plugin.getLogger().warning("Failed to prune history: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * One page of an account's history, newest first, strictly before the
+     * cursor (Long.MAX_VALUE, Long.MAX_VALUE for the first page). The next
+     * cursor is the last entry's (time, id). Flushes first so the page
+     * includes the latest changes. Background threads only.
+     */
+    public List<HistoryEntry> page(UUID account, long beforeTime, long beforeId, int limit) throws SQLException, IOException {
+        flush();
+        Database db = plugin.getDatabase();
+        if (db != null && db.isEnabled()) return db.loadHistoryPage(account, beforeTime, beforeId, limit);
+        return log.page(account, beforeId, limit);
+    }
+}
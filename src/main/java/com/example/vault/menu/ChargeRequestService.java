@@ -1,6 +1,7 @@
 package com.example.vault.menu;
 
 import com.example.vault.Database;
+import com.example.vault.VaultSettings;
 import com.example.vault.i18n.Messages;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
@@ -13,15 +14,22 @@ import org.bukkit.plugin.Plugin;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
+import com.example.vault.metrics.Metrics;
+import com.example.vault.metrics.OpStats;
+
 import net.md_5.bungee.api.chat.ClickEvent;
 import net.md_5.bungee.api.chat.HoverEvent;
 import net.md_5.bungee.api.chat.TextComponent;
 import net.md_5.bungee.api.chat.BaseComponent;
 
 public class ChargeRequestService implements Listener {
+    private static final OpStats ADD_PENDING = Metrics.op("charge.add_pending");
+    private static final OpStats ON_JOIN = Metrics.op("charge.deliver_on_join");
+    private static final OpStats ON_CHAT = Metrics.op("charge.chat_amount");
+
     private final Plugin plugin;
     private final Messages messages;
-    private final Database database;
+    private volatile Database database; // may be null; replaced by a storage migration
 
     private final Map<String, List<PendingRequest>> pendingByRecipient = new ConcurrentHashMap<>();
     private final Set<String> awaitingAmount = ConcurrentHashMap.newKeySet();
@@ -56,33 +64,105 @@ public class ChargeRequestService implements Listener {
         }
     }
 
+    /** Charge requests queued in memory for players who have not collected them yet. */
+    public int getPendingCount() {
+        int n = 0;
+        for (List<PendingRequest> list : pendingByRecipient.values()) n += list.size();
+        return n;
+    }
+
+    /** Players currently typing an amount in chat. */
+    public int getAwaitingInputCount() {
+        return awaitingAmount.size();
+    }
+
+    /** Switches the store for new requests. Server thread only. */
+    public void setDatabase(Database database) {
+        this.database = database;
+    }
+
+    /**
+     * Removes the requests that only live in memory and returns them, so a
+     * migration can write them to the database, where joins pick them up.
+     * Server thread only.
+     */
+    public List<Database.ChargeRequest> detachUnsaved() {
+        List<Database.ChargeRequest> out = new ArrayList<>();
+        for (Map.Entry<String, List<PendingRequest>> e : pendingByRecipient.entrySet()) {
+            List<PendingRequest> kept = new ArrayList<>();
+            for (PendingRequest pr : e.getValue()) {
+                if (pr.id > 0) kept.add(pr);
+                else out.add(new Database.ChargeRequest(-1, e.getKey(), pr.sender, pr.amount));
+            }
+            if (kept.isEmpty()) pendingByRecipient.remove(e.getKey());
+            else e.setValue(kept);
+        }
+        return out;
+    }
+
+    /**
+     * Empties the in-memory queue and returns the requests never written to the
+     * database. Saved ones are read again from the new database on join.
+     */
+    public List<Database.ChargeRequest> detachAll() {
+        List<Database.ChargeRequest> out = detachUnsaved();
+        pendingByRecipient.clear();
+        return out;
+    }
+
+    /**
+     * Queues requests read from the database in memory, for recipients that
+     * have none loaded yet. Used when leaving MySQL. Server thread only.
+     */
+    public void attach(List<Database.ChargeRequest> requests) {
+        Set<String> loaded = new HashSet<>(pendingByRecipient.keySet());
+        for (Database.ChargeRequest cr : requests) {
+            if (loaded.contains(cr.recipient)) continue;
+            pendingByRecipient.computeIfAbsent(cr.recipient, k -> new ArrayList<>()).add(new PendingRequest(cr.sender, cr.amount));
+        }
+    }
+
     public void addPending(String recipientName, String senderName, double amount) {
+        long start = System.nanoTime();
+        boolean failed = false;
         // Store in memory
         pendingByRecipient.computeIfAbsent(recipientName.toLowerCase(Locale.ROOT), k -> new ArrayList<>())
                 .add(new PendingRequest(senderName, amount));
         // Persist in DB if enabled
-        if (database != null && database.isEnabled()) {
+        Database db = database;
+        if (db != null && db.isEnabled()) {
             try {
-                long id = database.insertPendingRequest(recipientName.toLowerCase(Locale.ROOT), senderName, amount);
+                long id = db.insertPendingRequest(recipientName.toLowerCase(Locale.ROOT), senderName, amount);
                 // replace the last added with a version that has id
                 List<PendingRequest> list = pendingByRecipient.get(recipientName.toLowerCase(Locale.ROOT));
                 if (list != null && !list.isEmpty()) {
                     list.set(list.size() - 1, new PendingRequest(id, senderName, amount));
                 }
             } catch (Exception e) {
+                failed = true;
                 plugin.getLogger().warning("Failed to persist charge request: " + e.getMessage());
             }
         }
+        ADD_PENDING.recordNanos(System.nanoTime() - start, failed);
     }
 
     @EventHandler
     public void onJoin(PlayerJoinEvent event) {
-        Player player = event.getPlayer();
+        long start = System.nanoTime();
+        try {
+            deliverPending(event.getPlayer());
+        } finally {
+            ON_JOIN.record(start);
+        }
+    }
+
+    private void deliverPending(Player player) {
         String key = player.getName().toLowerCase(Locale.ROOT);
+        Database db = database;
         // Load from DB if enabled and not already in memory
-        if (database != null && database.isEnabled() && !pendingByRecipient.containsKey(key)) {
+        if (db != null && db.isEnabled() && !pendingByRecipient.containsKey(key)) {
             try {
-                java.util.List<Database.ChargeRequest> fromDb = database.loadPendingRequests(key);
+                java.util.List<Database.ChargeRequest> fromDb = db.loadPendingRequests(key);
                 if (fromDb != null && !fromDb.isEmpty()) {
                     List<PendingRequest> list = new ArrayList<>();
                     for (Database.ChargeRequest cr : fromDb) {
@@ -97,7 +177,7 @@ public class ChargeRequestService implements Listener {
 
         List<PendingRequest> list = pendingByRecipient.get(key);
         if (list == null || list.isEmpty()) return;
-        int max = plugin.getConfig().getInt("pay_pending.max_on_join", 5);
+        int max = VaultSettings.get().payPendingMaxOnJoin;
         int total = list.size();
         int shown = Math.min(max, total);
         player.sendMessage(messages.formatChat("pay.pending.header", Collections.singletonMap("count", String.valueOf(total))));
@@ -122,9 +202,9 @@ public class ChargeRequestService implements Listener {
             combined.addExtra(clickable);
             player.spigot().sendMessage(combined);
             // If delivered and persisted, delete from DB
-            if (pr.id > 0 && database != null && database.isEnabled()) {
+            if (pr.id > 0 && db != null && db.isEnabled()) {
                 try {
-                    database.deletePendingById(pr.id);
+                    db.deletePendingById(pr.id);
                 } catch (Exception e) {
                     plugin.getLogger().warning("Failed to delete delivered pending request id=" + pr.id + ": " + e.getMessage());
                 }
@@ -218,6 +298,15 @@ public class ChargeRequestService implements Listener {
     public void onChat(AsyncPlayerChatEvent event) {
         Player sender = event.getPlayer();
         if (!awaitingAmount.contains(sender.getName())) return;
+        long start = System.nanoTime();
+        try {
+            handleAmountInput(sender, event);
+        } finally {
+            ON_CHAT.record(start);
+        }
+    }
+
+    private void handleAmountInput(Player sender, AsyncPlayerChatEvent event) {
         String message = event.getMessage().trim();
 
         // Allow cancel in chat
@@ -237,8 +326,9 @@ public class ChargeRequestService implements Listener {
             return;
         }
 
-        double min = plugin.getConfig().getDouble("pay_limits.min", 0.0);
-        double max = plugin.getConfig().getDouble("pay_limits.max", 0.0);
+        VaultSettings settings = VaultSettings.get();
+        double min = settings.payMin;
+        double max = settings.payMax;
         boolean bypass = sender.hasPermission("vault.pay.bypass_limits") || sender.hasPermission("vault.pay.bypass_min") || sender.hasPermission("vault.pay.bypass_max");
         if (!bypass && min > 0 && amount < min) {
             sender.sendMessage(messages.formatChat("pay.amount_too_small", Collections.singletonMap("min", String.valueOf(min))));
@@ -1,6 +1,9 @@
 package com.example.vault.menu;
 
+import com.example.vault.VaultSettings;
 import com.example.vault.i18n.Messages;
+import com.example.vault.metrics.Metrics;
+import com.example.vault.metrics.OpStats;
 import net.milkbowl.vault.economy.Economy;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
@@ -16,6 +19,10 @@ import org.bukkit.inventory.meta.SkullMeta;
 import org.bukkit.plugin.Plugin;
 
 public class PayMenuService implements Listener {
+    private static final OpStats OPEN_MAIN = Metrics.op("menu.open_main");
+    private static final OpStats OPEN_PLAYER = Metrics.op("menu.open_player");
+    private static final OpStats CLICK = Metrics.op("menu.click");
+
     private final Plugin plugin;
     private final Economy economy;
     private final Messages messages;
@@ -81,11 +88,12 @@ public class PayMenuService implements Listener {
     }
 
     public void openMainMenu(Player player) {
-        int size = plugin.getConfig().getInt("pay_menu.size", 27);
-        if (size % 9 != 0) size = 27;
+        long start = System.nanoTime();
+        VaultSettings settings = VaultSettings.get();
+        int size = settings.payMenuSize;
         Inventory inv = Bukkit.createInventory(null, size, getTitleMain());
 
-        boolean showSelf = plugin.getConfig().getBoolean("pay_menu.show_self", false);
+        boolean showSelf = settings.payMenuShowSelf;
         int slot = 0;
         for (Player p : Bukkit.getOnlinePlayers()) {
             if (!showSelf && p.getUniqueId().equals(player.getUniqueId())) continue;
@@ -95,12 +103,21 @@ public class PayMenuService implements Listener {
         }
 
         player.openInventory(inv);
+        OPEN_MAIN.record(start);
     }
 
     @EventHandler(priority = org.bukkit.event.EventPriority.HIGHEST, ignoreCancelled = false)
     public void onClick(InventoryClickEvent event) {
         if (!(event.getWhoClicked() instanceof Player)) return;
-        Player player = (Player) event.getWhoClicked();
+        long start = System.nanoTime();
+        try {
+            handleClick(event, (Player) event.getWhoClicked());
+        } finally {
+            CLICK.record(start);
+        }
+    }
+
+    private void handleClick(InventoryClickEvent event, Player player) {
 
         String title = event.getView().getTitle();
         org.bukkit.inventory.Inventory clickedInv = event.getClickedInventory();
@@ -169,6 +186,7 @@ public class PayMenuService implements Listener {
     }
 
     public void openPlayerMenu(Player player, Player target) {
+        long start = System.nanoTime();
         int size = 9;
         Inventory inv = Bukkit.createInventory(null, size, formatTitlePlayer(target.getName()));
 
@@ -207,5 +225,6 @@ public class PayMenuService implements Listener {
         // Abrir primero, luego registrar el objetivo (evita que onClose limpie el mapa)
         player.openInventory(inv);
         Bukkit.getScheduler().runTask(plugin, () -> submenuTargets.put(player.getUniqueId(), target.getName()));
+        OPEN_PLAYER.record(start);
     }
 }
\ No newline at end of file
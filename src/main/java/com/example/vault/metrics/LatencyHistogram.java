@@ -0,0 +1,121 @@
+package com.example.vault.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size log-linear histogram of nanosecond latencies (HDR-style):
+ * exact below 16ns, then 8 sub-buckets per power of two, so any recorded
+ * value is reported within ~12%. Recording is one array increment and
+ * never allocates.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int LINEAR_LIMIT = SUB_COUNT * 2;
+    private static final int BUCKETS = (62 - SUB_BITS) * SUB_COUNT + SUB_COUNT * 2;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(indexOf(nanos));
+        long m = max.get();
+        while (nanos > m && !max.compareAndSet(m, nanos)) {
+            m = max.get();
+        }
+    }
+
+    static int indexOf(long v) {
+        if (v < LINEAR_LIMIT) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        int shift = exp - SUB_BITS;
+        return shift * SUB_COUNT + (int) (v >>> shift);
+    }
+
+    // Largest value that falls into the bucket
+    static long upperBound(int index) {
+        if (index < LINEAR_LIMIT) return index;
+        int shift = (index >>> SUB_BITS) - 1;
+        long top = (index & (SUB_COUNT - 1)) + SUB_COUNT;
+        return ((top + 1) << shift) - 1;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0L);
+        max.set(0L);
+    }
+
+    /**
+     * Fills out[i] with the value at quantile qs[i] (ascending) by reading the
+     * live counters in one pass, without copying them. Returns the sample count.
+     */
+    public long quantiles(double[] qs, long[] out) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) total += counts.get(i);
+        long top = max.get();
+        int q = 0;
+        if (total > 0) {
+            long seen = 0;
+            for (int i = 0; i < BUCKETS && q < qs.length; i++) {
+                seen += counts.get(i);
+                while (q < qs.length && seen >= Math.max(1L, (long) Math.ceil(qs[q] * total))) {
+                    out[q++] = Math.min(upperBound(i), top);
+                }
+            }
+        }
+        while (q < qs.length) out[q++] = total > 0 ? top : 0L;
+        return total;
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total, max.get());
+    }
+
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long total;
+        private final long max;
+
+        Snapshot(long[] counts, long total, long max) {
+            this.counts = counts;
+            this.total = total;
+            this.max = max;
+        }
+
+        public long count() {
+            return total;
+        }
+
+        public long max() {
+            return max;
+        }
+
+        /** Value at the given quantile (0..1), as the upper bound of its bucket. */
+        public long quantile(double q) {
+            if (total == 0) return 0L;
+            long rank = Math.max(1L, (long) Math.ceil(q * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(upperBound(i), max);
+            }
+            return max;
+        }
+
+        /** Number of samples at or below the given value (bucket resolution). */
+        public long countAtOrBelow(long nanos) {
+            int last = indexOf(Math.max(0L, nanos));
+            long seen = 0;
+            for (int i = 0; i <= last && i < counts.length; i++) seen += counts[i];
+            return seen;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.vault.metrics;
+
+import org.bukkit.plugin.Plugin;
+
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Spots database calls made on the server thread, where they stall the tick.
+ * Each offending call site gets its own stats (count, duration); the first hit
+ * from a site is logged. In STRICT mode the call is refused instead, failing
+ * like an unreachable database so callers fall back the same way (the
+ * economy spools the change).
+ * Only armed while the server is ticking, so startup and shutdown I/O is fine.
+ */
+public final class MainThreadGuard {
+    public enum Mode {
+        OFF, WARN, STRICT;
+
+        public static Mode parse(String value) {
+            try {
+                return value == null ? WARN : valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ex) {
+                return WARN;
+            }
+        }
+    }
+
+    private static final OpStats TOTAL = Metrics.op("db.main_thread");
+    private static final int SITE_DEPTH = 3;
+
+    private final Plugin plugin;
+    private final Mode mode;
+    private final Map<String, OpStats> sites = new ConcurrentHashMap<>();
+    private volatile boolean armed;
+
+    public MainThreadGuard(Plugin plugin, Mode mode) {
+        this.plugin = plugin;
+        this.mode = mode;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setArmed(boolean armed) {
+        this.armed = armed;
+    }
+
+    /**
+     * Called before a query. Returns the call site when running on the server
+     * thread (pass it to {@link #record}), otherwise null.
+     *
+     * @throws SQLTransientConnectionException in STRICT mode when on the server thread
+     */
+    public String enter(String op) throws SQLTransientConnectionException {
+        if (mode == Mode.OFF || !armed || !plugin.getServer().isPrimaryThread()) return null;
+        String site = op + " @ " + callSite();
+        if (mode == Mode.STRICT) {
+            TOTAL.recordNanos(0L, true);
+            site(site).recordNanos(0L, true);
+            throw new SQLTransientConnectionException("Blocking database call on the server thread refused: " + site, "08000");
+        }
+        return site;
+    }
+
+    public void record(String site, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        TOTAL.recordNanos(elapsed, false);
+        OpStats stats = sites.get(site);
+        if (stats == null) {
+            stats = site(site);
+            plugin.getLogger().warning("Blocking database call on the server thread: " + site + " took "
+                    + Metrics.formatNanos(elapsed) + ". Further calls from here are counted in /vault stats.");
+        }
+        stats.recordNanos(elapsed, false);
+    }
+
+    private OpStats site(String site) {
+        return sites.computeIfAbsent(site, OpStats::new);
+    }
+
+    // A few frames above the database layer: the helper that queried and who called it
+    private static String callSite() {
+        StringBuilder sb = new StringBuilder();
+        int depth = 0;
+        for (StackTraceElement frame : new Throwable().getStackTrace()) {
+            String cls = frame.getClassName();
+            if (cls.equals(MainThreadGuard.class.getName()) || cls.startsWith("com.example.vault.Database")) continue;
+            if (depth++ > 0) sb.append(" < ");
+            sb.append(cls.substring(cls.lastIndexOf('.') + 1)).append('.').append(frame.getMethodName())
+                    .append(':').append(frame.getLineNumber());
+            if (depth == SITE_DEPTH) break;
+        }
+        return depth == 0 ? "unknown" : sb.toString();
+    }
+
+    /** One line per call site, busiest first. */
+    public List<String> report() {
+        List<OpStats> sorted = new ArrayList<>(sites.values());
+        sorted.sort((a, b) -> Long.compare(b.getCount(), a.getCount()));
+        List<String> lines = new ArrayList<>();
+        for (OpStats stats : sorted) {
+            StringBuilder sb = new StringBuilder(stats.getName()).append(" n=").append(stats.getCount());
+            if (stats.getFailures() > 0) sb.append(" refused=").append(stats.getFailures());
+            sb.append(" total=").append(Metrics.formatNanos(stats.getTotalNanos()))
+                    .append(" max=").append(Metrics.formatNanos(stats.snapshot().max()));
+            lines.add(sb.toString());
+        }
+        return lines;
+    }
+
+    public void reset() {
+        sites.clear();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.vault.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide registry of operation stats. Callers look their OpStats up
+ * once (usually into a static field) and record on it directly.
+ */
+public final class Metrics {
+    private static final Map<String, OpStats> OPS = new ConcurrentHashMap<>();
+    private static final ThreadLocal<long[]> ROUND_TRIPS = ThreadLocal.withInitial(() -> new long[1]);
+
+    private Metrics() {}
+
+    public static OpStats op(String name) {
+        OpStats stats = OPS.get(name);
+        return stats != null ? stats : OPS.computeIfAbsent(name, OpStats::new);
+    }
+
+    /** Counts one database round trip against the calling thread. */
+    public static void countRoundTrip() {
+        ROUND_TRIPS.get()[0]++;
+    }
+
+    /**
+     * Database round trips made by the calling thread so far. Reading it before
+     * and after a piece of work tells how many queries that work issued.
+     */
+    public static long threadRoundTrips() {
+        return ROUND_TRIPS.get()[0];
+    }
+
+    public static Map<String, OpStats> all() {
+        return new TreeMap<>(OPS);
+    }
+
+    public static void resetAll() {
+        for (OpStats stats : OPS.values()) stats.reset();
+    }
+
+    /** One line per operation that has been called at least once. */
+    public static List<String> report() {
+        List<String> lines = new ArrayList<>();
+        for (OpStats stats : all().values()) {
+            long n = stats.getCount();
+            if (n == 0) continue;
+            LatencyHistogram.Snapshot snap = stats.snapshot();
+            StringBuilder sb = new StringBuilder();
+            sb.append(stats.getName()).append(" n=").append(n);
+            if (stats.getFailures() > 0) sb.append(" fail=").append(stats.getFailures());
+            if (snap.count() > 0) {
+                sb.append(" mean=").append(formatNanos(stats.getTotalNanos() / snap.count()))
+                        .append(" p50=").append(formatNanos(snap.quantile(0.50)))
+                        .append(" p99=").append(formatNanos(snap.quantile(0.99)))
+                        .append(" max=").append(formatNanos(snap.max()));
+            }
+            lines.add(sb.toString());
+        }
+        return lines;
+    }
+
+    /** Writes the report with a few more quantiles to stats-&lt;timestamp&gt;.txt in dir. */
+    public static File dump(File dir) throws IOException {
+        if (!dir.exists()) dir.mkdirs();
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.ROOT).format(new Date());
+        File out = new File(dir, "stats-" + stamp + ".txt");
+        StringBuilder sb = new StringBuilder();
+        sb.append("# Vault operation stats ").append(stamp).append('\n');
+        sb.append("# op\tcount\tfailures\tmean_ns\tp50_ns\tp90_ns\tp99_ns\tp999_ns\tmax_ns\n");
+        for (OpStats stats : all().values()) {
+            LatencyHistogram.Snapshot snap = stats.snapshot();
+            long timed = snap.count();
+            sb.append(stats.getName()).append('\t')
+                    .append(stats.getCount()).append('\t')
+                    .append(stats.getFailures()).append('\t')
+                    .append(timed > 0 ? stats.getTotalNanos() / timed : 0).append('\t')
+                    .append(snap.quantile(0.50)).append('\t')
+                    .append(snap.quantile(0.90)).append('\t')
+                    .append(snap.quantile(0.99)).append('\t')
+                    .append(snap.quantile(0.999)).append('\t')
+                    .append(snap.max()).append('\n');
+        }
+        Files.write(out.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+        return out;
+    }
+
+    public static String formatNanos(long nanos) {
+        if (nanos < 1_000L) return nanos + "ns";
+        if (nanos < 1_000_000L) return String.format(Locale.ROOT, "%.1fµs", nanos / 1_000d);
+        if (nanos < 1_000_000_000L) return String.format(Locale.ROOT, "%.2fms", nanos / 1_000_000d);
+        return String.format(Locale.ROOT, "%.2fs", nanos / 1_000_000_000d);
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.vault.metrics;
+
+import com.example.vault.Database;
+import com.example.vault.economy.SimpleEconomy;
+import com.example.vault.menu.ChargeRequestService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the operation stats and a few plugin gauges in OpenMetrics text
+ * format for Prometheus. Requests are handled on one dedicated daemon thread
+ * that only reads concurrent counters, so a scrape never waits on (or for)
+ * the server thread. The text buffer is reused between scrapes.
+ */
+public final class MetricsExporter implements HttpHandler {
+    private static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+    private static final String[] QUANTILE_LABELS = {"0.5", "0.9", "0.99"};
+
+    private final SimpleEconomy economy;
+    private final Database database; // may be null
+    private final ChargeRequestService charges; // may be null
+    private final StringBuilder buf = new StringBuilder(8192);
+    private final long[] quantileValues = new long[QUANTILES.length];
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public MetricsExporter(SimpleEconomy economy, Database database, ChargeRequestService charges) {
+        this.economy = economy;
+        this.database = database;
+        this.charges = charges;
+    }
+
+    public void start(String bindAddress, int port, String path) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        server.createContext(path, this);
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "Vault-MetricsExporter");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Only ever called from the single exporter thread, so buf can be reused
+    String render() {
+        StringBuilder sb = buf;
+        sb.setLength(0);
+        Map<String, OpStats> ops = Metrics.all();
+
+        family(sb, "vault_op_calls", "counter", "Calls per operation.");
+        for (OpStats stats : ops.values()) {
+            sample(sb, "vault_op_calls_total", stats.getName(), null).append(stats.getCount()).append('\n');
+        }
+        family(sb, "vault_op_failures", "counter", "Failed calls per operation.");
+        for (OpStats stats : ops.values()) {
+            sample(sb, "vault_op_failures_total", stats.getName(), null).append(stats.getFailures()).append('\n');
+        }
+        family(sb, "vault_op_latency_seconds", "summary", "Latency of timed operations.");
+        for (OpStats stats : ops.values()) {
+            long timed = stats.quantiles(QUANTILES, quantileValues);
+            if (timed == 0) continue;
+            for (int i = 0; i < QUANTILES.length; i++) {
+                sample(sb, "vault_op_latency_seconds", stats.getName(), QUANTILE_LABELS[i]);
+                seconds(sb, quantileValues[i]).append('\n');
+            }
+            sample(sb, "vault_op_latency_seconds_sum", stats.getName(), null);
+            seconds(sb, stats.getTotalNanos()).append('\n');
+            sample(sb, "vault_op_latency_seconds_count", stats.getName(), null).append(timed).append('\n');
+        }
+
+        gauge(sb, "vault_accounts", "Accounts in the ledger.", economy.getAccountCount());
+        gauge(sb, "vault_accounts_hot", "Accounts held on the heap; the rest are in the cold ledger.", economy.getHotAccountCount());
+        gauge(sb, "vault_money_supply", "Sum of all balances.", economy.getMoneySupply());
+        if (charges != null) {
+            gauge(sb, "vault_pending_charge_requests", "Charge requests waiting for their recipient.", charges.getPendingCount());
+            gauge(sb, "vault_awaiting_amount_input", "Players typing an amount in chat.", charges.getAwaitingInputCount());
+        }
+        if (database != null && database.isEnabled()) {
+            HikariPoolMXBean primary = database.getPoolStats();
+            HikariPoolMXBean replica = database.getReplicaPoolStats();
+            family(sb, "vault_db_pool_connections", "gauge", "Pooled connections by pool and state.");
+            poolConnections(sb, "primary", primary);
+            poolConnections(sb, "replica", replica);
+            family(sb, "vault_db_pool_waiting_threads", "gauge", "Threads waiting for a pooled connection.");
+            poolWaiting(sb, "primary", primary);
+            poolWaiting(sb, "replica", replica);
+            gauge(sb, "vault_db_pool_max_connections", "Configured primary pool size.", database.getPoolMaxSize());
+            gauge(sb, "vault_db_circuit_open", "1 while the circuit breaker rejects queries.",
+                    database.getBreakerState() == com.example.vault.storage.CircuitBreaker.State.CLOSED ? 0 : 1);
+            if (database.hasReplica()) {
+                gauge(sb, "vault_db_replica_lag_seconds", "Measured replica lag (-1 when unknown).",
+                        database.getReplicaLagMs() < 0 ? -1.0 : database.getReplicaLagMs() / 1000.0);
+            }
+        }
+        sb.append("# EOF\n");
+        return sb.toString();
+    }
+
+    private static void poolConnections(StringBuilder sb, String pool, HikariPoolMXBean stats) {
+        if (stats == null) return;
+        poolSample(sb, pool, "active", stats.getActiveConnections());
+        poolSample(sb, pool, "idle", stats.getIdleConnections());
+        poolSample(sb, pool, "total", stats.getTotalConnections());
+    }
+
+    private static void poolSample(StringBuilder sb, String pool, String state, int value) {
+        sb.append("vault_db_pool_connections{pool=\"").append(pool).append("\",state=\"").append(state)
+                .append("\"} ").append(value).append('\n');
+    }
+
+    private static void poolWaiting(StringBuilder sb, String pool, HikariPoolMXBean stats) {
+        if (stats == null) return;
+        sb.append("vault_db_pool_waiting_threads{pool=\"").append(pool).append("\"} ")
+                .append(stats.getThreadsAwaitingConnection()).append('\n');
+    }
+
+    private static void family(StringBuilder sb, String name, String type, String help) {
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    }
+
+    private static void gauge(StringBuilder sb, String name, String help, long value) {
+        family(sb, name, "gauge", help);
+        sb.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void gauge(StringBuilder sb, String name, String help, double value) {
+        family(sb, name, "gauge", help);
+        sb.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static StringBuilder sample(StringBuilder sb, String name, String op, String quantile) {
+        sb.append(name).append("{op=\"").append(op).append('"');
+        if (quantile != null) sb.append(",quantile=\"").append(quantile).append('"');
+        return sb.append("} ");
+    }
+
+    // Nanoseconds as decimal seconds without going through a double
+    private static StringBuilder seconds(StringBuilder sb, long nanos) {
+        long fraction = nanos % 1_000_000_000L;
+        sb.append(nanos / 1_000_000_000L).append('.');
+        for (long div = 100_000_000L; div > 1 && fraction < div; div /= 10) sb.append('0');
+        return sb.append(fraction);
+    }
+}
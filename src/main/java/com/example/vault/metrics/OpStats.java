@@ -0,0 +1,77 @@
+package com.example.vault.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call count, failure count and latency distribution of one operation.
+ * Counters are striped (LongAdder) so concurrent callers do not contend.
+ */
+public final class OpStats {
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    OpStats(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** Counts a call without timing it (for operations cheaper than a clock read). */
+    public void increment() {
+        count.increment();
+    }
+
+    /** Records a successful call that started at startNanos (System.nanoTime()). */
+    public void record(long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        count.increment();
+        totalNanos.add(elapsed);
+        histogram.record(elapsed);
+    }
+
+    /** Records a failed call that started at startNanos. */
+    public void recordFailure(long startNanos) {
+        failures.increment();
+        record(startNanos);
+    }
+
+    public void recordNanos(long elapsed, boolean failed) {
+        if (failed) failures.increment();
+        count.increment();
+        totalNanos.add(elapsed);
+        histogram.record(elapsed);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /** See {@link LatencyHistogram#quantiles(double[], long[])}. */
+    public long quantiles(double[] qs, long[] out) {
+        return histogram.quantiles(qs, out);
+    }
+
+    public LatencyHistogram.Snapshot snapshot() {
+        return histogram.snapshot();
+    }
+
+    void reset() {
+        count.reset();
+        failures.reset();
+        totalNanos.reset();
+        histogram.reset();
+    }
+}
@@ -47,13 +47,12 @@ public class VaultPlaceholderExpansion extends PlaceholderExpansion {
         String key = params.toLowerCase();
         switch (key) {
             case "balance": {
-                economy.createPlayerAccount(player);
+                // Reading never creates an account; unknown players show 0
                 double bal = economy.getBalance(player);
                 // raw number
                 return String.valueOf(bal);
             }
             case "balance_formatted": {
-                economy.createPlayerAccount(player);
                 double bal = economy.getBalance(player);
                 // formatted using Economy
                 return economy.format(bal);
@@ -64,14 +63,12 @@ public class VaultPlaceholderExpansion extends PlaceholderExpansion {
                     String name = key.substring("balance_formatted_".length());
                     OfflinePlayer other = PlayerResolver.resolveByNameWithOfflineFallback(plugin, name);
                     if (other == null) return "";
-                    economy.createPlayerAccount(other);
                     return economy.format(economy.getBalance(other));
                 }
                 if (key.startsWith("balance_")) {
                     String name = key.substring("balance_".length());
                     OfflinePlayer other = PlayerResolver.resolveByNameWithOfflineFallback(plugin, name);
                     if (other == null) return "";
-                    economy.createPlayerAccount(other);
                     return String.valueOf(economy.getBalance(other));
                 }
                 return "";
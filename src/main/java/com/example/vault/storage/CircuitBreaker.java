@@ -0,0 +1,73 @@
+package com.example.vault.storage;
+
+/**
+ * Stops calling the database after repeated connection failures so callers
+ * fail fast instead of waiting on the pool timeout. After the open period one
+ * probe is let through; if it fails the open period doubles up to a maximum.
+ */
+public class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long baseOpenMs;
+    private final long maxOpenMs;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openMs;
+    private long openedAt = 0L;
+    private boolean probeInFlight = false;
+
+    public CircuitBreaker(int failureThreshold, long baseOpenMs, long maxOpenMs) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.baseOpenMs = Math.max(100L, baseOpenMs);
+        this.maxOpenMs = Math.max(this.baseOpenMs, maxOpenMs);
+        this.openMs = this.baseOpenMs;
+    }
+
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() - openedAt < openMs) return false;
+                state = State.HALF_OPEN;
+                probeInFlight = true;
+                return true;
+            default:
+                // HALF_OPEN: a single probe at a time
+                if (probeInFlight) return false;
+                probeInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void recordSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        openMs = baseOpenMs;
+        probeInFlight = false;
+    }
+
+    public synchronized void recordFailure() {
+        probeInFlight = false;
+        if (state == State.HALF_OPEN) {
+            openMs = Math.min(maxOpenMs, openMs * 2);
+            trip();
+            return;
+        }
+        consecutiveFailures++;
+        if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+            trip();
+        }
+    }
+
+    private void trip() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
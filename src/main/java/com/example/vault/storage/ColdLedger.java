@@ -0,0 +1,167 @@
+package com.example.vault.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Read-only table of accounts kept off-heap: fixed-size records sorted by
+ * uuid in a memory-mapped file, found by binary search. A file is written
+ * once by {@link Builder} and never changed; a new generation replaces it.
+ * It is a spill area rebuilt from the real storage at startup, not a backup.
+ */
+public final class ColdLedger {
+    private static final int MAGIC = 0x564c4331; // "VLC1"
+    private static final int HEADER = 16;
+    private static final int RECORD = 32; // uuid msb, uuid lsb, balance, version
+
+    /** Holds no accounts and no file. */
+    public static final ColdLedger EMPTY = new ColdLedger(null, null, 0, 0.0);
+
+    private final File file;
+    private final ByteBuffer data; // absolute reads only, so shared between threads
+    private final int size;
+    private final double total;
+
+    private ColdLedger(File file, ByteBuffer data, int size, double total) {
+        this.file = file;
+        this.data = data;
+        this.size = size;
+        this.total = total;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Sum of all balances in the file. */
+    public double total() {
+        return total;
+    }
+
+    public File file() {
+        return file;
+    }
+
+    /** Record index of the account, or -1. */
+    public int indexOf(UUID id) {
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        int lo = 0;
+        int hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int at = HEADER + mid * RECORD;
+            int c = compare(data.getLong(at), data.getLong(at + 8), msb, lsb);
+            if (c < 0) lo = mid + 1;
+            else if (c > 0) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    public UUID id(int index) {
+        int at = HEADER + index * RECORD;
+        return new UUID(data.getLong(at), data.getLong(at + 8));
+    }
+
+    public double balance(int index) {
+        return data.getDouble(HEADER + index * RECORD + 16);
+    }
+
+    public long version(int index) {
+        return data.getLong(HEADER + index * RECORD + 24);
+    }
+
+    // Same order as UUID.compareTo
+    private static int compare(long msbA, long lsbA, long msbB, long lsbB) {
+        int c = Long.compare(msbA, msbB);
+        return c != 0 ? c : Long.compare(lsbA, lsbB);
+    }
+
+    /** Collects accounts in any order, then writes them sorted and maps the result. */
+    public static final class Builder {
+        private long[] msb = new long[1024];
+        private long[] lsb = new long[1024];
+        private double[] balance = new double[1024];
+        private long[] version = new long[1024];
+        private int size;
+
+        public void add(UUID id, double value, long rowVersion) {
+            if (size == msb.length) {
+                int n = size * 2;
+                msb = Arrays.copyOf(msb, n);
+                lsb = Arrays.copyOf(lsb, n);
+                balance = Arrays.copyOf(balance, n);
+                version = Arrays.copyOf(version, n);
+            }
+            msb[size] = id.getMostSignificantBits();
+            lsb[size] = id.getLeastSignificantBits();
+            balance[size] = value;
+            version[size] = rowVersion;
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /** Writes and syncs the file (which must not exist yet) and maps it. Each uuid must be added once. */
+        public ColdLedger write(File target) throws IOException {
+            if ((long) size * RECORD + HEADER > Integer.MAX_VALUE) throw new IOException("Too many accounts for one cold file: " + size);
+            sort();
+            int length = HEADER + size * RECORD;
+            double total = 0.0;
+            try (RandomAccessFile raf = new RandomAccessFile(target, "rw");
+                 FileChannel channel = raf.getChannel()) {
+                raf.setLength(length);
+                MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+                out.putInt(0, MAGIC);
+                out.putInt(4, size);
+                for (int i = 0; i < size; i++) {
+                    int at = HEADER + i * RECORD;
+                    out.putLong(at, msb[i]);
+                    out.putLong(at + 8, lsb[i]);
+                    out.putDouble(at + 16, balance[i]);
+                    out.putLong(at + 24, version[i]);
+                    total += balance[i];
+                }
+                out.force();
+                // Stays valid after the channel is closed
+                return new ColdLedger(target, out, size, total);
+            }
+        }
+
+        // Heap sort over the parallel arrays: in place, no recursion, n log n at worst
+        private void sort() {
+            for (int i = size / 2 - 1; i >= 0; i--) siftDown(i, size);
+            for (int end = size - 1; end > 0; end--) {
+                swap(0, end);
+                siftDown(0, end);
+            }
+        }
+
+        private void siftDown(int root, int end) {
+            while (true) {
+                int child = 2 * root + 1;
+                if (child >= end) return;
+                if (child + 1 < end && compare(msb[child], lsb[child], msb[child + 1], lsb[child + 1]) < 0) child++;
+                if (compare(msb[root], lsb[root], msb[child], lsb[child]) >= 0) return;
+                swap(root, child);
+                root = child;
+            }
+        }
+
+        private void swap(int a, int b) {
+            long m = msb[a]; msb[a] = msb[b]; msb[b] = m;
+            long l = lsb[a]; lsb[a] = lsb[b]; lsb[b] = l;
+            double v = balance[a]; balance[a] = balance[b]; balance[b] = v;
+            long r = version[a]; version[a] = version[b]; version[b] = r;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.vault.storage;
+
+import com.example.vault.metrics.Metrics;
+import com.example.vault.metrics.OpStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Watches the primary connection pool: time spent waiting for a connection,
+ * connections in use at peak, and connections held longer than the leak
+ * threshold. {@link #check} runs periodically off the server thread and picks
+ * a pool size within [minSize, maxSize]: it grows while callers queue or wait
+ * longer than the target, and shrinks one step after a run of periods that
+ * used at most half of the pool.
+ */
+public final class PoolMonitor {
+    private static final OpStats ACQUIRE = Metrics.op("db.pool.acquire");
+    private static final OpStats LEAKS = Metrics.op("db.pool.leaks");
+    private static final OpStats RESIZES = Metrics.op("db.pool.resizes");
+    private static final int IDLE_PERIODS_BEFORE_SHRINK = 6;
+    private static final int LEAK_STACK_FRAMES = 8;
+
+    // A connection currently handed out
+    private static final class Checkout {
+        final String op;
+        final Thread thread;
+        final long sinceMs;
+        volatile boolean reported;
+
+        Checkout(String op, Thread thread, long sinceMs) {
+            this.op = op;
+            this.thread = thread;
+            this.sinceMs = sinceMs;
+        }
+    }
+
+    private final Logger logger;
+    private final Map<Long, Checkout> checkedOut = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final AtomicInteger peak = new AtomicInteger();
+    private volatile int minSize;
+    private volatile int maxSize; // 0 = fixed size
+    private volatile long waitTargetNanos;
+    private volatile long leakThresholdMs; // 0 = off
+
+    // Only touched by check()
+    private long lastCount;
+    private long lastNanos;
+    private int idlePeriods;
+    private volatile String lastPeriod = "no check yet";
+
+    public PoolMonitor(Logger logger) {
+        this.logger = logger;
+    }
+
+    public void configure(int minSize, int maxSize, long waitTargetMs, long leakThresholdMs) {
+        this.minSize = Math.max(1, minSize);
+        this.maxSize = maxSize <= 0 ? 0 : Math.max(this.minSize, maxSize);
+        this.waitTargetNanos = Math.max(0L, waitTargetMs) * 1_000_000L;
+        this.leakThresholdMs = Math.max(0L, leakThresholdMs);
+    }
+
+    public boolean isAdaptive() {
+        return maxSize > 0;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    /** The size to use for a pool configured with this size, within the bounds when adaptive. */
+    public int clamp(int size) {
+        return isAdaptive() ? Math.max(minSize, Math.min(maxSize, size)) : size;
+    }
+
+    /** Call once getConnection() returned; pass the id to {@link #released}. */
+    public long acquired(String op, long waitStartNanos) {
+        ACQUIRE.record(waitStartNanos);
+        int used = inUse.incrementAndGet();
+        int p;
+        while (used > (p = peak.get()) && !peak.compareAndSet(p, used)) {
+            // retry
+        }
+        long id = nextId.incrementAndGet();
+        checkedOut.put(id, new Checkout(op, Thread.currentThread(), System.currentTimeMillis()));
+        return id;
+    }
+
+    public void acquireFailed(long waitStartNanos) {
+        ACQUIRE.recordFailure(waitStartNanos);
+    }
+
+    public void released(long id) {
+        if (checkedOut.remove(id) != null) inUse.decrementAndGet();
+    }
+
+    /**
+     * Ends a monitoring period: reports new leaks and returns the pool size to
+     * use from now on (the current size when nothing should change).
+     */
+    public synchronized int check(int size, int waiting) {
+        long count = ACQUIRE.getCount();
+        long nanos = ACQUIRE.getTotalNanos();
+        long calls = count - lastCount;
+        long waited = nanos - lastNanos;
+        if (calls < 0 || waited < 0) {
+            // /vault stats reset cleared the counters
+            calls = count;
+            waited = nanos;
+        }
+        lastCount = count;
+        lastNanos = nanos;
+        long meanWait = calls > 0 ? waited / calls : 0L;
+        int peakUsed = peak.getAndSet(inUse.get());
+        reportLeaks();
+        lastPeriod = String.format(Locale.ROOT, "%d acquire(s), mean wait %s, peak in use %d of %d, %d waiting",
+                calls, Metrics.formatNanos(meanWait), peakUsed, size, waiting);
+
+        if (!isAdaptive()) return size;
+        int step = Math.max(1, size / 4);
+        int target = size;
+        if ((waiting > 0 || (calls > 0 && meanWait > waitTargetNanos)) && size < maxSize) {
+            target = Math.min(maxSize, size + step);
+            idlePeriods = 0;
+        } else if (size > minSize && peakUsed <= size / 2) {
+            if (++idlePeriods >= IDLE_PERIODS_BEFORE_SHRINK) {
+                target = Math.max(minSize, Math.max(peakUsed + 1, size - step));
+                idlePeriods = 0;
+            }
+        } else {
+            idlePeriods = 0;
+        }
+        if (target != size) {
+            RESIZES.increment();
+            logger.info("Database pool " + (target > size ? "grown" : "shrunk") + " from " + size + " to " + target
+                    + " connection(s): " + lastPeriod);
+        }
+        return target;
+    }
+
+    // Logs each connection once when it has been held past the threshold, with where its thread is now
+    private void reportLeaks() {
+        long threshold = leakThresholdMs;
+        if (threshold <= 0) return;
+        long now = System.currentTimeMillis();
+        for (Checkout c : checkedOut.values()) {
+            if (c.reported || now - c.sinceMs < threshold) continue;
+            c.reported = true;
+            LEAKS.increment();
+            StringBuilder sb = new StringBuilder("Database connection held for ").append((now - c.sinceMs) / 1000L)
+                    .append("s by ").append(c.op).append(" on thread ").append(c.thread.getName());
+            StackTraceElement[] stack = c.thread.getStackTrace();
+            for (int i = 0; i < Math.min(LEAK_STACK_FRAMES, stack.length); i++) sb.append("\n    at ").append(stack[i]);
+            logger.warning(sb.toString());
+        }
+    }
+
+    /** Lines for /vault stats. */
+    public List<String> report() {
+        List<String> lines = new ArrayList<>();
+        lines.add("Last period: " + lastPeriod);
+        lines.add(isAdaptive()
+                ? "Adaptive size " + minSize + ".." + maxSize + ", " + RESIZES.getCount() + " resize(s)"
+                : "Fixed size");
+        long threshold = leakThresholdMs;
+        long now = System.currentTimeMillis();
+        int held = 0;
+        for (Checkout c : checkedOut.values()) {
+            if (threshold > 0 && now - c.sinceMs >= threshold) held++;
+        }
+        lines.add(inUse.get() + " in use now, " + held + " held past the leak threshold, "
+                + LEAKS.getCount() + " leak warning(s)");
+        return lines;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.vault.storage;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A file replaced as a whole: each write goes to a temp file that is synced
+ * and then renamed over the target, so a crash leaves either the old or the
+ * new content, never a mix. The replaced versions are kept in a backup folder
+ * (at most one per interval, the newest {@code keep}) for rollback.
+ */
+public class SnapshotFile {
+    /** Writes the whole content; the writer is buffered and closed by the caller. */
+    public interface Content {
+        void writeTo(Writer out) throws IOException;
+    }
+
+    private final File file;
+    private final File backupDir;
+    private final int keep;
+    private final long backupIntervalMs;
+
+    public SnapshotFile(File file, File backupDir, int keep, long backupIntervalMs) {
+        this.file = file;
+        this.backupDir = backupDir;
+        this.keep = Math.max(0, keep);
+        this.backupIntervalMs = Math.max(0L, backupIntervalMs);
+    }
+
+    public synchronized void write(Content content) throws IOException {
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+             Writer out = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8), 1 << 16)) {
+            content.writeTo(out);
+            out.flush();
+            fos.getFD().sync();
+        }
+        if (file.exists()) backUp();
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(file.getParentFile());
+    }
+
+    /** Kept versions, newest first. */
+    public synchronized List<File> backups() {
+        File[] files = backupDir.listFiles((dir, name) -> name.startsWith(prefix()) && !name.endsWith(".tmp"));
+        if (files == null) return new ArrayList<>();
+        // Names end in a sortable timestamp
+        Arrays.sort(files, (a, b) -> b.getName().compareTo(a.getName()));
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    // Keeps the current version (a hard link where supported) before it is replaced
+    private void backUp() throws IOException {
+        if (keep == 0) return;
+        List<File> existing = backups();
+        if (!existing.isEmpty() && System.currentTimeMillis() - existing.get(0).lastModified() < backupIntervalMs) return;
+        if (!backupDir.isDirectory() && !backupDir.mkdirs()) throw new IOException("Cannot create " + backupDir);
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.ROOT).format(new Date());
+        File backup = new File(backupDir, prefix() + stamp + suffix());
+        if (backup.exists()) return;
+        try {
+            Files.createLink(backup.toPath(), file.toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(file.toPath(), backup.toPath());
+        }
+        // The link shares the old inode, so it gets the old mtime; stamp it for the interval check
+        backup.setLastModified(System.currentTimeMillis());
+        existing.add(0, backup);
+        for (int i = keep; i < existing.size(); i++) {
+            if (!existing.get(i).delete()) break;
+        }
+    }
+
+    private String prefix() {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return (dot > 0 ? name.substring(0, dot) : name) + "-";
+    }
+
+    private String suffix() {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(dot) : "";
+    }
+
+    // Makes the rename itself durable; not every platform can open a directory
+    private static void syncDirectory(File dir) {
+        try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.vault.storage;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Append-only file of balance changes that could not be written to the
+ * database. Each line is "txId,uuid,delta,createdAtMs"; the transaction id
+ * lets the replay skip entries the database already applied. The spool has
+ * its own id (kept next to it in a .id file) so the database knows which
+ * applied ids belong to it.
+ */
+public class WriteSpool {
+    private final File file;
+    private String id;
+    private boolean tailChecked;
+
+    public WriteSpool(File file) {
+        this.file = file;
+    }
+
+    public static class Entry {
+        public final String txId;
+        public final UUID uuid;
+        public final double delta;
+        public final long createdAt;
+
+        public Entry(String txId, UUID uuid, double delta, long createdAt) {
+            this.txId = txId;
+            this.uuid = uuid;
+            this.delta = delta;
+            this.createdAt = createdAt;
+        }
+    }
+
+    public synchronized Entry append(UUID uuid, double delta) throws IOException {
+        if (!tailChecked) {
+            truncateTornTail();
+            tailChecked = true;
+        }
+        Entry entry = new Entry(UUID.randomUUID().toString(), uuid, delta, System.currentTimeMillis());
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(format(entry).getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            out.getFD().sync();
+        }
+        return entry;
+    }
+
+    /** Stable id of this spool, created on first use. */
+    public synchronized String id() throws IOException {
+        if (id != null) return id;
+        File idFile = new File(file.getParentFile(), file.getName() + ".id");
+        if (idFile.exists()) {
+            String stored = new String(Files.readAllBytes(idFile.toPath()), StandardCharsets.UTF_8).trim();
+            if (!stored.isEmpty()) return id = stored;
+        }
+        String created = UUID.randomUUID().toString();
+        try (FileOutputStream out = new FileOutputStream(idFile, false)) {
+            out.write(created.getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        return id = created;
+    }
+
+    // A crash while appending can leave a last line without its newline; the next
+    // append would land on that line and both entries would fail to parse. The torn
+    // entry was never reported durable, so it is cut off.
+    private void truncateTornTail() throws IOException {
+        if (!file.exists()) return;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long end = raf.length();
+            long keep = end;
+            while (keep > 0) {
+                raf.seek(keep - 1);
+                if (raf.read() == '\n') break;
+                keep--;
+            }
+            if (keep < end) {
+                raf.setLength(keep);
+                raf.getFD().sync();
+            }
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return !file.exists() || file.length() == 0;
+    }
+
+    public synchronized List<Entry> readAll() throws IOException {
+        Map<String, Entry> byTx = new LinkedHashMap<>();
+        if (!file.exists()) return new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                Entry e = parse(line);
+                // A torn last line (crash while appending) is skipped
+                if (e != null) byTx.put(e.txId, e);
+            }
+        }
+        return new ArrayList<>(byTx.values());
+    }
+
+    /**
+     * Drops the given transactions, keeping anything appended since they were read.
+     */
+    public synchronized void remove(Set<String> txIds) throws IOException {
+        if (txIds.isEmpty()) return;
+        List<Entry> remaining = new ArrayList<>();
+        for (Entry e : readAll()) {
+            if (!txIds.contains(e.txId)) remaining.add(e);
+        }
+        if (remaining.isEmpty()) {
+            Files.deleteIfExists(file.toPath());
+            return;
+        }
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp, false); Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            for (Entry e : remaining) w.write(format(e));
+            w.flush();
+            out.getFD().sync();
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String format(Entry e) {
+        return e.txId + "," + e.uuid + "," + e.delta + "," + e.createdAt + "\n";
+    }
+
+    private static Entry parse(String line) {
+        String[] parts = line.trim().split(",");
+        if (parts.length != 4) return null;
+        try {
+            return new Entry(parts[0], UUID.fromString(parts[1]), Double.parseDouble(parts[2]), Long.parseLong(parts[3]));
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.vault.transfer;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Streams (uuid, balance) records out of an import source, one at a time, so
+ * memory use does not depend on the size of the input. After next() returns
+ * true, uuid() is set, or error() says why the record was unusable, or both
+ * are null for lines without a record (header, blank line).
+ * position() counts consumed records (lines, or files for a folder) and is
+ * what a checkpoint stores; skip() fast-forwards to it again.
+ */
+abstract class BalanceReader implements Closeable {
+    protected UUID uuid;
+    protected double balance;
+    protected String error;
+    protected long position;
+
+    static BalanceReader open(ImportJob.Format format, Path source) throws IOException {
+        switch (format) {
+            case CSV: return new Csv(source);
+            case JSONL: return new JsonLines(source);
+            default: return new Essentials(source);
+        }
+    }
+
+    UUID uuid() {
+        return uuid;
+    }
+
+    double balance() {
+        return balance;
+    }
+
+    String error() {
+        return error;
+    }
+
+    long position() {
+        return position;
+    }
+
+    boolean next() throws IOException {
+        uuid = null;
+        error = null;
+        if (!advance()) return false;
+        position++;
+        return true;
+    }
+
+    void skip(long records) throws IOException {
+        while (position < records && next()) {
+            // discard
+        }
+    }
+
+    /** Reads the next record into uuid/balance or error; false at end of input. */
+    protected abstract boolean advance() throws IOException;
+
+    protected void accept(String rawUuid, String rawBalance) {
+        try {
+            UUID id = UUID.fromString(rawUuid.trim());
+            double value = Double.parseDouble(rawBalance.trim());
+            if (!(value >= 0.0) || Double.isInfinite(value)) {
+                error = "invalid balance " + rawBalance;
+                return;
+            }
+            uuid = id;
+            balance = value;
+        } catch (IllegalArgumentException ex) { // also NumberFormatException
+            error = "cannot parse " + rawUuid + " / " + rawBalance;
+        }
+    }
+
+    /** uuid,balance lines; a header row may name the columns (balance or money). */
+    static final class Csv extends BalanceReader {
+        private final BufferedReader in;
+        private int uuidColumn = 0;
+        private int balanceColumn = 1;
+        private boolean headerChecked;
+
+        Csv(Path source) throws IOException {
+            in = Files.newBufferedReader(source, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        protected boolean advance() throws IOException {
+            String line = in.readLine();
+            if (line == null) return false;
+            if (line.trim().isEmpty()) return true;
+            String[] cols = line.split(",", -1);
+            for (int i = 0; i < cols.length; i++) cols[i] = unquote(cols[i]);
+            if (!headerChecked) {
+                headerChecked = true;
+                if (isHeader(cols)) return true;
+            }
+            if (cols.length <= Math.max(uuidColumn, balanceColumn)) {
+                error = "missing column in \"" + line + "\"";
+            } else {
+                accept(cols[uuidColumn], cols[balanceColumn]);
+            }
+            return true;
+        }
+
+        private boolean isHeader(String[] cols) {
+            int u = -1;
+            int b = -1;
+            for (int i = 0; i < cols.length; i++) {
+                String name = cols[i].trim().toLowerCase(Locale.ROOT);
+                if (name.equals("uuid")) u = i;
+                else if (name.equals("balance") || name.equals("money")) b = i;
+            }
+            if (u < 0 || b < 0) return false;
+            uuidColumn = u;
+            balanceColumn = b;
+            return true;
+        }
+
+        private static String unquote(String s) {
+            String t = s.trim();
+            return t.length() >= 2 && t.charAt(0) == '"' && t.charAt(t.length() - 1) == '"' ? t.substring(1, t.length() - 1) : t;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /** One JSON object per line with "uuid" and "balance" (or "money"). */
+    static final class JsonLines extends BalanceReader {
+        private final BufferedReader in;
+        private final JsonParser parser = new JsonParser();
+
+        JsonLines(Path source) throws IOException {
+            in = Files.newBufferedReader(source, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        protected boolean advance() throws IOException {
+            String line = in.readLine();
+            if (line == null) return false;
+            if (line.trim().isEmpty()) return true;
+            try {
+                JsonObject obj = parser.parse(line).getAsJsonObject();
+                JsonElement id = obj.get("uuid");
+                JsonElement value = obj.has("balance") ? obj.get("balance") : obj.get("money");
+                if (id == null || value == null) {
+                    error = "missing uuid or balance in " + line;
+                } else {
+                    accept(id.getAsString(), value.getAsString());
+                }
+            } catch (RuntimeException ex) { // JsonParseException, IllegalStateException
+                error = "invalid JSON: " + line;
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * An EssentialsX userdata folder: one <uuid>.yml per player with a
+     * top-level money entry. Only that line is looked at, so the (sometimes
+     * large) rest of each file is never parsed.
+     */
+    static final class Essentials extends BalanceReader {
+        private final DirectoryStream<Path> dir;
+        private final Iterator<Path> files;
+
+        Essentials(Path folder) throws IOException {
+            dir = Files.newDirectoryStream(folder, "*.yml");
+            files = dir.iterator();
+        }
+
+        @Override
+        protected boolean advance() throws IOException {
+            if (!files.hasNext()) return false;
+            Path file = files.next();
+            String name = file.getFileName().toString();
+            String id = name.substring(0, name.length() - 4);
+            String money = null;
+            try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.startsWith("money:")) {
+                        money = line.substring(6).trim();
+                        if (money.length() >= 2 && (money.charAt(0) == '\'' || money.charAt(0) == '"')) {
+                            money = money.substring(1, money.length() - 1);
+                        }
+                        break;
+                    }
+                }
+            } catch (IOException ex) {
+                error = name + ": " + ex.getMessage();
+                return true;
+            }
+            if (money == null) error = name + " has no money entry";
+            else accept(id, money);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            dir.close();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.vault.transfer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Where an import or export got to, in a small properties file. Saved through
+ * a temp file and a rename, so a crash leaves either the old or the new state.
+ */
+final class Checkpoint {
+    private final File file;
+    private final Properties props = new Properties();
+
+    private Checkpoint(File file) {
+        this.file = file;
+    }
+
+    static Checkpoint load(File file) throws IOException {
+        Checkpoint cp = new Checkpoint(file);
+        if (file.isFile()) {
+            try (InputStream in = new FileInputStream(file)) {
+                cp.props.load(in);
+            }
+        }
+        return cp;
+    }
+
+    String get(String key) {
+        return props.getProperty(key);
+    }
+
+    long getLong(String key) {
+        try {
+            return Long.parseLong(props.getProperty(key, "0"));
+        } catch (NumberFormatException ex) {
+            return 0L;
+        }
+    }
+
+    void set(String key, Object value) {
+        props.setProperty(key, String.valueOf(value));
+    }
+
+    void clear() {
+        props.clear();
+    }
+
+    void save() throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        File tmp = new File(dir, file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            props.store(out, null);
+            out.getFD().sync();
+        }
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    void delete() {
+        if (file.exists() && !file.delete()) file.deleteOnExit();
+    }
+}
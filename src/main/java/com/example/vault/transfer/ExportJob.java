@@ -0,0 +1,135 @@
+package com.example.vault.transfer;
+
+import com.example.vault.economy.SimpleEconomy;
+import org.bukkit.plugin.Plugin;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * /vault export: writes every balance to a CSV or JSONL file, one page of
+ * accounts at a time in uuid order. Each page is flushed to disk before the
+ * checkpoint records the last uuid and the file length, so a resumed export
+ * cuts off any half-written tail and carries on after that uuid.
+ */
+public class ExportJob extends TransferJob {
+    public enum Format { CSV, JSONL }
+
+    private final Format format;
+    private final File target; // null to continue the checkpointed export or pick a new name
+
+    public ExportJob(Plugin plugin, SimpleEconomy economy, Format format, File target, boolean fresh, Consumer<String> progress) {
+        super(plugin, economy, fresh, progress);
+        this.format = format;
+        this.target = target;
+    }
+
+    @Override
+    protected void execute() {
+        long start = System.nanoTime();
+        Checkpoint cp;
+        try {
+            cp = Checkpoint.load(checkpointFile("export"));
+        } catch (IOException e) {
+            finish("Cannot read the export checkpoint: " + e.getMessage());
+            return;
+        }
+        String previous = cp.get("target");
+        boolean resume = !fresh && previous != null && format.name().equals(cp.get("format"))
+                && (target == null || target.getAbsolutePath().equals(previous)) && new File(previous).isFile();
+        File file;
+        String lastUuid = null;
+        long length = 0;
+        long exported = 0;
+        if (resume) {
+            file = new File(previous);
+            lastUuid = cp.get("last_uuid");
+            length = cp.getLong("length");
+            exported = cp.getLong("exported");
+            report("Resuming export to " + file.getName() + " after " + exported + " account(s).");
+        } else {
+            file = target != null ? target : new File(new File(plugin.getDataFolder(), "exports"),
+                    "balances-" + new java.text.SimpleDateFormat("yyyyMMdd-HHmmss").format(new java.util.Date())
+                            + (format == Format.CSV ? ".csv" : ".jsonl"));
+            File dir = file.getAbsoluteFile().getParentFile();
+            if (dir != null && !dir.exists() && !dir.mkdirs()) {
+                finish("Cannot create " + dir);
+                return;
+            }
+            cp.clear();
+            cp.set("target", file.getAbsolutePath());
+            cp.set("format", format.name());
+        }
+
+        long alreadyExported = exported;
+        long skipped = 0;
+        int batchSize = batchSize();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+            channel.position(length);
+            Writer out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8), 1 << 16);
+            if (length == 0 && format == Format.CSV) out.write("uuid,balance\n");
+            while (true) {
+                List<Map.Entry<String, Double>> page = economy.balancePage(lastUuid, batchSize);
+                if (page.isEmpty()) break;
+                for (Map.Entry<String, Double> row : page) {
+                    String uuid = row.getKey();
+                    try {
+                        UUID.fromString(uuid);
+                    } catch (IllegalArgumentException ex) {
+                        skipped++;
+                        continue;
+                    }
+                    String balance = BigDecimal.valueOf(row.getValue()).toPlainString();
+                    if (format == Format.CSV) {
+                        out.write(uuid);
+                        out.write(',');
+                        out.write(balance);
+                    } else {
+                        out.write("{\"uuid\":\"");
+                        out.write(uuid);
+                        out.write("\",\"balance\":");
+                        out.write(balance);
+                        out.write('}');
+                    }
+                    out.write('\n');
+                    exported++;
+                }
+                out.flush();
+                channel.force(false);
+                lastUuid = page.get(page.size() - 1).getKey();
+                cp.set("last_uuid", lastUuid);
+                cp.set("length", channel.position());
+                cp.set("exported", exported);
+                cp.save();
+                reportThrottled(String.format(Locale.ROOT, "Exporting to %s: %d account(s) so far", file.getName(), exported));
+                if (!plugin.isEnabled()) {
+                    finish("Export to " + file.getName() + " interrupted by shutdown after " + exported + " account(s); run it again to resume.");
+                    return;
+                }
+            }
+        } catch (IOException | SQLException e) {
+            finish("Export to " + file.getName() + " stopped after " + exported + " account(s): " + e.getMessage()
+                    + ". Run the same command again to resume.");
+            return;
+        }
+        cp.delete();
+        double seconds = (System.nanoTime() - start) / 1_000_000_000d;
+        finish(String.format(Locale.ROOT, "Exported %d account(s) to %s in %.1fs (%.0f/s)%s", exported, file.getName(), seconds,
+                (exported - alreadyExported) / Math.max(seconds, 0.001), skipped > 0 ? ", " + skipped + " invalid uuid(s) left out" : ""));
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.vault.transfer;
+
+import com.example.vault.economy.LedgerObserver;
+import com.example.vault.economy.SimpleEconomy;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * /vault import: streams balances from a CSV or JSONL file or an EssentialsX
+ * userdata folder and sets them in batches (one batched transaction per
+ * batch with a database). After each batch the input position is written
+ * to a checkpoint; running the same import again continues from there
+ * unless fresh is set. Records are absolute balances, so replaying a batch
+ * after a crash is harmless.
+ */
+public class ImportJob extends TransferJob {
+    public enum Format { CSV, JSONL, ESSENTIALS }
+
+    private static final int LOGGED_ERRORS = 5;
+
+    private final Format format;
+    private final File source;
+
+    public ImportJob(Plugin plugin, SimpleEconomy economy, Format format, File source, boolean fresh, Consumer<String> progress) {
+        super(plugin, economy, fresh, progress);
+        this.format = format;
+        this.source = source;
+    }
+
+    @Override
+    protected void execute() {
+        long start = System.nanoTime();
+        String name = source.getName();
+        String key = format + ":" + source.getAbsolutePath();
+        Checkpoint cp;
+        try {
+            cp = Checkpoint.load(checkpointFile("import"));
+        } catch (IOException e) {
+            finish("Cannot read the import checkpoint: " + e.getMessage());
+            return;
+        }
+        long resumeAt = 0;
+        long imported = 0;
+        long skipped = 0;
+        if (!fresh && key.equals(cp.get("source"))) {
+            resumeAt = cp.getLong("position");
+            imported = cp.getLong("imported");
+            skipped = cp.getLong("skipped");
+            report("Resuming import of " + name + " after record " + resumeAt + ".");
+        } else {
+            cp.clear();
+            cp.set("source", key);
+        }
+
+        long alreadyImported = imported;
+        int batchSize = batchSize();
+        List<UUID> ids = new ArrayList<>(batchSize);
+        double[] amounts = new double[batchSize];
+        try (BalanceReader reader = BalanceReader.open(format, source.toPath())) {
+            reader.skip(resumeAt);
+            boolean more = true;
+            while (more) {
+                more = reader.next();
+                if (more) {
+                    if (reader.uuid() != null) {
+                        amounts[ids.size()] = reader.balance();
+                        ids.add(reader.uuid());
+                    } else if (reader.error() != null && ++skipped <= LOGGED_ERRORS) {
+                        plugin.getLogger().warning("Import " + name + ", record " + reader.position() + " skipped: " + reader.error()
+                                + (skipped == LOGGED_ERRORS ? " (further errors are only counted)" : ""));
+                    }
+                }
+                if (ids.size() == batchSize || (!more && !ids.isEmpty())) {
+                    imported += economy.applyBulk(ids, amounts, true, LedgerObserver.Type.IMPORT);
+                    ids.clear();
+                    cp.set("position", reader.position());
+                    cp.set("imported", imported);
+                    cp.set("skipped", skipped);
+                    cp.save();
+                    reportThrottled(String.format(Locale.ROOT, "Importing %s: %d account(s) so far", name, imported));
+                    if (!plugin.isEnabled()) {
+                        finish("Import of " + name + " interrupted by shutdown after " + imported + " account(s); run it again to resume.");
+                        return;
+                    }
+                }
+            }
+        } catch (IOException | SQLException e) {
+            finish("Import of " + name + " stopped after " + imported + " account(s): " + e.getMessage()
+                    + ". Run the same command again to resume.");
+            return;
+        }
+        try {
+            economy.save();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to save balances after import: " + e.getMessage());
+        }
+        cp.delete();
+        double seconds = (System.nanoTime() - start) / 1_000_000_000d;
+        finish(String.format(Locale.ROOT, "Imported %d account(s) from %s in %.1fs (%.0f/s)%s", imported, name, seconds,
+                (imported - alreadyImported) / Math.max(seconds, 0.001), skipped > 0 ? ", " + skipped + " record(s) skipped" : ""));
+    }
+}
@@ -0,0 +1,345 @@
+package com.example.vault.transfer;
+
+import com.example.vault.Database;
+import com.example.vault.VaultPlugin;
+import com.example.vault.economy.SimpleEconomy;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * /vault migrate: moves the live economy between the YAML file and MySQL,
+ * or from one MySQL server to the one storage.mysql now names, while the
+ * server keeps running. /vault reload starts it when the storage settings
+ * name another backend.
+ * <ol>
+ * <li>Copy every cached balance to the target in batches, recording which
+ * accounts change meanwhile.</li>
+ * <li>Write those changed accounts again until few are left (the dual-write
+ * window).</li>
+ * <li>Verify the target row by row against the cache and sum an
+ * order-independent checksum of its rows. Rows changed during the check are
+ * left to the final catch-up.</li>
+ * <li>Pause balance writes, copy the last changed accounts, compare the row
+ * count and switch the economy to the target.</li>
+ * </ol>
+ * Nothing is switched if any step fails, and the source data is left in place.
+ */
+public class MigrationJob extends TransferJob {
+    public enum Backend { YAML, MYSQL }
+
+    private static final int LOGGED_MISMATCHES = 5;
+    private static final int MAX_CATCH_UP_ROUNDS = 20;
+
+    private final VaultPlugin vault;
+    private final Backend from;
+    private final Backend to;
+
+    public MigrationJob(VaultPlugin plugin, SimpleEconomy economy, Backend from, Backend to, Consumer<String> progress) {
+        super(plugin, economy, true, progress);
+        this.vault = plugin;
+        this.from = from;
+        this.to = to;
+    }
+
+    // Outcome of a verification pass
+    private static final class Verification {
+        long rows;
+        long checksum;
+        long invalid;
+        final List<UUID> suspects = new ArrayList<>();
+    }
+
+    @Override
+    protected void execute() {
+        long start = System.nanoTime();
+        Backend current = economy.usesDatabase() ? Backend.MYSQL : Backend.YAML;
+        if (from == to && to == Backend.MYSQL && vault.getDatabase() != null && vault.getDatabase().matchesConfiguredServer()) {
+            finish("Storage already uses the server in storage.mysql; edit it first to move to another MySQL server.");
+            return;
+        }
+        if (from != current || (from == to && to == Backend.YAML)) {
+            finish("Storage is currently " + name(current) + "; use /vault migrate " + name(current) + " "
+                    + name(current == Backend.YAML ? Backend.MYSQL : Backend.YAML) + ".");
+            return;
+        }
+        Database target = null;
+        if (to == Backend.MYSQL) {
+            target = new Database(plugin, true);
+            if (!target.isEnabled()) {
+                target.close();
+                finish("Migration aborted: cannot connect to the database in storage.mysql.");
+                return;
+            }
+        }
+        File yamlFile = new File(plugin.getDataFolder(), "balances.yml");
+        int batchSize = batchSize();
+        boolean switched = false;
+        economy.captureChanges(true);
+        try {
+            report("Copying " + economy.getAccountCount() + " account(s) to " + name(to) + "...");
+            long copied = to == Backend.MYSQL ? copyToDatabase(target, batchSize) : copyToYaml(yamlFile);
+            if (copied < 0) {
+                finish("Migration interrupted by shutdown; storage was not switched.");
+                return;
+            }
+            long caughtUp = 0;
+            if (to == Backend.MYSQL) {
+                for (int round = 0; round < MAX_CATCH_UP_ROUNDS; round++) {
+                    List<UUID> changed = economy.takeCaptured(Integer.MAX_VALUE);
+                    caughtUp += writeRows(target, changed, batchSize);
+                    if (changed.size() < batchSize) break;
+                }
+            }
+
+            report("Verifying " + name(to) + " against the in-memory balances...");
+            Verification v = to == Backend.MYSQL ? verifyDatabase(target, batchSize) : verifyYaml(yamlFile);
+            long mismatches = recheck(target, yamlFile, v.suspects) + v.invalid;
+            if (to == Backend.YAML && v.rows != copied) {
+                mismatches += Math.abs(v.rows - copied);
+                plugin.getLogger().warning("Migration: wrote " + copied + " account(s) but read back " + v.rows);
+            }
+            if (mismatches > 0) {
+                finish("Migration aborted: " + mismatches + " row(s) differ in " + name(to)
+                        + " (see console); storage was not switched.");
+                return;
+            }
+
+            List<Database.ChargeRequest> carried = Collections.emptyList();
+            if (from == Backend.MYSQL) {
+                carried = vault.getDatabase().loadAllPendingRequests();
+                if (!economy.replaySpool()) {
+                    finish("Migration aborted: queued balance changes could not be written to MySQL yet; try again later.");
+                    return;
+                }
+            }
+
+            long pauseStart = System.nanoTime();
+            long stamp = economy.pauseWrites();
+            try {
+                if (to == Backend.MYSQL) {
+                    caughtUp += writeRows(target, economy.takeCaptured(Integer.MAX_VALUE), batchSize);
+                    long rows = target.countBalances();
+                    if (rows != economy.getAccountCount()) {
+                        finish("Migration aborted: " + rows + " row(s) in MySQL but " + economy.getAccountCount()
+                                + " account(s) in memory; storage was not switched.");
+                        return;
+                    }
+                    // Moving between MySQL servers: spooled writes still belong to the old one
+                    if (from == Backend.MYSQL && !economy.replaySpool()) {
+                        finish("Migration aborted: queued balance changes could not be written to the old MySQL server yet; try again later.");
+                        return;
+                    }
+                    economy.switchDatabase(target, target.latestChangeId());
+                } else {
+                    if (!economy.replaySpool()) {
+                        finish("Migration aborted: queued balance changes could not be written to MySQL yet; try again later.");
+                        return;
+                    }
+                    economy.switchDatabase(null, 0L);
+                }
+                switched = true;
+            } finally {
+                economy.resumeWrites(stamp);
+            }
+            long pausedMs = (System.nanoTime() - pauseStart) / 1_000_000L;
+            if (to == Backend.YAML) economy.save();
+
+            final Database newDatabase = target;
+            final List<Database.ChargeRequest> requests = carried;
+            plugin.getServer().getScheduler().runTask(plugin, () -> vault.completeStorageSwitch(newDatabase, requests));
+            finish(String.format(Locale.ROOT,
+                    "Migrated %d account(s) from %s to %s in %.1fs: %d re-copied after changing, %d verified (checksum %016x), writes paused %dms.",
+                    copied, name(from), name(to), (System.nanoTime() - start) / 1_000_000_000d, caughtUp, v.rows,
+                    v.checksum, pausedMs));
+        } catch (SQLException | IOException e) {
+            finish("Migration failed: " + e.getMessage() + ". Storage was not switched.");
+        } finally {
+            if (!switched) {
+                economy.captureChanges(false);
+                if (target != null) target.close();
+            }
+        }
+    }
+
+    private long copyToDatabase(Database target, int batchSize) throws SQLException {
+        long copied = 0;
+        List<UUID> ids = new ArrayList<>(batchSize);
+        for (UUID id : economy.accountIds()) {
+            ids.add(id);
+            if (ids.size() == batchSize) {
+                copied += writeRows(target, ids, batchSize);
+                ids.clear();
+                reportThrottled("Copied " + copied + " account(s) to MySQL...");
+                if (!plugin.isEnabled()) return -1;
+            }
+        }
+        return copied + writeRows(target, ids, batchSize);
+    }
+
+    // Writes the current cached balances of these accounts and remembers the row versions
+    private long writeRows(Database target, List<UUID> ids, int batchSize) throws SQLException {
+        long written = 0;
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<UUID> chunk = ids.subList(from, Math.min(ids.size(), from + batchSize));
+            double[] amounts = new double[chunk.size()];
+            for (int i = 0; i < chunk.size(); i++) {
+                double balance = economy.cachedBalance(chunk.get(i));
+                amounts[i] = Double.isNaN(balance) ? 0.0 : balance;
+            }
+            Map<UUID, Database.VersionedBalance> rows = target.applyBalanceBatch(chunk, amounts, true);
+            for (Map.Entry<UUID, Database.VersionedBalance> row : rows.entrySet()) {
+                economy.setStoredVersion(row.getKey(), row.getValue().version);
+            }
+            written += rows.size();
+        }
+        return written;
+    }
+
+    // Streams the cache into balances.yml (through a temp file) in the format SimpleEconomy.load reads
+    private long copyToYaml(File file) throws IOException {
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        long copied = 0;
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+             Writer out = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8), 1 << 16)) {
+            for (UUID id : economy.accountIds()) {
+                double balance = economy.cachedBalance(id);
+                if (Double.isNaN(balance)) continue;
+                out.write(id.toString());
+                out.write(": ");
+                out.write(BigDecimal.valueOf(balance).toPlainString());
+                out.write('\n');
+                copied++;
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return copied;
+    }
+
+    private Verification verifyDatabase(Database target, int batchSize) throws SQLException {
+        Verification v = new Verification();
+        String after = null;
+        while (true) {
+            List<Map.Entry<String, Double>> page = target.loadBalancePage(after, batchSize);
+            if (page.isEmpty()) break;
+            for (Map.Entry<String, Double> row : page) compare(v, row.getKey(), row.getValue());
+            after = page.get(page.size() - 1).getKey();
+            reportThrottled("Verified " + v.rows + " row(s)...");
+        }
+        return v;
+    }
+
+    private Verification verifyYaml(File file) throws IOException {
+        Verification v = new Verification();
+        try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                int colon = line.indexOf(':');
+                if (colon < 0) continue;
+                compare(v, line.substring(0, colon).trim(), parse(line.substring(colon + 1)));
+            }
+        }
+        return v;
+    }
+
+    // Rows changed since the copy are skipped here; the final catch-up writes them again
+    private void compare(Verification v, String rawUuid, double stored) {
+        v.rows++;
+        UUID id;
+        try {
+            id = UUID.fromString(rawUuid);
+        } catch (IllegalArgumentException ex) {
+            if (++v.invalid <= LOGGED_MISMATCHES) plugin.getLogger().warning("Migration: unexpected key in " + name(to) + ": " + rawUuid);
+            return;
+        }
+        v.checksum += mix(id, stored);
+        if (!economy.isCaptured(id) && cents(stored) != cents(economy.cachedBalance(id))) v.suspects.add(id);
+    }
+
+    /**
+     * Looks at the differing rows again: a balance written just as the pass
+     * read it shows up as changed by now. Returns the number of real mismatches.
+     */
+    private long recheck(Database target, File yamlFile, List<UUID> suspects) throws SQLException, IOException {
+        if (suspects.isEmpty()) return 0;
+        java.util.Set<UUID> pending = new java.util.HashSet<>(suspects);
+        java.util.Map<UUID, Double> stored = new java.util.HashMap<>();
+        if (target != null) {
+            for (UUID id : pending) {
+                Database.VersionedBalance row = target.loadBalance(id);
+                stored.put(id, row != null ? row.balance : Double.NaN);
+            }
+        } else {
+            try (BufferedReader in = Files.newBufferedReader(yamlFile.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    int colon = line.indexOf(':');
+                    if (colon < 0) continue;
+                    try {
+                        UUID id = UUID.fromString(line.substring(0, colon).trim());
+                        if (pending.contains(id)) stored.put(id, parse(line.substring(colon + 1)));
+                    } catch (IllegalArgumentException ignored) {
+                        // reported by the verification pass
+                    }
+                }
+            }
+        }
+        int mismatches = 0;
+        for (UUID id : pending) {
+            if (economy.isCaptured(id)) continue;
+            double s = stored.containsKey(id) ? stored.get(id) : Double.NaN;
+            double c = economy.cachedBalance(id);
+            if (cents(s) == cents(c)) continue;
+            if (++mismatches <= LOGGED_MISMATCHES) {
+                plugin.getLogger().warning("Migration: " + id + " is " + s + " in " + name(to) + " but " + c + " in memory");
+            }
+        }
+        return mismatches;
+    }
+
+    private static double parse(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException ex) {
+            return Double.NaN;
+        }
+    }
+
+    private static long cents(double balance) {
+        return Double.isNaN(balance) ? Long.MIN_VALUE : Math.round(balance * 100.0);
+    }
+
+    // Per-row hash (murmur3 finalizer) summed over rows, so the order rows are read in does not matter.
+    // Reported so two runs, or a run and a later check, can be compared at a glance.
+    private static long mix(UUID id, double balance) {
+        long h = id.getMostSignificantBits() * 31 + id.getLeastSignificantBits() + cents(balance) * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    private static String name(Backend backend) {
+        return backend.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.vault.transfer;
+
+import com.example.vault.VaultSettings;
+import com.example.vault.economy.SimpleEconomy;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Common part of /vault import, export and migrate: one transfer at a time,
+ * a checkpoint file under plugins/Vault/transfer, and progress lines at most
+ * every two seconds.
+ */
+public abstract class TransferJob implements Runnable {
+    private static final AtomicBoolean RUNNING = new AtomicBoolean();
+    private static final long PROGRESS_INTERVAL_NANOS = 2_000_000_000L;
+
+    protected final Plugin plugin;
+    protected final SimpleEconomy economy;
+    protected final boolean fresh;
+    private final Consumer<String> progress;
+    private long lastReport;
+
+    protected TransferJob(Plugin plugin, SimpleEconomy economy, boolean fresh, Consumer<String> progress) {
+        this.plugin = plugin;
+        this.economy = economy;
+        this.fresh = fresh;
+        this.progress = progress;
+    }
+
+    public static boolean isRunning() {
+        return RUNNING.get();
+    }
+
+    @Override
+    public void run() {
+        if (!RUNNING.compareAndSet(false, true)) {
+            progress.accept("Another import, export or migration is still running.");
+            return;
+        }
+        try {
+            lastReport = System.nanoTime();
+            execute();
+        } finally {
+            RUNNING.set(false);
+        }
+    }
+
+    protected abstract void execute();
+
+    protected int batchSize() {
+        return VaultSettings.get().transferBatchSize;
+    }
+
+    protected File checkpointFile(String name) {
+        return new File(new File(plugin.getDataFolder(), "transfer"), name + ".properties");
+    }
+
+    protected void report(String line) {
+        progress.accept(line);
+    }
+
+    protected void reportThrottled(String line) {
+        long now = System.nanoTime();
+        if (now - lastReport >= PROGRESS_INTERVAL_NANOS) {
+            lastReport = now;
+            progress.accept(line);
+        }
+    }
+
+    // Also logged so the result of a long console-less run is not lost
+    protected void finish(String line) {
+        plugin.getLogger().info(line);
+        progress.accept(line);
+    }
+}
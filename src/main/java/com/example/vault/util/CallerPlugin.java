@@ -0,0 +1,56 @@
+package com.example.vault.util;
+
+import org.bukkit.plugin.Plugin;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the plugin behind an economy call: the first stack frame outside the
+ * economy and server code, matched to a plugin by its main-class package.
+ * Results are cached per class; the stack walk itself is the main cost and
+ * is paid on every call, so callers only use it when a feature asks for it.
+ */
+public final class CallerPlugin {
+    private final Plugin plugin;
+    private final Map<String, String> ownerByClass = new ConcurrentHashMap<>();
+
+    public CallerPlugin(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /** Name of the calling plugin, or null when no frame belongs to one. */
+    public String find() {
+        for (StackTraceElement frame : new Throwable().getStackTrace()) {
+            String cls = frame.getClassName();
+            if (cls.startsWith("com.example.vault.economy.") || cls.startsWith("com.example.vault.history.")
+                    || cls.startsWith("com.example.vault.util.") || cls.startsWith("java.") || cls.startsWith("sun.")
+                    || cls.startsWith("net.milkbowl.") || cls.startsWith("org.bukkit.") || cls.startsWith("net.minecraft.")) {
+                continue;
+            }
+            String owner = ownerByClass.get(cls);
+            if (owner == null) {
+                owner = ownerOf(cls);
+                ownerByClass.put(cls, owner);
+            }
+            if (!owner.isEmpty()) return owner;
+        }
+        return null;
+    }
+
+    // Longest matching main-class package; "" when no plugin matches
+    private String ownerOf(String cls) {
+        String best = "";
+        int bestLength = -1;
+        for (Plugin p : plugin.getServer().getPluginManager().getPlugins()) {
+            String main = p.getDescription().getMain();
+            if (main == null || main.lastIndexOf('.') < 0) continue;
+            String pkg = main.substring(0, main.lastIndexOf('.') + 1);
+            if (cls.startsWith(pkg) && pkg.length() > bestLength) {
+                best = p.getName();
+                bestLength = pkg.length();
+            }
+        }
+        return best;
+    }
+}
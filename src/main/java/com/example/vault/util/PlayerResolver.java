@@ -1,5 +1,6 @@
 package com.example.vault.util;
 
+import com.example.vault.VaultSettings;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
@@ -63,14 +64,7 @@ public final class PlayerResolver {
         org.bukkit.Server server = plugin.getServer();
         OfflinePlayer found = resolveByName(server, name);
         if (found != null) return found;
-        boolean allowFallback = true;
-        try {
-            if (plugin instanceof org.bukkit.plugin.java.JavaPlugin) {
-                org.bukkit.plugin.java.JavaPlugin jp = (org.bukkit.plugin.java.JavaPlugin) plugin;
-                allowFallback = jp.getConfig().getBoolean("offline-uuid-fallback", true);
-            }
-        } catch (Exception ignored) {}
-        if (!server.getOnlineMode() && allowFallback) {
+        if (!server.getOnlineMode() && VaultSettings.get().offlineUuidFallback) {
             UUID offlineUuid = UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
             return server.getOfflinePlayer(offlineUuid);
         }
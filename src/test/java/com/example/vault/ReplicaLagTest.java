@@ -0,0 +1,88 @@
+package com.example.vault;
+
+import org.bukkit.plugin.Plugin;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replica lag with the change log switched off. The "replica" is a second
+ * embedded database; replication is copying the heartbeat row by hand.
+ */
+public class ReplicaLagTest {
+    private String primaryUrl;
+    private String replicaUrl;
+    private Connection replica; // keeps the in-memory replica open
+    private Database database;
+
+    @Before
+    public void start() throws Exception {
+        primaryUrl = TestStubs.h2Url();
+        replicaUrl = TestStubs.h2Url();
+        replica = DriverManager.getConnection(replicaUrl, "sa", "");
+        try (Statement st = replica.createStatement()) {
+            st.executeUpdate("CREATE TABLE vault_replica_heartbeat (server_id VARCHAR(64) PRIMARY KEY, beat BIGINT NOT NULL)");
+        }
+        Plugin plugin = TestStubs.plugin("replica");
+        TestStubs.useDatabase(plugin, primaryUrl, "lag");
+        plugin.getConfig().set("storage.sync.enabled", false);
+        plugin.getConfig().set("storage.mysql.replica.enabled", true);
+        plugin.getConfig().set("storage.mysql.replica.jdbc_url", replicaUrl);
+        plugin.getConfig().set("storage.mysql.replica.max_lag_seconds", 1L);
+        database = new Database(plugin);
+        assertTrue("H2 did not start", database.isEnabled() && database.hasReplica());
+    }
+
+    @After
+    public void stop() throws SQLException {
+        database.close();
+        replica.close();
+    }
+
+    @Test
+    public void lagIsUnknownUntilTheReplicaShowsAHeartbeat() {
+        assertEquals(-1L, database.getReplicaLagMs());
+        database.refreshReplicaLag();
+        assertEquals(-1L, database.getReplicaLagMs());
+    }
+
+    @Test
+    public void caughtUpReplicaHasNoLag() throws Exception {
+        replicate();
+        database.refreshReplicaLag();
+        assertEquals(0L, database.getReplicaLagMs());
+    }
+
+    @Test
+    public void stalledReplicaLagGrowsWithoutChangeLogRows() throws Exception {
+        replicate();
+        database.refreshReplicaLag();
+        Thread.sleep(1100L);
+        // Nothing replicated since the last beat
+        database.refreshReplicaLag();
+        assertTrue("lag " + database.getReplicaLagMs(), database.getReplicaLagMs() >= 1100L);
+    }
+
+    private void replicate() throws SQLException {
+        try (Connection primary = DriverManager.getConnection(primaryUrl, "sa", "");
+             Statement st = primary.createStatement();
+             ResultSet rs = st.executeQuery("SELECT server_id, beat FROM vault_replica_heartbeat");
+             PreparedStatement ps = replica.prepareStatement("MERGE INTO vault_replica_heartbeat (server_id, beat) KEY (server_id) VALUES (?, ?)")) {
+            while (rs.next()) {
+                ps.setString(1, rs.getString(1));
+                ps.setLong(2, rs.getLong(2));
+                ps.executeUpdate();
+            }
+        }
+    }
+}
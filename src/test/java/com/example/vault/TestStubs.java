@@ -0,0 +1,118 @@
+package com.example.vault;
+
+import org.bukkit.OfflinePlayer;
+import org.bukkit.Server;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Bukkit stand-ins for tests: a plugin with an in-memory config and its own
+ * data folder, and offline players. One-shot tasks run on the calling
+ * thread; repeating tasks are never started.
+ */
+public final class TestStubs {
+    private TestStubs() {}
+
+    /** Name of the thread tests treat as the server's primary thread, as Bukkit names it. */
+    public static final String SERVER_THREAD = "Server thread";
+
+    private static final BukkitScheduler INLINE_SCHEDULER = (BukkitScheduler) Proxy.newProxyInstance(TestStubs.class.getClassLoader(), new Class<?>[]{BukkitScheduler.class}, (proxy, method, args) -> {
+        switch (method.getName()) {
+            case "runTask":
+            case "runTaskAsynchronously":
+                ((Runnable) args[1]).run();
+                return null;
+            default: return defaultValue(method.getReturnType());
+        }
+    });
+
+    private static final Server SERVER = (Server) Proxy.newProxyInstance(TestStubs.class.getClassLoader(), new Class<?>[]{Server.class}, (proxy, method, args) -> {
+        switch (method.getName()) {
+            case "getScheduler": return INLINE_SCHEDULER;
+            case "isPrimaryThread": return SERVER_THREAD.equals(Thread.currentThread().getName());
+            case "getLogger": return Logger.getLogger("TestServer");
+            case "hashCode": return System.identityHashCode(proxy);
+            case "equals": return proxy == args[0];
+            case "toString": return "TestServer";
+            default: return defaultValue(method.getReturnType());
+        }
+    });
+
+    /** Plugin with an empty config (set what the test needs) and a fresh temp data folder. */
+    public static Plugin plugin(String name) {
+        YamlConfiguration config = new YamlConfiguration();
+        Logger logger = Logger.getLogger("VaultTest-" + name);
+        File dataFolder = tempDir(name);
+        return (Plugin) Proxy.newProxyInstance(TestStubs.class.getClassLoader(), new Class<?>[]{Plugin.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getConfig": return config;
+                case "getDataFolder": return dataFolder;
+                case "getLogger": return logger;
+                case "getServer": return SERVER;
+                case "getName": return "Vault";
+                case "isEnabled": return true;
+                case "hashCode": return System.identityHashCode(proxy);
+                case "equals": return proxy == args[0];
+                case "toString": return "TestPlugin[" + name + "]";
+                default: return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    /** Points the plugin at a shared embedded database in MySQL mode. */
+    public static void useDatabase(Plugin plugin, String jdbcUrl, String serverId) {
+        plugin.getConfig().set("storage.use_mysql", true);
+        plugin.getConfig().set("storage.mysql.jdbc_url", jdbcUrl);
+        plugin.getConfig().set("storage.mysql.username", "sa");
+        plugin.getConfig().set("storage.mysql.password", "");
+        plugin.getConfig().set("storage.sync.server_id", serverId);
+    }
+
+    /** A fresh in-memory H2 database that lives until the JVM exits. */
+    public static String h2Url() {
+        return "jdbc:h2:mem:vault-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+    }
+
+    public static OfflinePlayer player(UUID id) {
+        return (OfflinePlayer) Proxy.newProxyInstance(TestStubs.class.getClassLoader(), new Class<?>[]{OfflinePlayer.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getUniqueId": return id;
+                case "getName": return "p" + id.toString().substring(0, 8);
+                case "hashCode": return id.hashCode();
+                case "equals": return proxy == args[0];
+                case "toString": return "TestPlayer[" + id + "]";
+                default: return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    private static File tempDir(String name) {
+        try {
+            File dir = Files.createTempDirectory("vault-test-" + name).toFile();
+            dir.deleteOnExit();
+            return dir;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0f;
+        if (type == double.class) return 0d;
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        return 0;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.vault.audit;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** The consumer side of the ring when writing to the audit files fails mid-batch. */
+public class AuditRingTest {
+    @Test
+    public void eventsWrittenBeforeAFailureAreNotDrainedAgain() {
+        AuditRing ring = new AuditRing(64, AuditRing.Backpressure.DROP, 1);
+        UUID account = UUID.randomUUID();
+        for (int i = 0; i < 3; i++) assertTrue(ring.publish(i, account, 0, null, i, i));
+
+        List<Long> written = new ArrayList<>();
+        try {
+            ring.drain((seq, time, ah, al, type, ch, cl, amount, balance) -> {
+                if (seq == 1) throw new UncheckedIOException(new IOException("disk full"));
+                written.add(seq);
+            }, 16);
+        } catch (UncheckedIOException expected) {
+            // retried below, as AuditLog.consume does
+        }
+        int n = ring.drain((seq, time, ah, al, type, ch, cl, amount, balance) -> written.add(seq), 16);
+
+        assertEquals(2, n);
+        assertEquals(3, written.size());
+        for (int i = 0; i < 3; i++) assertEquals(i, (long) written.get(i));
+    }
+}
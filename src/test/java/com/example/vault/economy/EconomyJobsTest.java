@@ -0,0 +1,81 @@
+package com.example.vault.economy;
+
+import com.example.vault.Database;
+import com.example.vault.TestStubs;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** A due economy job on two servers sharing one database is applied once. */
+public class EconomyJobsTest {
+    private Plugin pa;
+    private Plugin pb;
+    private Database dbA;
+    private Database dbB;
+    private SimpleEconomy a;
+    private SimpleEconomy b;
+    private final OfflinePlayer player = TestStubs.player(UUID.randomUUID());
+
+    @Before
+    public void start() throws Exception {
+        String url = TestStubs.h2Url();
+        pa = TestStubs.plugin("jobs-a");
+        pb = TestStubs.plugin("jobs-b");
+        for (Plugin p : new Plugin[]{pa, pb}) {
+            TestStubs.useDatabase(p, url, p == pa ? "a" : "b");
+            p.getConfig().set("economy_jobs.rules.upkeep.interval_hours", 1.0);
+            p.getConfig().set("economy_jobs.rules.upkeep.flat", -10.0);
+            // Both servers last ran it two hours ago, so it is due on both
+            YamlConfiguration state = new YamlConfiguration();
+            state.set("last_run.upkeep", System.currentTimeMillis() - 7_200_000L);
+            state.save(new File(p.getDataFolder(), "economy_jobs.yml"));
+        }
+        dbA = new Database(pa);
+        dbB = new Database(pb);
+        assertTrue("H2 did not start", dbA.isEnabled() && dbB.isEnabled());
+        a = new SimpleEconomy(pa, dbA);
+        b = new SimpleEconomy(pb, dbB);
+        a.load();
+        a.depositPlayer(player, 100);
+        b.load();
+    }
+
+    @After
+    public void stop() {
+        dbA.close();
+        dbB.close();
+    }
+
+    @Test
+    public void dueRunIsAppliedByOneServerOnly() throws Exception {
+        EconomyJobs jobsA = new EconomyJobs(pa, a);
+        EconomyJobs jobsB = new EconomyJobs(pb, b);
+        // The test scheduler runs the job inline
+        jobsA.tick();
+        jobsB.tick();
+        assertEquals(90, dbA.loadBalance(player.getUniqueId()).balance, 1e-9);
+        // b took over a's schedule, so it does not try again this interval
+        jobsB.tick();
+        assertEquals(90, dbA.loadBalance(player.getUniqueId()).balance, 1e-9);
+        assertTrue(YamlConfiguration.loadConfiguration(new File(pb.getDataFolder(), "economy_jobs.yml")).getLong("last_run.upkeep", 0L)
+                > System.currentTimeMillis() - 60_000L);
+    }
+
+    @Test
+    public void manualRunIsNotBlockedByTheSchedule() throws Exception {
+        EconomyJobs jobsA = new EconomyJobs(pa, a);
+        EconomyJobs jobsB = new EconomyJobs(pb, b);
+        jobsA.tick();
+        assertTrue(jobsB.start("upkeep", false, null));
+        assertEquals(80, dbA.loadBalance(player.getUniqueId()).balance, 1e-9);
+    }
+}
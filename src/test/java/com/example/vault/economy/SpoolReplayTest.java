@@ -0,0 +1,162 @@
+package com.example.vault.economy;
+
+import com.example.vault.Database;
+import com.example.vault.TestStubs;
+import com.example.vault.storage.WriteSpool;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.plugin.Plugin;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Restarts with a non-empty spool.log, as after a crash during an outage or a replay. */
+public class SpoolReplayTest {
+    private Plugin plugin;
+    private Database database;
+    private WriteSpool spool;
+    private final OfflinePlayer player = TestStubs.player(UUID.randomUUID());
+
+    @Before
+    public void start() throws Exception {
+        plugin = TestStubs.plugin("spool");
+        TestStubs.useDatabase(plugin, TestStubs.h2Url(), "spool");
+        database = new Database(plugin);
+        assertTrue("H2 did not start", database.isEnabled());
+        SimpleEconomy economy = new SimpleEconomy(plugin, database);
+        economy.load();
+        economy.depositPlayer(player, 100);
+        spool = new WriteSpool(new File(plugin.getDataFolder(), "spool.log"));
+    }
+
+    @After
+    public void stop() {
+        database.close();
+    }
+
+    @Test
+    public void entrySpooledDuringAnOutageIsAppliedOnce() throws Exception {
+        spool.append(player.getUniqueId(), 50);
+        SimpleEconomy restarted = new SimpleEconomy(plugin, database);
+        restarted.load();
+        assertEquals(150, restarted.getBalance(player), 1e-9);
+        assertTrue(restarted.replaySpool());
+        assertTrue(restarted.replaySpool());
+        assertEquals(150, database.loadBalance(player.getUniqueId()).balance, 1e-9);
+        assertEquals(150, restarted.getBalance(player), 1e-9);
+    }
+
+    @Test
+    public void crashBetweenCommitAndSpoolRemovalDoesNotDuplicateMoney() throws Exception {
+        // The replay committed the entry, then the server died before compacting spool.log
+        WriteSpool.Entry entry = spool.append(player.getUniqueId(), 50);
+        database.applyDeltaOnce(spool.id(), entry.txId, player.getUniqueId(), 50);
+
+        SimpleEconomy restarted = new SimpleEconomy(plugin, database);
+        restarted.load();
+        assertEquals(150, restarted.getBalance(player), 1e-9);
+        assertTrue(restarted.replaySpool());
+        assertTrue(spool.isEmpty());
+        // The next write goes through the version check from the real row
+        assertTrue(restarted.depositPlayer(player, 10).transactionSuccess());
+        assertEquals(160, database.loadBalance(player.getUniqueId()).balance, 1e-9);
+        assertEquals(160, restarted.getBalance(player), 1e-9);
+    }
+
+    @Test
+    public void writeBeforeReplayKeepsTheSpooledDelta() throws Exception {
+        spool.append(player.getUniqueId(), 50);
+        SimpleEconomy restarted = new SimpleEconomy(plugin, database);
+        restarted.load();
+        assertTrue(restarted.depositPlayer(player, 10).transactionSuccess());
+        assertEquals(110, database.loadBalance(player.getUniqueId()).balance, 1e-9);
+        assertTrue(restarted.replaySpool());
+        assertEquals(160, database.loadBalance(player.getUniqueId()).balance, 1e-9);
+        assertEquals(160, restarted.getBalance(player), 1e-9);
+    }
+
+    @Test
+    public void entryCommittedAfterLoadIsNotCountedTwice() throws Exception {
+        WriteSpool.Entry entry = spool.append(player.getUniqueId(), 50);
+        SimpleEconomy restarted = new SimpleEconomy(plugin, database);
+        restarted.load();
+        // An interrupted replay got the entry in after the load; the next write re-reads that row
+        database.applyDeltaOnce(spool.id(), entry.txId, player.getUniqueId(), 50);
+        assertTrue(restarted.depositPlayer(player, 10).transactionSuccess());
+        assertTrue(restarted.replaySpool());
+        assertEquals(160, database.loadBalance(player.getUniqueId()).balance, 1e-9);
+        assertEquals(160, restarted.getBalance(player), 1e-9);
+    }
+
+    @Test
+    public void appendAfterATornLineIsNotLost() throws Exception {
+        spool.append(player.getUniqueId(), 20);
+        // A crash mid-append left half a line without its newline
+        try (FileOutputStream out = new FileOutputStream(new File(plugin.getDataFolder(), "spool.log"), true)) {
+            out.write("3f2c9a1e-torn,".getBytes(StandardCharsets.UTF_8));
+        }
+        WriteSpool reopened = new WriteSpool(new File(plugin.getDataFolder(), "spool.log"));
+        WriteSpool.Entry entry = reopened.append(player.getUniqueId(), 30);
+        assertEquals(2, reopened.readAll().size());
+        assertEquals(entry.txId, reopened.readAll().get(1).txId);
+    }
+
+    @Test
+    public void pruneKeepsAppliedIdsWhoseEntryIsStillSpooled() throws Exception {
+        // Applied, then the server stopped before compacting; the prune runs on another server meanwhile
+        WriteSpool.Entry entry = spool.append(player.getUniqueId(), 50);
+        database.applyDeltaOnce(spool.id(), entry.txId, player.getUniqueId(), 50);
+        SimpleEconomy other = new SimpleEconomy(TestStubs.plugin("other"), database);
+        other.pruneAppliedTransactions();
+        database.pruneUnownedAppliedTransactions(Long.MAX_VALUE);
+        SimpleEconomy pruning = new SimpleEconomy(plugin, database);
+        pruning.pruneAppliedTransactions();
+
+        SimpleEconomy restarted = new SimpleEconomy(plugin, database);
+        restarted.load();
+        assertTrue(restarted.replaySpool());
+        assertEquals(150, database.loadBalance(player.getUniqueId()).balance, 1e-9);
+        assertEquals(150, restarted.getBalance(player), 1e-9);
+        // Compacted now, so the id can go
+        restarted.pruneAppliedTransactions();
+        assertTrue(database.appliedTransactions(Collections.singleton(entry.txId)).isEmpty());
+    }
+
+    @Test
+    public void strictMainThreadGuardSpoolsTheWriteInsteadOfThrowing() throws Exception {
+        plugin.getConfig().set("storage.main_thread_guard", "strict");
+        Database strict = new Database(plugin);
+        try {
+            SimpleEconomy economy = new SimpleEconomy(plugin, strict);
+            economy.load();
+            strict.getMainThreadGuard().setArmed(true);
+            AtomicReference<Object> result = new AtomicReference<>();
+            Thread server = new Thread(() -> {
+                try {
+                    result.set(economy.depositPlayer(player, 25).transactionSuccess());
+                } catch (RuntimeException ex) {
+                    result.set(ex);
+                }
+            }, TestStubs.SERVER_THREAD);
+            server.start();
+            server.join();
+            assertEquals(Boolean.TRUE, result.get());
+            assertEquals(125, economy.getBalance(player), 1e-9);
+            assertEquals(1, spool.readAll().size());
+            // Off the server thread the replay goes through
+            assertTrue(economy.replaySpool());
+            assertEquals(125, strict.loadBalance(player.getUniqueId()).balance, 1e-9);
+        } finally {
+            strict.close();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.vault.economy;
+
+import com.example.vault.TestStubs;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.plugin.Plugin;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** Calls made while the ledger is still loading. */
+public class StartupGateTest {
+    private SimpleEconomy economy;
+    private final OfflinePlayer player = TestStubs.player(UUID.randomUUID());
+
+    @Before
+    public void start() {
+        Plugin plugin = TestStubs.plugin("startup");
+        plugin.getConfig().set("startup.ready_wait_ms", 300L);
+        economy = new SimpleEconomy(plugin);
+        economy.beginStartupLoad();
+    }
+
+    @Test
+    public void serverThreadNeverWaits() throws Exception {
+        AtomicLong tookMs = new AtomicLong();
+        AtomicBoolean paid = new AtomicBoolean(true);
+        Thread server = new Thread(() -> {
+            long start = System.nanoTime();
+            paid.set(economy.depositPlayer(player, 5).transactionSuccess());
+            economy.getBalance(player);
+            tookMs.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }, TestStubs.SERVER_THREAD);
+        server.start();
+        server.join();
+        assertFalse(paid.get());
+        assertTrue("server thread waited " + tookMs.get() + " ms", tookMs.get() < 150);
+    }
+
+    @Test
+    public void otherThreadsStopWaitingAfterTheFirstTimeout() {
+        long start = System.nanoTime();
+        assertEquals(0, economy.getBalance(player), 1e-9);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 250);
+        start = System.nanoTime();
+        assertFalse(economy.depositPlayer(player, 5).transactionSuccess());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 150);
+    }
+
+    @Test
+    public void callsWorkOnceLoaded() {
+        economy.markReady();
+        assertTrue(economy.depositPlayer(player, 5).transactionSuccess());
+        assertEquals(5, economy.getBalance(player), 1e-9);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.vault.economy;
+
+import com.example.vault.Database;
+import com.example.vault.TestStubs;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.plugin.Plugin;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Hot/cold tiering on a server that follows another one through the change log. */
+public class TieringTest {
+    private Database dbA;
+    private Database dbB;
+    private SimpleEconomy a;
+    private SimpleEconomy b;
+    private BalanceSync syncB;
+    private final List<OfflinePlayer> players = new ArrayList<>();
+
+    @Before
+    public void start() throws Exception {
+        String url = TestStubs.h2Url();
+        Plugin pa = TestStubs.plugin("tier-a");
+        Plugin pb = TestStubs.plugin("tier-b");
+        TestStubs.useDatabase(pa, url, "a");
+        TestStubs.useDatabase(pb, url, "b");
+        pb.getConfig().set("storage.tiering.enabled", true);
+        dbA = new Database(pa);
+        dbB = new Database(pb);
+        a = new SimpleEconomy(pa, dbA);
+        a.load();
+        for (int i = 0; i < 20; i++) {
+            OfflinePlayer p = TestStubs.player(UUID.randomUUID());
+            players.add(p);
+            a.depositPlayer(p, 100 + i);
+        }
+        b = new SimpleEconomy(pb, dbB);
+        b.load();
+        // Starts a little before the load position, as the plugin's sync does
+        syncB = new BalanceSync(pb, dbB, b, b.getLoadedChangeId());
+    }
+
+    @After
+    public void stop() {
+        dbA.close();
+        dbB.close();
+    }
+
+    @Test
+    public void loadedLedgerStartsCold() {
+        assertEquals(0, b.getHotAccountCount());
+        assertEquals(20, b.getAccountCount());
+        assertEquals(a.getMoneySupply(), b.getMoneySupply(), 1e-9);
+        for (OfflinePlayer p : players) assertEquals(a.getBalance(p), b.getBalance(p), 1e-9);
+    }
+
+    @Test
+    public void syncRereadingKnownRowsKeepsAccountsCold() {
+        syncB.run();
+        syncB.run();
+        assertEquals(0, b.getHotAccountCount());
+    }
+
+    @Test
+    public void newerRowBringsOnlyThatAccountBack() {
+        a.depositPlayer(players.get(3), 50);
+        syncB.run();
+        assertEquals(1, b.getHotAccountCount());
+        assertEquals(153, b.getBalance(players.get(3)), 1e-9);
+        assertEquals(20, b.getAccountCount());
+        assertEquals(a.getMoneySupply(), b.getMoneySupply(), 1e-9);
+    }
+
+    @Test
+    public void idleAccountsGoBackCold() throws Exception {
+        assertTrue(b.withdrawPlayer(players.get(0), 40).transactionSuccess());
+        assertEquals(1, b.getHotAccountCount());
+        b.demoteIdle(Collections.<UUID>emptySet(), 0L);
+        assertEquals(0, b.getHotAccountCount());
+        assertEquals(60, b.getBalance(players.get(0)), 1e-9);
+        assertEquals(60, dbB.loadBalance(players.get(0).getUniqueId()).balance, 1e-9);
+        // A's write now conflicts with the version b wrote; it re-reads and applies on top
+        assertTrue(a.depositPlayer(players.get(0), 5).transactionSuccess());
+        syncB.run();
+        assertEquals(65, b.getBalance(players.get(0)), 1e-9);
+    }
+}
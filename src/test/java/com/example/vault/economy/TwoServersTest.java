@@ -0,0 +1,147 @@
+package com.example.vault.economy;
+
+import com.example.vault.Database;
+import com.example.vault.TestStubs;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.plugin.Plugin;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** Two plugin instances sharing one embedded database, as two servers share MySQL. */
+public class TwoServersTest {
+    private Database dbA;
+    private Database dbB;
+    private String url;
+    private SimpleEconomy a;
+    private SimpleEconomy b;
+    private BalanceSync syncB;
+    private final OfflinePlayer player = TestStubs.player(UUID.randomUUID());
+
+    @Before
+    public void start() throws Exception {
+        url = TestStubs.h2Url();
+        Plugin pa = TestStubs.plugin("a");
+        Plugin pb = TestStubs.plugin("b");
+        TestStubs.useDatabase(pa, url, "a");
+        TestStubs.useDatabase(pb, url, "b");
+        dbA = new Database(pa);
+        dbB = new Database(pb);
+        assertTrue("H2 did not start", dbA.isEnabled() && dbB.isEnabled());
+        a = new SimpleEconomy(pa, dbA);
+        b = new SimpleEconomy(pb, dbB);
+        a.load();
+        b.load();
+        syncB = new BalanceSync(pb, dbB, b, b.getLoadedChangeId());
+    }
+
+    @After
+    public void stop() {
+        dbA.close();
+        dbB.close();
+    }
+
+    @Test
+    public void staleWriteRereadsTheRowInsteadOfOverwritingIt() throws Exception {
+        a.depositPlayer(player, 100);
+        // b has not seen the deposit: its first write conflicts, re-reads and applies on top
+        assertTrue(b.depositPlayer(player, 10).transactionSuccess());
+        assertEquals(110, b.getBalance(player), 1e-9);
+        // a is stale now; its withdrawal must not resurrect the old 100
+        assertTrue(a.withdrawPlayer(player, 30).transactionSuccess());
+        assertEquals(80, a.getBalance(player), 1e-9);
+        assertEquals(80, dbA.loadBalance(player.getUniqueId()).balance, 1e-9);
+    }
+
+    @Test
+    public void staleCacheDoesNotAllowOverdraft() {
+        a.depositPlayer(player, 100);
+        b.createPlayerAccount(player);
+        assertTrue(a.withdrawPlayer(player, 100).transactionSuccess());
+        // b still caches 100 until it syncs
+        assertFalse(b.withdrawPlayer(player, 50).transactionSuccess());
+        assertEquals(0, b.getBalance(player), 1e-9);
+    }
+
+    @Test
+    public void changeLogCarriesWritesToTheOtherServer() {
+        a.depositPlayer(player, 250);
+        assertEquals(0, b.getBalance(player), 1e-9);
+        syncB.run();
+        assertEquals(250, b.getBalance(player), 1e-9);
+        assertEquals(a.getMoneySupply(), b.getMoneySupply(), 1e-9);
+    }
+
+    @Test
+    public void concurrentWritersOnBothServersLoseNothing() throws Exception {
+        AtomicInteger paid = new AtomicInteger();
+        Thread ta = new Thread(() -> { for (int i = 0; i < 200; i++) if (a.depositPlayer(player, 1).transactionSuccess()) paid.incrementAndGet(); });
+        Thread tb = new Thread(() -> { for (int i = 0; i < 200; i++) if (b.depositPlayer(player, 1).transactionSuccess()) paid.incrementAndGet(); });
+        ta.start();
+        tb.start();
+        ta.join();
+        tb.join();
+        // A deposit may give up after max_retries conflicts, but one that succeeded is never lost
+        assertEquals(paid.get(), dbA.loadBalance(player.getUniqueId()).balance, 1e-9);
+        syncB.run();
+        assertEquals(paid.get(), b.getBalance(player), 1e-9);
+    }
+
+    @Test
+    public void transferWhoseDepositGivesUpPaysTheSenderBack() throws Exception {
+        Plugin pc = TestStubs.plugin("c");
+        TestStubs.useDatabase(pc, url, "c");
+        pc.getConfig().set("storage.sync.max_retries", 1);
+        Database dbC = new Database(pc);
+        try {
+            SimpleEconomy c = new SimpleEconomy(pc, dbC);
+            c.load();
+            OfflinePlayer target = TestStubs.player(UUID.randomUUID());
+            c.depositPlayer(player, 100);
+            c.createPlayerAccount(target);
+            // Another server writes the recipient between the two halves, so c's one attempt conflicts
+            AtomicBoolean raced = new AtomicBoolean();
+            c.addObserver((account, type, counterparty, amount, balance) -> {
+                if (type == LedgerObserver.Type.PAY_SENT && raced.compareAndSet(false, true)) b.depositPlayer(target, 5);
+            });
+            assertFalse(c.transfer(player, target, 40).transactionSuccess());
+            assertEquals(100, c.getBalance(player), 1e-9);
+            assertEquals(100, dbC.loadBalance(player.getUniqueId()).balance, 1e-9);
+            assertEquals(5, dbC.loadBalance(target.getUniqueId()).balance, 1e-9);
+        } finally {
+            dbC.close();
+        }
+    }
+
+    @Test
+    public void changeCommittedBehindNewerRowsIsStillRead() throws Exception {
+        OfflinePlayer batched = TestStubs.player(UUID.randomUUID());
+        // A long batch takes its change-log id, then commits after many later rows
+        try (Connection conn = DriverManager.getConnection(url, "sa", "")) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO vault_balance_changes (uuid, balance, version, server_id) VALUES (?, 77, 5, 'batch')")) {
+                ps.setString(1, batched.getUniqueId().toString());
+                ps.executeUpdate();
+            }
+            for (int i = 0; i < 100; i++) a.depositPlayer(player, 1);
+            syncB.run();
+            assertEquals(100, b.getBalance(player), 1e-9);
+            assertEquals(1, syncB.pendingGaps());
+            conn.commit();
+        }
+        syncB.run();
+        assertEquals(77, b.getBalance(batched), 1e-9);
+        assertEquals(0, syncB.pendingGaps());
+    }
+}
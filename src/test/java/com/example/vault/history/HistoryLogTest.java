@@ -0,0 +1,84 @@
+package com.example.vault.history;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Paging the local history files through their per-day index. */
+public class HistoryLogTest {
+    private static final long DAY = 86_400_000L;
+    private static final long START = 19_000L * DAY;
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private final List<Double> aliceAmounts = new ArrayList<>(); // oldest first
+    private int appended;
+
+    @Test
+    public void pagesMatchEveryEntryOfTheAccountNewestFirst() throws Exception {
+        File dir = Files.createTempDirectory("vault-history").toFile();
+        HistoryLog log = new HistoryLog(dir);
+        File index = new File(dir, java.time.LocalDate.ofEpochDay(START / DAY) + ".idx");
+        append(log, 0, 1000);
+        assertPages(log);
+        long firstIndex = index.length();
+        // Enough to rebuild the day's index, then a tail it does not cover yet
+        append(log, 0, 5000);
+        assertPages(log);
+        assertTrue("index rebuilt", index.length() > firstIndex);
+        append(log, 0, 40);
+        assertPages(log);
+        // An earlier day, and a page that spans both
+        append(log, -1, 300);
+        assertPages(log);
+    }
+
+    @Test
+    public void accountWithoutHistoryGetsAnEmptyPage() throws Exception {
+        HistoryLog log = new HistoryLog(Files.createTempDirectory("vault-history").toFile());
+        append(log, 0, 500);
+        assertTrue(log.page(UUID.randomUUID(), Long.MAX_VALUE, 10).isEmpty());
+    }
+
+    private void append(HistoryLog log, int dayOffset, int count) throws Exception {
+        List<HistoryEntry> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            UUID account = i % 3 == 0 ? alice : bob;
+            double amount = ++appended;
+            // Bob pays Alice now and then: her uuid in the counterparty column must not count as hers
+            batch.add(new HistoryEntry(0L, START + dayOffset * DAY + appended, account, "DEPOSIT",
+                    account == bob && i % 5 == 0 ? alice : null, amount, amount, null));
+        }
+        log.append(batch);
+        List<Double> dayBefore = new ArrayList<>();
+        for (HistoryEntry e : batch) if (e.account == alice) dayBefore.add(e.amount);
+        if (dayOffset < 0) aliceAmounts.addAll(0, dayBefore);
+        else aliceAmounts.addAll(dayBefore);
+    }
+
+    private void assertPages(HistoryLog log) throws Exception {
+        List<Double> seen = new ArrayList<>();
+        long cursor = Long.MAX_VALUE;
+        while (true) {
+            List<HistoryEntry> page = log.page(alice, cursor, 70);
+            if (page.isEmpty()) break;
+            for (HistoryEntry e : page) {
+                assertEquals(alice, e.account);
+                assertTrue("ids descend", e.id < cursor);
+                cursor = e.id;
+                seen.add(e.amount);
+            }
+        }
+        List<Double> expected = new ArrayList<>(aliceAmounts);
+        Collections.reverse(expected);
+        assertEquals(expected, seen);
+    }
+}